@@ -0,0 +1,69 @@
+#!/bin/sh
+# Compares the cold start of the standard and the fast-startup (AppCDS + Spring AOT) images.
+#
+# Both images are built from the Dockerfile and started RUNS times each against a fresh
+# Postgres container. For every start it reports the time from "docker run" to the first
+# successful GET /api/tickets, and the resident memory of the JVM right after that request.
+# Needs Docker, curl and GNU date.
+set -eu
+
+RUNS=${RUNS:-5}
+PORT=${PORT:-18080}
+NETWORK=tickets-startup-benchmark
+DB=tickets-startup-db
+APP=tickets-startup-app
+
+cleanup() {
+  docker rm -f "$APP" "$DB" >/dev/null 2>&1 || true
+  docker network rm "$NETWORK" >/dev/null 2>&1 || true
+}
+trap cleanup EXIT
+
+now_ms() {
+  date +%s%3N
+}
+
+echo "Building images"
+docker build -q --target standard -t tickets:standard . >/dev/null
+docker build -q --target fast-startup -t tickets:fast-startup . >/dev/null
+
+docker network create "$NETWORK" >/dev/null
+docker run -d --name "$DB" --network "$NETWORK" \
+  -e POSTGRES_PASSWORD=mysecretpassword postgres >/dev/null
+until docker exec "$DB" pg_isready -U postgres >/dev/null 2>&1; do
+  sleep 1
+done
+
+# Starts an image, waits for the first request and prints "<milliseconds> <RSS in MB>"
+start() {
+  begin=$(now_ms)
+  docker run -d --name "$APP" --network "$NETWORK" -p "$PORT:8080" \
+    -e SPRING_DATASOURCE_URL="jdbc:postgresql://$DB:5432/postgres" "$1" >/dev/null
+  until curl -sf -o /dev/null "http://localhost:$PORT/api/tickets"; do
+    if [ "$(docker inspect -f '{{.State.Running}}' "$APP")" != "true" ]; then
+      docker logs "$APP" >&2
+      exit 1
+    fi
+    sleep 0.05
+  done
+  end=$(now_ms)
+  rss=$(docker exec "$APP" sh -c "grep VmRSS /proc/1/status" | awk '{print int($2 / 1024)}')
+  docker rm -f "$APP" >/dev/null
+  echo "$((end - begin)) $rss"
+}
+
+# Migrate the schema once, so that every measured start finds the same database
+start tickets:standard >/dev/null
+
+printf '%-14s %6s %22s %14s\n' image run "time to first request" "memory (RSS)"
+for image in standard fast-startup; do
+  total_ms=0
+  total_rss=0
+  for run in $(seq "$RUNS"); do
+    set -- $(start "tickets:$image")
+    printf '%-14s %6s %19s ms %11s MB\n' "$image" "$run" "$1" "$2"
+    total_ms=$((total_ms + $1))
+    total_rss=$((total_rss + $2))
+  done
+  printf '%-14s %6s %19s ms %11s MB\n' "$image" mean $((total_ms / RUNS)) $((total_rss / RUNS))
+done
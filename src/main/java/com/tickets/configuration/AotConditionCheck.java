@@ -0,0 +1,110 @@
+package com.tickets.configuration;
+
+import com.tickets.service.LoggingOutboxSink;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.aot.AotDetector;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Startup check that the property-gated beans of an AOT image match the runtime properties.
+ *
+ * <p>The Spring AOT-processed context (<code>./gradlew build -Paot</code>) evaluates <code>
+ * &#64;ConditionalOnProperty</code> once, with the properties of the build. Setting such a property
+ * differently at runtime, for example <code>tickets.sharding.urls</code>, would silently keep the
+ * beans of the build, so startup fails instead and names the properties to set at build time.
+ * Without AOT the conditions are evaluated at runtime and nothing is checked.
+ */
+@Component
+public class AotConditionCheck {
+
+  /** Classes whose beans exist only when their <code>@ConditionalOnProperty</code> matches. */
+  static final List<Class<?>> GATED =
+      List.of(
+          BulkheadConfig.class,
+          DataSourceConfig.class,
+          FlywayConfig.class,
+          SchemaIndexCheck.class,
+          ShardingConfig.class,
+          StatementAccountingConfig.class,
+          LoggingOutboxSink.class);
+
+  /**
+   * Constructor for dependency injection.
+   *
+   * @param beanFactory the bean factory of the AOT-processed context
+   * @param environment the runtime environment
+   * @throws IllegalStateException if a gated bean is present or missing against the properties
+   */
+  public AotConditionCheck(ListableBeanFactory beanFactory, Environment environment) {
+    if (!AotDetector.useGeneratedArtifacts()) {
+      return;
+    }
+    List<String> mismatches = mismatches(beanFactory, environment, GATED);
+    if (!mismatches.isEmpty()) {
+      throw new IllegalStateException(
+          "Properties differ from the AOT build, rebuild the image with them or run without"
+              + " -Dspring.aot.enabled=true: "
+              + mismatches);
+    }
+  }
+
+  /**
+   * Returns the conditions that match differently at runtime than when the context was built.
+   *
+   * @param beanFactory the bean factory
+   * @param environment the runtime environment
+   * @param gated the classes with a <code>@ConditionalOnProperty</code>
+   * @return the mismatching properties, with their runtime value
+   */
+  static List<String> mismatches(
+      ListableBeanFactory beanFactory, Environment environment, List<Class<?>> gated) {
+    List<String> mismatches = new ArrayList<>();
+    for (Class<?> type : gated) {
+      ConditionalOnProperty condition =
+          AnnotatedElementUtils.findMergedAnnotation(type, ConditionalOnProperty.class);
+      boolean built = beanFactory.getBeanNamesForType(type, true, false).length > 0;
+      for (String name : names(condition)) {
+        String value = environment.getProperty(name);
+        if (matches(condition, value) != built) {
+          mismatches.add(
+              name
+                  + "="
+                  + value
+                  + (built ? " but the build has " : " but the build lacks ")
+                  + type.getSimpleName());
+        }
+      }
+    }
+    return mismatches;
+  }
+
+  private static List<String> names(ConditionalOnProperty condition) {
+    String[] names = condition.name().length > 0 ? condition.name() : condition.value();
+    String prefix = StringUtils.hasText(condition.prefix()) ? condition.prefix().trim() : "";
+    if (!prefix.isEmpty() && !prefix.endsWith(".")) {
+      prefix = prefix + ".";
+    }
+    List<String> result = new ArrayList<>();
+    for (String name : names) {
+      result.add(prefix + name);
+    }
+    return result;
+  }
+
+  /** Same rule as <code>@ConditionalOnProperty</code>, for a single property. */
+  private static boolean matches(ConditionalOnProperty condition, String value) {
+    if (value == null) {
+      return condition.matchIfMissing();
+    }
+    if (StringUtils.hasLength(condition.havingValue())) {
+      return value.equalsIgnoreCase(condition.havingValue());
+    }
+    return !"false".equalsIgnoreCase(value);
+  }
+}
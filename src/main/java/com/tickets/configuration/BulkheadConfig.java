@@ -0,0 +1,63 @@
+package com.tickets.configuration;
+
+import com.tickets.filter.Bulkhead;
+import com.tickets.filter.BulkheadFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Per-endpoint bulkheads.
+ *
+ * <p>Each group of endpoints is limited by <code>tickets.bulkhead.&lt;group&gt;.max-concurrent
+ * </code> and <code>tickets.bulkhead.&lt;group&gt;.max-queued</code>; a group with a maximum of 0
+ * concurrent calls is not limited.
+ */
+@Configuration
+@ConditionalOnProperty(name = "tickets.bulkhead.enabled", matchIfMissing = true)
+public class BulkheadConfig {
+
+  /** Default maximum concurrent and queued calls per group. */
+  private static final Map<String, int[]> DEFAULTS =
+      Map.of(
+          BulkheadFilter.IMPORT, new int[] {2, 2},
+          BulkheadFilter.EXPORT, new int[] {2, 2},
+          BulkheadFilter.LIST, new int[] {8, 16},
+          BulkheadFilter.READ, new int[] {64, 128},
+          BulkheadFilter.WRITE, new int[] {32, 64});
+
+  /**
+   * Filter applying the bulkheads.
+   *
+   * @param environment the environment holding the limits of each group
+   * @param queueTimeout how long a call waits for a slot, in milliseconds
+   * @param retryAfter value of the Retry-After header of rejected calls, in seconds
+   * @param meterRegistry the meter registry
+   * @return the filter
+   */
+  @Bean
+  public BulkheadFilter bulkheadFilter(
+      Environment environment,
+      @Value("${tickets.bulkhead.queue-timeout:2000}") long queueTimeout,
+      @Value("${tickets.bulkhead.retry-after:1}") int retryAfter,
+      MeterRegistry meterRegistry) {
+    Map<String, Bulkhead> bulkheads = new HashMap<>();
+    DEFAULTS.forEach(
+        (name, defaults) -> {
+          String prefix = "tickets.bulkhead." + name;
+          int maxConcurrent =
+              environment.getProperty(prefix + ".max-concurrent", Integer.class, defaults[0]);
+          int maxQueued =
+              environment.getProperty(prefix + ".max-queued", Integer.class, defaults[1]);
+          if (maxConcurrent > 0) {
+            bulkheads.put(name, new Bulkhead(name, maxConcurrent, maxQueued, queueTimeout));
+          }
+        });
+    return new BulkheadFilter(bulkheads, retryAfter, meterRegistry);
+  }
+}
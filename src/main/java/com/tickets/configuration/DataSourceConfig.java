@@ -0,0 +1,69 @@
+package com.tickets.configuration;
+
+import com.tickets.filter.ReadYourWritesFilter;
+import com.zaxxer.hikari.HikariDataSource;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Read/write split between the primary database and a read replica.
+ *
+ * <p>Only active when <code>tickets.datasource.replica.url</code> is set; otherwise the data source
+ * auto-configured from <code>spring.datasource</code> serves every query.
+ */
+@Configuration
+@ConditionalOnProperty(name = "tickets.datasource.replica.url")
+public class DataSourceConfig {
+
+  /**
+   * Data source routing read-only transactions to the replica.
+   *
+   * @param properties the <code>spring.datasource</code> properties of the primary
+   * @param replicaUrl JDBC URL of the replica
+   * @param replicaUsername user name for the replica
+   * @param replicaPassword password for the replica
+   * @return the routing data source
+   */
+  @Bean
+  @Primary
+  public DataSource dataSource(
+      DataSourceProperties properties,
+      @Value("${tickets.datasource.replica.url}") String replicaUrl,
+      @Value("${tickets.datasource.replica.username:${spring.datasource.username:}}")
+          String replicaUsername,
+      @Value("${tickets.datasource.replica.password:${spring.datasource.password:}}")
+          String replicaPassword) {
+    HikariDataSource primary =
+        properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    primary.setPoolName("primary");
+    HikariDataSource replica =
+        DataSourceBuilder.create()
+            .type(HikariDataSource.class)
+            .url(replicaUrl)
+            .username(replicaUsername)
+            .password(replicaPassword)
+            .build();
+    replica.setPoolName("replica");
+    replica.setReadOnly(true);
+    return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replica));
+  }
+
+  /**
+   * Filter keeping the reads of a client on the primary for a while after its own writes.
+   *
+   * @param window duration of the read-your-writes window in milliseconds
+   * @return the filter
+   */
+  @Bean
+  public ReadYourWritesFilter readYourWritesFilter(
+      @Value("${tickets.datasource.read-your-writes-window:5000}") long window) {
+    return new ReadYourWritesFilter(window);
+  }
+}
@@ -0,0 +1,46 @@
+package com.tickets.configuration;
+
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationInitializer;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Runs the Flyway migrations at startup unless <code>tickets.flyway.migrate</code> is false.
+ *
+ * <p>Unlike <code>spring.flyway.enabled</code>, which decides at build time whether an AOT image
+ * has Flyway at all, this switch is read at runtime. It lets the class data sharing training run
+ * of the fast-startup image start the AOT context without a database.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.flyway.enabled", matchIfMissing = true)
+public class FlywayConfig {
+
+  private static final Logger logger = LoggerFactory.getLogger(FlywayConfig.class);
+
+  /**
+   * Replaces the initializer of Spring Boot, which always migrates.
+   *
+   * @param flyway the Flyway instance
+   * @param migrationStrategy the strategy running the migrations, if any
+   * @param migrate whether to run the migrations
+   * @return the initializer
+   */
+  @Bean
+  public FlywayMigrationInitializer flywayInitializer(
+      Flyway flyway,
+      ObjectProvider<FlywayMigrationStrategy> migrationStrategy,
+      @Value("${tickets.flyway.migrate:true}") boolean migrate) {
+    if (!migrate) {
+      return new FlywayMigrationInitializer(
+          flyway, skipped -> logger.info("Skipping the Flyway migrations"));
+    }
+    return new FlywayMigrationInitializer(flyway, migrationStrategy.getIfAvailable());
+  }
+}
@@ -0,0 +1,55 @@
+package com.tickets.configuration;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Binary response formats offered next to JSON.
+ *
+ * <p>Clients sending <code>Accept: application/cbor</code> or <code>
+ * Accept: application/x-jackson-smile</code> get the same documents in a binary encoding: UUIDs
+ * are written as 16 raw bytes, dates as epoch milliseconds, and Smile additionally replaces
+ * repeated field names with back references. Both mappers start from the application's Jackson
+ * configuration.
+ */
+@Configuration
+public class MessageConverterConfig {
+
+  /**
+   * Converter for <code>application/cbor</code>.
+   *
+   * @param builder the application's Jackson builder
+   * @return the converter
+   */
+  @Bean
+  public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(
+      Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2CborHttpMessageConverter(
+        builder
+            .factory(new CBORFactory())
+            .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build());
+  }
+
+  /**
+   * Converter for <code>application/x-jackson-smile</code>.
+   *
+   * @param builder the application's Jackson builder
+   * @return the converter
+   */
+  @Bean
+  public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(
+      Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2SmileHttpMessageConverter(
+        builder
+            .factory(new SmileFactory())
+            .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build());
+  }
+}
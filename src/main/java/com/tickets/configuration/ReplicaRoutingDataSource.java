@@ -0,0 +1,74 @@
+package com.tickets.configuration;
+
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Data source sending read-only transactions to a replica and everything else to the primary.
+ *
+ * <p>The target is chosen when a connection is requested, so this data source must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the proxy delays
+ * fetching the connection until the first statement, after the transaction has been marked
+ * read-only. Reads of a thread can be kept on the primary with {@link #setPrimaryOnly}, which is
+ * how the read-your-writes window of a client is applied.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+  /** Lookup keys of the two targets. */
+  public static enum Target {
+    PRIMARY,
+    REPLICA;
+  }
+
+  private static final ThreadLocal<Boolean> PRIMARY_ONLY = new ThreadLocal<>();
+
+  /**
+   * Creates a routing data source.
+   *
+   * @param primary the data source used for writes
+   * @param replica the data source used for read-only transactions
+   */
+  public ReplicaRoutingDataSource(DataSource primary, DataSource replica) {
+    setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+    setDefaultTargetDataSource(primary);
+    afterPropertiesSet();
+  }
+
+  /**
+   * Keeps the reads of the current thread on the primary, or releases them again.
+   *
+   * @param primaryOnly whether read-only transactions of this thread must use the primary
+   */
+  public static void setPrimaryOnly(boolean primaryOnly) {
+    if (primaryOnly) {
+      PRIMARY_ONLY.set(Boolean.TRUE);
+    } else {
+      PRIMARY_ONLY.remove();
+    }
+  }
+
+  /**
+   * Returns whether the reads of the current thread are kept on the primary.
+   *
+   * @return true if read-only transactions of this thread use the primary
+   */
+  public static boolean isPrimaryOnly() {
+    return PRIMARY_ONLY.get() != null;
+  }
+
+  /**
+   * Returns the target for the current transaction.
+   *
+   * @return {@link Target#REPLICA} inside a read-only transaction, {@link Target#PRIMARY} otherwise
+   */
+  @Override
+  protected Object determineCurrentLookupKey() {
+    if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+        && !isPrimaryOnly()) {
+      return Target.REPLICA;
+    }
+    return Target.PRIMARY;
+  }
+}
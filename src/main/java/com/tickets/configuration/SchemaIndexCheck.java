@@ -0,0 +1,144 @@
+package com.tickets.configuration;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Startup check that every index the repository queries rely on exists.
+ *
+ * <p>The indexes are created by the Flyway migrations in <code>db/migration</code>. An index
+ * matches when its leading columns are the expected ones, whatever its name, so indexes created
+ * by hand under another name also count. Startup fails when one is missing, instead of the
+ * queries silently falling back to full scans.
+ */
+@Component
+@ConditionalOnProperty(name = "tickets.schema.index-check.enabled", matchIfMissing = true)
+public class SchemaIndexCheck {
+
+  private static final Logger logger = LoggerFactory.getLogger(SchemaIndexCheck.class);
+
+  /** An index expected on a table, by its leading columns. */
+  static record ExpectedIndex(String table, List<String> columns) {
+
+    ExpectedIndex(String table, String... columns) {
+      this(table, List.of(columns));
+    }
+
+    @Override
+    public String toString() {
+      return table + " (" + String.join(", ", columns) + ")";
+    }
+  }
+
+  /** Indexes used by the repository queries. */
+  static final List<ExpectedIndex> EXPECTED =
+      List.of(
+          new ExpectedIndex("tickets", "assigned_to_id", "created_at"),
+          new ExpectedIndex("tickets", "status", "created_at"),
+          new ExpectedIndex("tickets", "created_at"),
+          new ExpectedIndex("tickets", "import_hash"),
+          new ExpectedIndex("tickets_ticket_history", "ticket_id"),
+          new ExpectedIndex("tickets_ticket_history", "ticket_history_id"),
+          new ExpectedIndex("users", "user_name"),
+          new ExpectedIndex("ticket_snapshots", "ticket_id", "taken_at"),
+          new ExpectedIndex("tickets_archive", "assigned_to"),
+          new ExpectedIndex("ticket_history_archive", "ticket_id", "update_date"),
+          new ExpectedIndex("import_rejects", "import_id", "line"));
+
+  private final DataSource dataSource;
+
+  /**
+   * Constructor for dependency injection.
+   *
+   * @param dataSource the data source of the schema to check
+   */
+  public SchemaIndexCheck(DataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  /**
+   * Fails startup if an expected index is missing.
+   *
+   * @throws IllegalStateException if an index is missing or the schema cannot be read
+   */
+  @EventListener(ApplicationStartedEvent.class)
+  public void check() {
+    List<ExpectedIndex> missing;
+    try (Connection connection = dataSource.getConnection()) {
+      missing = findMissing(connection.getMetaData(), connection.getSchema());
+    } catch (SQLException e) {
+      throw new IllegalStateException("Could not read the database indexes", e);
+    }
+    if (!missing.isEmpty()) {
+      logger.error("Missing database indexes: {}", missing);
+      throw new IllegalStateException(
+          "Missing database indexes, check the Flyway migrations: " + missing);
+    }
+    logger.info("All {} expected database indexes are present", EXPECTED.size());
+  }
+
+  /**
+   * Returns the expected indexes not found in a database.
+   *
+   * @param metaData the metadata of the database
+   * @param schema the schema holding the tables
+   * @return the missing indexes
+   * @throws SQLException if the metadata cannot be read
+   */
+  static List<ExpectedIndex> findMissing(DatabaseMetaData metaData, String schema)
+      throws SQLException {
+    Map<String, List<List<String>>> indexes = new TreeMap<>();
+    List<ExpectedIndex> missing = new ArrayList<>();
+    for (ExpectedIndex expected : EXPECTED) {
+      List<List<String>> tableIndexes = indexes.get(expected.table());
+      if (tableIndexes == null) {
+        tableIndexes = readIndexes(metaData, schema, expected.table());
+        indexes.put(expected.table(), tableIndexes);
+      }
+      if (tableIndexes.stream().noneMatch(columns -> startsWith(columns, expected.columns()))) {
+        missing.add(expected);
+      }
+    }
+    return missing;
+  }
+
+  /** Reads the columns of every index of a table, in index order. */
+  private static List<List<String>> readIndexes(
+      DatabaseMetaData metaData, String schema, String table) throws SQLException {
+    String name = metaData.storesUpperCaseIdentifiers() ? table.toUpperCase(Locale.ROOT) : table;
+    Map<String, Map<Short, String>> columnsByIndex = new TreeMap<>();
+    try (ResultSet rows = metaData.getIndexInfo(null, schema, name, false, true)) {
+      while (rows.next()) {
+        String index = rows.getString("INDEX_NAME");
+        String column = rows.getString("COLUMN_NAME");
+        if (index == null || column == null) {
+          continue;
+        }
+        columnsByIndex
+            .computeIfAbsent(index, i -> new TreeMap<>())
+            .put(rows.getShort("ORDINAL_POSITION"), column.toLowerCase(Locale.ROOT));
+      }
+    }
+    List<List<String>> result = new ArrayList<>();
+    columnsByIndex.values().forEach(columns -> result.add(new ArrayList<>(columns.values())));
+    return result;
+  }
+
+  private static boolean startsWith(List<String> columns, List<String> prefix) {
+    return columns.size() >= prefix.size() && columns.subList(0, prefix.size()).equals(prefix);
+  }
+}
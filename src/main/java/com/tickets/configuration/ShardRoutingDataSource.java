@@ -0,0 +1,103 @@
+package com.tickets.configuration;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Data source spreading tickets over several databases by a hash of the ticket ID.
+ *
+ * <p>The shard of the current thread is set with {@link #setShard}; without one, connections go to
+ * shard 0, which also holds the tables that are not sharded. As with {@link
+ * ReplicaRoutingDataSource}, the target is chosen when a connection is requested, so this data
+ * source must be wrapped in a {@link
+ * org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} for the shard of a
+ * transaction to be set after it began.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+  private static final ThreadLocal<Integer> SHARD = new ThreadLocal<>();
+
+  private final List<DataSource> shards;
+
+  /**
+   * Creates a routing data source.
+   *
+   * @param shards the data sources of the shards, in shard order
+   */
+  public ShardRoutingDataSource(List<DataSource> shards) {
+    if (shards.isEmpty()) {
+      throw new IllegalArgumentException("At least one shard is required");
+    }
+    this.shards = List.copyOf(shards);
+    Map<Object, Object> targets = new HashMap<>();
+    for (int shard = 0; shard < shards.size(); shard++) {
+      targets.put(shard, shards.get(shard));
+    }
+    setTargetDataSources(targets);
+    setDefaultTargetDataSource(shards.get(0));
+    afterPropertiesSet();
+  }
+
+  /**
+   * Returns the data sources of the shards.
+   *
+   * @return the shards, in shard order
+   */
+  public List<DataSource> getShards() {
+    return shards;
+  }
+
+  /**
+   * Sets the shard used by connections of the current thread, or clears it.
+   *
+   * @param shard the shard index, or null for shard 0
+   */
+  public static void setShard(Integer shard) {
+    if (shard == null) {
+      SHARD.remove();
+    } else {
+      SHARD.set(shard);
+    }
+  }
+
+  /**
+   * Returns the shard set for the current thread.
+   *
+   * @return the shard index, or null if none is set
+   */
+  public static Integer getShard() {
+    return SHARD.get();
+  }
+
+  /**
+   * Returns the shard owning a ticket. The mapping depends only on the ID and the number of shards,
+   * so changing the number of shards requires moving tickets.
+   *
+   * @param id the ticket ID
+   * @param shardCount the number of shards
+   * @return the shard index
+   */
+  public static int shardOf(UUID id, int shardCount) {
+    // Mix both halves: the high bits of a version 7 UUID are a timestamp
+    long hash = id.getMostSignificantBits() ^ id.getLeastSignificantBits();
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    return (int) Math.floorMod(hash, (long) shardCount);
+  }
+
+  /**
+   * Returns the shard for the current connection request.
+   *
+   * @return the shard of the current thread, or 0
+   */
+  @Override
+  protected Object determineCurrentLookupKey() {
+    Integer shard = SHARD.get();
+    return shard == null ? 0 : shard;
+  }
+}
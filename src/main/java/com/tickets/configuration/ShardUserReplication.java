@@ -0,0 +1,127 @@
+package com.tickets.configuration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Copy of the <code>users</code> table of shard 0 to every other shard.
+ *
+ * <p>Tickets reference their creator, last modifier and assignee by foreign key, and those
+ * references are checked on the shard owning the ticket. Users are only ever written to shard 0,
+ * so their rows are copied from there on startup and then every <code>
+ * tickets.sharding.user-replication-interval</code> milliseconds. Rows are inserted or updated,
+ * never deleted, since tickets on a shard may still reference them. Startup fails if a shard
+ * still differs from shard 0 after the copy.
+ */
+@Component
+@ConditionalOnProperty(name = "tickets.sharding.urls")
+public class ShardUserReplication {
+
+  private static final Logger logger = LoggerFactory.getLogger(ShardUserReplication.class);
+
+  /** A row of <code>users</code>. */
+  record UserRow(UUID id, String userName, String password, String role) {}
+
+  private final List<DataSource> shards;
+
+  /**
+   * Constructor for dependency injection.
+   *
+   * @param shardRoutingDataSource the routing data source
+   */
+  public ShardUserReplication(ShardRoutingDataSource shardRoutingDataSource) {
+    this.shards = shardRoutingDataSource.getShards();
+  }
+
+  /**
+   * Copies the users to every shard, then fails startup if a shard still differs from shard 0.
+   *
+   * @throws IllegalStateException if the users of a shard differ from those of shard 0
+   */
+  @EventListener(ApplicationStartedEvent.class)
+  public void replicateAndCheck() {
+    replicate();
+    List<Integer> differing = new ArrayList<>();
+    Map<UUID, UserRow> source = readUsers(shards.get(0));
+    for (int shard = 1; shard < shards.size(); shard++) {
+      Map<UUID, UserRow> target = readUsers(shards.get(shard));
+      if (!target.entrySet().containsAll(source.entrySet())) {
+        differing.add(shard);
+      }
+    }
+    if (!differing.isEmpty()) {
+      logger.error("Users of shards {} differ from those of shard 0", differing);
+      throw new IllegalStateException("Users of shards " + differing + " differ from shard 0");
+    }
+    logger.info("Users of all {} shards match shard 0", shards.size());
+  }
+
+  /**
+   * Inserts or updates on every other shard the users of shard 0 that are missing or changed there.
+   *
+   * @return the number of rows written
+   */
+  @Scheduled(
+      fixedDelayString = "${tickets.sharding.user-replication-interval:60000}",
+      initialDelayString = "${tickets.sharding.user-replication-interval:60000}")
+  public synchronized int replicate() {
+    Map<UUID, UserRow> source = readUsers(shards.get(0));
+    int written = 0;
+    for (int shard = 1; shard < shards.size(); shard++) {
+      JdbcTemplate jdbcTemplate = new JdbcTemplate(shards.get(shard));
+      Map<UUID, UserRow> target = readUsers(shards.get(shard));
+      for (UserRow user : source.values()) {
+        UserRow existing = target.get(user.id());
+        if (existing == null) {
+          jdbcTemplate.update(
+              "insert into users (id, user_name, password, role) values (?, ?, ?, ?)",
+              user.id(),
+              user.userName(),
+              user.password(),
+              user.role());
+          written++;
+        } else if (!Objects.equals(existing, user)) {
+          jdbcTemplate.update(
+              "update users set user_name = ?, password = ?, role = ? where id = ?",
+              user.userName(),
+              user.password(),
+              user.role(),
+              user.id());
+          written++;
+        }
+      }
+    }
+    if (written > 0) {
+      logger.info("Replicated {} users from shard 0", written);
+    }
+    return written;
+  }
+
+  private static Map<UUID, UserRow> readUsers(DataSource shard) {
+    Map<UUID, UserRow> users = new LinkedHashMap<>();
+    new JdbcTemplate(shard)
+        .query(
+            "select id, user_name, password, role from users order by id",
+            (rs, rowNum) ->
+                new UserRow(
+                    rs.getObject("id", UUID.class),
+                    rs.getString("user_name"),
+                    rs.getString("password"),
+                    rs.getString("role")))
+        .forEach(user -> users.put(user.id(), user));
+    return users;
+  }
+}
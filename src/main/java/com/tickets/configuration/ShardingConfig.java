@@ -0,0 +1,87 @@
+package com.tickets.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Storage of tickets and their history spread over several databases by ticket ID hash.
+ *
+ * <p>Only active when <code>tickets.sharding.urls</code> is set; it replaces the data source
+ * auto-configured from <code>spring.datasource</code> and cannot be combined with a read replica.
+ * Every shard gets the full schema; the tables that are not sharded are only used on the first one.
+ */
+@Configuration
+@ConditionalOnProperty(name = "tickets.sharding.urls")
+public class ShardingConfig {
+
+  /**
+   * Data source of every shard, routed by {@link com.tickets.service.TicketShards}.
+   *
+   * @param urls JDBC URLs of the shards, in shard order
+   * @param username user name for the shards
+   * @param password password for the shards
+   * @return the routing data source
+   */
+  @Bean
+  public ShardRoutingDataSource shardRoutingDataSource(
+      @Value("${tickets.sharding.urls}") List<String> urls,
+      @Value("${tickets.sharding.username:${spring.datasource.username:}}") String username,
+      @Value("${tickets.sharding.password:${spring.datasource.password:}}") String password) {
+    List<DataSource> shards = new ArrayList<>();
+    for (String url : urls) {
+      HikariDataSource shard =
+          DataSourceBuilder.create()
+              .type(HikariDataSource.class)
+              .url(url)
+              .username(username)
+              .password(password)
+              .build();
+      shard.setPoolName("shard-" + shards.size());
+      shards.add(shard);
+    }
+    return new ShardRoutingDataSource(shards);
+  }
+
+  /**
+   * Data source used by JPA, choosing the shard at the first statement of each transaction.
+   *
+   * @param shardRoutingDataSource the routing data source
+   * @return the lazy data source
+   */
+  @Bean
+  @Primary
+  public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+    return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+  }
+
+  /**
+   * Runs the Flyway migrations on every shard with the <code>spring.flyway</code> settings.
+   *
+   * @param shardRoutingDataSource the routing data source
+   * @return the migration strategy
+   */
+  @Bean
+  public FlywayMigrationStrategy shardMigrationStrategy(
+      ShardRoutingDataSource shardRoutingDataSource) {
+    return flyway -> {
+      for (DataSource shard : shardRoutingDataSource.getShards()) {
+        Flyway.configure()
+            .configuration(flyway.getConfiguration())
+            .dataSource(shard)
+            .load()
+            .migrate();
+      }
+    };
+  }
+}
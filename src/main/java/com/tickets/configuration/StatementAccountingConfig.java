@@ -0,0 +1,93 @@
+package com.tickets.configuration;
+
+import com.tickets.filter.RequestStatistics;
+import com.tickets.filter.StatementAccountingFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.internal.StatisticsImpl;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Per-request SQL statement accounting.
+ *
+ * <p>Hibernate statistics are enabled with an implementation that also reports to the {@link
+ * RequestStatistics} of the current request, and statements slower than <code>
+ * tickets.sql.slow-query-threshold</code> are logged by Hibernate to <code>org.hibernate.SQL_SLOW
+ * </code>.
+ */
+@Configuration
+@ConditionalOnProperty(name = "tickets.sql.accounting.enabled", matchIfMissing = true)
+public class StatementAccountingConfig {
+
+  /**
+   * Hibernate settings enabling the statistics and the slow query log.
+   *
+   * @param slowQueryThreshold execution time in milliseconds above which a statement is logged; 0
+   *     disables the log
+   * @return the customizer
+   */
+  @Bean
+  public HibernatePropertiesCustomizer statementAccountingCustomizer(
+      @Value("${tickets.sql.slow-query-threshold:200}") long slowQueryThreshold) {
+    return properties -> {
+      properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+      properties.put(
+          AvailableSettings.STATS_BUILDER, (StatisticsFactory) RequestCountingStatistics::new);
+      properties.put(AvailableSettings.LOG_SLOW_QUERY, slowQueryThreshold);
+    };
+  }
+
+  /**
+   * Filter recording the statements of each request.
+   *
+   * @param meterRegistry the meter registry
+   * @param maxStatements maximum number of statements per request before it is logged or failed
+   * @param failOverMax whether a request above the maximum fails instead of being logged
+   * @return the filter
+   */
+  @Bean
+  public StatementAccountingFilter statementAccountingFilter(
+      MeterRegistry meterRegistry,
+      @Value("${tickets.sql.max-statements:50}") int maxStatements,
+      @Value("${tickets.sql.fail-over-max:false}") boolean failOverMax) {
+    return new StatementAccountingFilter(meterRegistry, maxStatements, failOverMax);
+  }
+
+  /** Hibernate statistics also counted for the current request. */
+  static class RequestCountingStatistics extends StatisticsImpl {
+
+    RequestCountingStatistics(SessionFactoryImplementor sessionFactory) {
+      super(sessionFactory);
+    }
+
+    @Override
+    public void prepareStatement() {
+      super.prepareStatement();
+      RequestStatistics.statementPrepared();
+    }
+
+    @Override
+    public void loadEntity(String entityName) {
+      super.loadEntity(entityName);
+      RequestStatistics.entityLoaded();
+    }
+
+    @Override
+    public void fetchCollection(String role) {
+      super.fetchCollection(role);
+      RequestStatistics.collectionFetched();
+    }
+
+    @Override
+    public void flush() {
+      super.flush();
+      RequestStatistics.flushed();
+    }
+  }
+}
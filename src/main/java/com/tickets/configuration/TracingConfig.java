@@ -0,0 +1,88 @@
+package com.tickets.configuration;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import java.util.function.Supplier;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+/**
+ * Tracing of the repository layer.
+ *
+ * <p>Controller and service spans come from <code>@Observed</code> on their classes, the span of
+ * <code>TicketMapper.update</code> from <code>@Observed</code> on that method, and JDBC spans from
+ * the data source proxy of <code>datasource-micrometer</code>. This configuration adds a <code>
+ * tickets.repository</code> observation around every repository method, so the statements of a
+ * request are grouped under the repository call that ran them.
+ */
+@Configuration
+public class TracingConfig {
+
+  /** Name of the repository observations. */
+  public static final String REPOSITORY_OBSERVATION = "tickets.repository";
+
+  /**
+   * Adds the repository observation to every Spring Data repository.
+   *
+   * @param observationRegistry the observation registry, resolved on first use
+   * @return the post processor
+   */
+  @Bean
+  public static BeanPostProcessor repositoryObservationPostProcessor(
+      ObjectProvider<ObservationRegistry> observationRegistry) {
+    Supplier<ObservationRegistry> registry =
+        () -> observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP);
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+          factoryBean.addRepositoryFactoryCustomizer(
+              factory ->
+                  factory.addRepositoryProxyPostProcessor(
+                      (proxyFactory, information) ->
+                          proxyFactory.addAdvice(
+                              new RepositoryObservationInterceptor(
+                                  registry,
+                                  information.getRepositoryInterface().getSimpleName()))));
+        }
+        return bean;
+      }
+    };
+  }
+
+  /** Interceptor observing each call of a repository. */
+  static class RepositoryObservationInterceptor implements MethodInterceptor {
+
+    private final Supplier<ObservationRegistry> registry;
+    private final String repository;
+
+    RepositoryObservationInterceptor(Supplier<ObservationRegistry> registry, String repository) {
+      this.registry = registry;
+      this.repository = repository;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+      String method = invocation.getMethod().getName();
+      Observation observation =
+          Observation.createNotStarted(REPOSITORY_OBSERVATION, registry.get())
+              .contextualName(repository + "." + method)
+              .lowCardinalityKeyValue("repository", repository)
+              .lowCardinalityKeyValue("method", method)
+              .start();
+      try (Observation.Scope scope = observation.openScope()) {
+        return invocation.proceed();
+      } catch (Throwable e) {
+        observation.error(e);
+        throw e;
+      } finally {
+        observation.stop();
+      }
+    }
+  }
+}
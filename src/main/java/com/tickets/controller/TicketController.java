@@ -1,25 +1,44 @@
 package com.tickets.controller;
 
+import com.tickets.dto.ImportResultDto;
 import com.tickets.dto.TicketCreationDto;
 import com.tickets.dto.TicketDto;
 import com.tickets.dto.TicketHistoryDto;
 import com.tickets.dto.TicketUpdateDto;
 import com.tickets.model.ChangeType;
+import com.tickets.model.ImportRequest;
+import com.tickets.model.Status;
+import com.tickets.service.TicketFeedService;
+import com.tickets.service.TicketImportService;
 import com.tickets.service.TicketService;
+import io.micrometer.observation.annotation.Observed;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 /**
  * REST controller for managing ticket operations.
@@ -29,14 +48,23 @@ import org.springframework.web.multipart.MultipartFile;
  *
  * <ul>
  *   <li><b>GET /api/tickets</b>: Retrieve a list of tickets, optionally filtered by assigned user
- *       ID
+ *       ID; pass <code>archived=true</code> here or on the two reads below to read archived
+ *       tickets, or <code>fields=...</code> to return only some fields
+ *   <li><b>GET /api/tickets/triage</b>: Retrieve a page of tickets by status and assigned users
+ *   <li><b>GET /api/tickets/triage/counts</b>: Count tickets per status for a set of assigned users
+ *   <li><b>GET /api/tickets/export</b>: Export tickets as CSV in the bulk import format
+ *   <li><b>GET /api/tickets/stream</b>: Stream ticket changes as server-sent events
+ *   <li><b>GET /api/tickets/{id}</b>: Retrieve a ticket, optionally as it was at a past time
  *   <li><b>POST /api/tickets</b>: Create a new ticket
  *   <li><b>PUT /api/tickets/{id}</b>: Update an existing ticket
  *   <li><b>GET /api/tickets/{id}/history</b>: Retrieve ticket history, optionally filtered by
  *       change type
- *   <li><b>POST /api/tickets/bulkimport</b>: Bulk import tickets from a CSV file
+ *   <li><b>POST /api/tickets/bulkimport</b>: Bulk import tickets from a CSV file, uploaded as
+ *       multipart form data or sent as the raw request body
+ *   <li><b>GET /api/tickets/bulkimport/{id}/rejects</b>: Download the rows rejected by an import
  * </ul>
  */
+@Observed(name = "tickets.controller")
 @RestController
 @RequestMapping("/api/tickets")
 public class TicketController {
@@ -46,13 +74,26 @@ public class TicketController {
   /** Service for ticket business logic. */
   private TicketService ticketService;
 
+  /** Service for the ticket change feed. */
+  private TicketFeedService ticketFeedService;
+
+  /** Service for bulk imports. */
+  private TicketImportService ticketImportService;
+
   /**
    * Constructor for dependency injection.
    *
    * @param ticketService the ticket service
+   * @param ticketFeedService the ticket feed service
+   * @param ticketImportService the ticket import service
    */
-  public TicketController(TicketService ticketService) {
+  public TicketController(
+      TicketService ticketService,
+      TicketFeedService ticketFeedService,
+      TicketImportService ticketImportService) {
     this.ticketService = ticketService;
+    this.ticketFeedService = ticketFeedService;
+    this.ticketImportService = ticketImportService;
   }
 
   /**
@@ -60,11 +101,133 @@ public class TicketController {
    *
    * @param assignedToUserId (optional) the assigned user ID to filter by; if null, returns all
    *     tickets
+   * @param archived whether to list archived tickets instead of active ones
+   * @param page the zero-based page number, used with <code>size</code>
+   * @param size (optional) the page size; if null, returns all tickets
    * @return list of ticket DTOs
    */
   @GetMapping
-  public List<TicketDto> getTickets(@RequestParam(required = false) String assignedToUserId) {
-    return ticketService.getTikets(assignedToUserId);
+  public List<TicketDto> getTickets(
+      @RequestParam(required = false) String assignedToUserId,
+      @RequestParam(defaultValue = "false") boolean archived,
+      @RequestParam(defaultValue = "0") int page,
+      @RequestParam(required = false) Integer size) {
+    return ticketService.getTikets(assignedToUserId, archived, page, size);
+  }
+
+  /**
+   * Retrieves a list of tickets as JSON assembled from cached encodings; used for JSON clients
+   * unless archived tickets or sparse fields are requested.
+   *
+   * @param assignedToUserId (optional) the assigned user ID to filter by; if null, returns all
+   *     tickets
+   * @param page the zero-based page number, used with <code>size</code>
+   * @param size (optional) the page size; if null, returns all tickets
+   * @return the JSON array of ticket DTOs
+   */
+  @GetMapping(params = {"!fields", "!archived"}, produces = MediaType.APPLICATION_JSON_VALUE)
+  public byte[] getTicketsJson(
+      @RequestParam(required = false) String assignedToUserId,
+      @RequestParam(defaultValue = "0") int page,
+      @RequestParam(required = false) Integer size) {
+    return ticketService.getTicketsJson(assignedToUserId, page, size);
+  }
+
+  /**
+   * Retrieves selected fields of tickets; only the requested columns are read from the database.
+   *
+   * @param assignedToUserId (optional) the assigned user ID to filter by; if null, returns all
+   *     tickets
+   * @param fields comma-separated ticket fields to return, for example <code>status,assignedTo
+   *     </code>; the ID is always returned
+   * @param archived whether to list archived tickets; not supported with fields
+   * @return one map of field name to value per ticket
+   */
+  @GetMapping(params = "fields")
+  public List<Map<String, Object>> getTicketFields(
+      @RequestParam(required = false) String assignedToUserId,
+      @RequestParam List<String> fields,
+      @RequestParam(defaultValue = "false") boolean archived) {
+    return ticketService.getTicketFields(assignedToUserId, fields, archived);
+  }
+
+  /**
+   * Exports tickets as CSV in the bulk import format. Rows are streamed from the database as they
+   * are written, so memory use does not depend on the number of tickets.
+   *
+   * @param status (optional) the status to filter by
+   * @param assignedToUserId (optional) the assigned user ID to filter by
+   * @param gzip whether to send a gzip-compressed file
+   * @param response the response to write the CSV to
+   * @throws IOException if writing the response fails
+   */
+  @GetMapping("/export")
+  public void exportTickets(
+      @RequestParam(required = false) Status status,
+      @RequestParam(required = false) String assignedToUserId,
+      @RequestParam(defaultValue = "false") boolean gzip,
+      HttpServletResponse response)
+      throws IOException {
+    logger.info("Received request to export tickets with status: {}", status);
+    String fileName = gzip ? "tickets.csv.gz" : "tickets.csv";
+    response.setContentType(gzip ? "application/gzip" : "text/csv;charset=UTF-8");
+    response.setHeader(
+        HttpHeaders.CONTENT_DISPOSITION,
+        ContentDisposition.attachment().filename(fileName).build().toString());
+    if (gzip) {
+      GZIPOutputStream out = new GZIPOutputStream(response.getOutputStream(), 64 * 1024);
+      ticketService.exportTickets(status, assignedToUserId, out);
+      out.finish();
+    } else {
+      ticketService.exportTickets(status, assignedToUserId, response.getOutputStream());
+    }
+  }
+
+  /**
+   * Retrieves a page of tickets by status and assigned users, served from the in-memory index.
+   *
+   * @param status (optional) the status to filter by
+   * @param assignedToUserId (optional) the assigned user IDs to filter by
+   * @param page the zero-based page number
+   * @param size the page size
+   * @return list of ticket DTOs
+   */
+  @GetMapping("/triage")
+  public List<TicketDto> getTriageTickets(
+      @RequestParam(required = false) Status status,
+      @RequestParam(required = false) List<String> assignedToUserId,
+      @RequestParam(defaultValue = "0") int page,
+      @RequestParam(defaultValue = "50") int size) {
+    return ticketService.getTriageTickets(status, assignedToUserId, page, size);
+  }
+
+  /**
+   * Counts tickets per status for a set of assigned users, served from the in-memory index.
+   *
+   * @param assignedToUserId (optional) the assigned user IDs to filter by
+   * @return number of tickets per status
+   */
+  @GetMapping("/triage/counts")
+  public Map<Status, Long> getTriageCounts(
+      @RequestParam(required = false) List<String> assignedToUserId) {
+    return ticketService.getTriageCounts(assignedToUserId);
+  }
+
+  /**
+   * Streams committed ticket changes as server-sent events.
+   *
+   * @param assignedToUserId (optional) only stream changes of tickets assigned to this user
+   * @param status (optional) only stream changes of tickets in this status
+   * @param lastEventId (optional) the last event ID received; missed events are replayed first
+   * @return the event emitter
+   */
+  @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamTicketChanges(
+      @RequestParam(required = false) String assignedToUserId,
+      @RequestParam(required = false) Status status,
+      @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+    logger.info("Received request to stream ticket changes");
+    return ticketFeedService.subscribe(assignedToUserId, status, lastEventId);
   }
 
   /**
@@ -98,32 +261,146 @@ public class TicketController {
     return result;
   }
 
+  /**
+   * Retrieves the current state of a ticket as JSON from its cached encoding; used for JSON clients
+   * unless a past state or an archived ticket is requested.
+   *
+   * @param id the ticket ID
+   * @return the JSON ticket DTO
+   */
+  @GetMapping(
+      value = "/{id}",
+      params = {"!asOf", "!archived"},
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public byte[] getTicketJson(@PathVariable String id) {
+    logger.info("Received request to get ticket id: {}", id);
+    return ticketService.getTicketJson(id);
+  }
+
+  /**
+   * Retrieves a ticket, optionally as it was at a past time.
+   *
+   * @param id the ticket ID
+   * @param asOf (optional) ISO-8601 date-time to rebuild the ticket state at
+   * @param archived whether to read the ticket from the archive
+   * @return the ticket DTO
+   */
+  @GetMapping("/{id}")
+  public TicketDto getTicket(
+      @PathVariable String id,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          Date asOf,
+      @RequestParam(defaultValue = "false") boolean archived) {
+    logger.info("Received request to get ticket id: {} as of: {}", id, asOf);
+    return ticketService.getTicket(id, asOf, archived);
+  }
+
   /**
    * Retrieves the history of a ticket, optionally filtered by change type.
    *
    * @param id the ticket ID
    * @param type (optional) the change type to filter by
+   * @param archived whether to read the history of an archived ticket
    * @return list of ticket history DTOs
    */
   @GetMapping("/{id}/history")
   public List<TicketHistoryDto> getTicketHistory(
-      @PathVariable String id, @RequestParam(required = false) ChangeType type) {
+      @PathVariable String id,
+      @RequestParam(required = false) ChangeType type,
+      @RequestParam(defaultValue = "false") boolean archived) {
     logger.info("Received request to get history for ticket id: {} with type: {}", id, type);
-    List<TicketHistoryDto> result = ticketService.getTicketHistory(id, type);
+    List<TicketHistoryDto> result = ticketService.getTicketHistory(id, type, archived);
     logger.debug("Ticket history result: {}", result);
     return result;
   }
 
   /**
-   * Bulk imports tickets from a CSV file.
+   * Bulk imports tickets from a CSV file, skipping rows that were already imported and rejecting
+   * invalid rows.
+   *
+   * <p>A gzip- or zstd-compressed file is detected from its first bytes and decompressed while it
+   * is parsed.
    *
    * @param file the CSV file containing tickets
+   * @param idempotencyKey (optional) key identifying the file across retries; a completed import
+   *     with the same key is not run again
+   * @param maxErrors (optional) number of rows that can be rejected before the import stops
+   * @param autoAssign whether to assign each imported ticket to the least-loaded support user
+   * @return the number of imported, skipped and rejected rows; with status 422 if more rows than
+   *     <code>maxErrors</code> were rejected
    */
   @PostMapping(value = "/bulkimport", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-  public void bulkImport(@RequestPart(required = true) MultipartFile file) {
+  public ResponseEntity<ImportResultDto> bulkImport(
+      @RequestPart(required = true) MultipartFile file,
+      @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+      @RequestParam(required = false) Integer maxErrors,
+      @RequestParam(defaultValue = "false") boolean autoAssign) {
     logger.info(
         "Received request to bulk import tickets from file: {}", file.getOriginalFilename());
-    ticketService.importTickets(file);
+    ImportResultDto result =
+        ticketImportService.importTickets(file, idempotencyKey, maxErrors, autoAssign);
     logger.info("Bulk import completed for file: {}", file.getOriginalFilename());
+    return importResponse(result);
+  }
+
+  /**
+   * Bulk imports tickets from CSV sent as the raw request body, parsing it while it is received.
+   *
+   * <p>Unlike the multipart upload, the body is neither buffered nor written to a temporary file
+   * first, and it is not limited by the multipart size limits. A gzip- or zstd-compressed body,
+   * declared by <code>Content-Encoding</code> or detected from its first bytes, is decompressed
+   * while it is parsed.
+   *
+   * @param body the request body
+   * @param contentEncoding (optional) the content encoding of the body
+   * @param idempotencyKey (optional) key identifying the file across retries; a completed import
+   *     with the same key is not run again
+   * @param maxErrors (optional) number of rows that can be rejected before the import stops
+   * @param autoAssign whether to assign each imported ticket to the least-loaded support user
+   * @return the number of imported, skipped and rejected rows; with status 422 if more rows than
+   *     <code>maxErrors</code> were rejected
+   */
+  @PostMapping(
+      value = "/bulkimport",
+      consumes = {"text/csv", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+  public ResponseEntity<ImportResultDto> bulkImportBody(
+      InputStream body,
+      @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false)
+          String contentEncoding,
+      @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+      @RequestParam(required = false) Integer maxErrors,
+      @RequestParam(defaultValue = "false") boolean autoAssign) {
+    logger.info("Received request to bulk import tickets from the request body");
+    ImportResultDto result =
+        ticketImportService.importTickets(
+            () -> body, "request body", contentEncoding, idempotencyKey, maxErrors, autoAssign);
+    logger.info("Bulk import completed for the request body");
+    return importResponse(result);
+  }
+
+  /**
+   * Downloads the rows rejected by a bulk import as CSV.
+   *
+   * @param id the import ID, as returned by the import
+   * @param response the response to write the CSV to
+   * @throws IOException if writing the response fails
+   */
+  @GetMapping("/bulkimport/{id}/rejects")
+  public void getImportRejects(@PathVariable String id, HttpServletResponse response)
+      throws IOException {
+    logger.info("Received request to download rejected rows of import: {}", id);
+    response.setContentType("text/csv;charset=UTF-8");
+    response.setHeader(
+        HttpHeaders.CONTENT_DISPOSITION,
+        ContentDisposition.attachment().filename("rejects.csv").build().toString());
+    ticketImportService.exportRejects(id, response.getOutputStream());
+  }
+
+  private static ResponseEntity<ImportResultDto> importResponse(ImportResultDto result) {
+    HttpStatus status =
+        result.getState() == ImportRequest.State.FAILED
+            ? HttpStatus.UNPROCESSABLE_ENTITY
+            : HttpStatus.OK;
+    return ResponseEntity.status(status).body(result);
   }
 }
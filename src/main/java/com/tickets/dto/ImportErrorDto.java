@@ -0,0 +1,18 @@
+package com.tickets.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportErrorDto {
+
+  /** Line of the file on which the rejected row started. */
+  private long line;
+
+  private String message;
+}
@@ -0,0 +1,35 @@
+package com.tickets.dto;
+
+import com.tickets.model.ImportRequest;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportResultDto {
+
+  /** ID of the import: the idempotency key if the client sent one, a generated ID otherwise. */
+  private String id;
+
+  private ImportRequest.State state;
+
+  /** Number of imported rows. */
+  private long imported;
+
+  /** Number of rows skipped because an identical ticket was already imported. */
+  private long duplicates;
+
+  /** Number of rows rejected as invalid; all of them are in the rejects file of the import. */
+  private long rejected;
+
+  /** The first rejected rows. */
+  private List<ImportErrorDto> errors;
+
+  /** Reason the import stopped, if it failed. */
+  private String error;
+}
@@ -0,0 +1,25 @@
+package com.tickets.dto;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TicketChangeDto {
+
+  public static enum Kind {
+    CREATED,
+    UPDATED,
+    IMPORTED,
+    ESCALATED;
+  }
+
+  private Kind kind;
+  private TicketDto ticket;
+  private List<TicketHistoryDto> history;
+}
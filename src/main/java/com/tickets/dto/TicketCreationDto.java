@@ -13,4 +13,7 @@ public class TicketCreationDto {
 
   private String subject;
   private String description;
+
+  /** Whether to assign the ticket to the least-loaded support user. */
+  private boolean autoAssign;
 }
@@ -16,4 +16,6 @@ public class TicketHistoryDto {
   private Date updateDate;
   private String updatedBy;
   private String text;
+  private String oldValue;
+  private String newValue;
 }
@@ -16,4 +16,7 @@ public class TicketUpdateDto {
   private String assignedTo;
   private Status status;
   private String comment;
+
+  /** Whether to assign the ticket to the least-loaded support user, unless assignedTo is set. */
+  private boolean autoAssign;
 }
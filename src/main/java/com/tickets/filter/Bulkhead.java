@@ -0,0 +1,201 @@
+package com.tickets.filter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit with a bounded wait queue and a latency-gradient adaptive limit.
+ *
+ * <p>At most {@link #getLimit()} calls run at the same time; up to <code>maxQueued</code> more wait
+ * for a slot for at most the queue timeout, and the rest are rejected. The limit starts at <code>
+ * maxConcurrent</code> and follows the ratio between a slow-moving baseline latency and the recent
+ * latency: when calls get slower than the baseline allows, the limit shrinks towards one, and it
+ * grows back while latency stays close to the baseline.
+ */
+public class Bulkhead {
+
+  /** Recent latency increase tolerated before the limit shrinks. */
+  private static final double TOLERANCE = 1.5;
+
+  private static final double SHORT_WEIGHT = 0.2;
+  private static final double LONG_WEIGHT = 0.01;
+  private static final double SMOOTHING = 0.2;
+
+  private final String name;
+  private final int maxConcurrent;
+  private final int maxQueued;
+  private final long queueTimeoutNanos;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition released = lock.newCondition();
+
+  /** Fields below are guarded by <code>lock</code>. */
+  private double limit;
+
+  private double shortRtt;
+  private double longRtt;
+  private int inFlight;
+  private int queued;
+
+  private final AtomicLong queuedTotal = new AtomicLong();
+  private final AtomicLong shedTotal = new AtomicLong();
+
+  /**
+   * Creates a bulkhead.
+   *
+   * @param name the name of the bulkhead, used in metrics
+   * @param maxConcurrent the maximum number of concurrent calls
+   * @param maxQueued the maximum number of calls waiting for a slot
+   * @param queueTimeoutMillis how long a call waits for a slot before it is rejected
+   */
+  public Bulkhead(String name, int maxConcurrent, int maxQueued, long queueTimeoutMillis) {
+    this.name = name;
+    this.maxConcurrent = maxConcurrent;
+    this.maxQueued = maxQueued;
+    this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis);
+    this.limit = maxConcurrent;
+  }
+
+  /**
+   * Takes a slot, waiting in the queue if all slots are taken and the queue is not full.
+   *
+   * @return true if a slot was taken and must be released with {@link #release}, false if the call
+   *     is rejected
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean tryAcquire() throws InterruptedException {
+    lock.lock();
+    try {
+      if (inFlight < (int) limit) {
+        inFlight++;
+        return true;
+      }
+      if (queued >= maxQueued) {
+        shedTotal.incrementAndGet();
+        return false;
+      }
+      queued++;
+      queuedTotal.incrementAndGet();
+      try {
+        long remaining = queueTimeoutNanos;
+        while (inFlight >= (int) limit) {
+          if (remaining <= 0) {
+            shedTotal.incrementAndGet();
+            return false;
+          }
+          remaining = released.awaitNanos(remaining);
+        }
+        inFlight++;
+        return true;
+      } finally {
+        queued--;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Releases a slot and adapts the limit to the latency of the call.
+   *
+   * @param latencyNanos how long the call took
+   */
+  public void release(long latencyNanos) {
+    lock.lock();
+    try {
+      inFlight--;
+      sample(latencyNanos);
+      released.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void sample(long latencyNanos) {
+    if (longRtt == 0) {
+      shortRtt = latencyNanos;
+      longRtt = latencyNanos;
+      return;
+    }
+    shortRtt = shortRtt * (1 - SHORT_WEIGHT) + latencyNanos * SHORT_WEIGHT;
+    longRtt = longRtt * (1 - LONG_WEIGHT) + latencyNanos * LONG_WEIGHT;
+    if (longRtt > 2 * shortRtt) {
+      // Latency dropped for good, let the baseline follow faster
+      longRtt *= 0.95;
+    }
+    double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+    double newLimit = limit * gradient + Math.sqrt(limit);
+    limit = Math.max(1, Math.min(maxConcurrent, limit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+  }
+
+  /**
+   * Returns the name of the bulkhead.
+   *
+   * @return the name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the current concurrency limit.
+   *
+   * @return the limit, between one and the maximum number of concurrent calls
+   */
+  public int getLimit() {
+    lock.lock();
+    try {
+      return (int) limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of running calls.
+   *
+   * @return the number of calls holding a slot
+   */
+  public int getInFlight() {
+    lock.lock();
+    try {
+      return inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of waiting calls.
+   *
+   * @return the number of calls in the queue
+   */
+  public int getQueued() {
+    lock.lock();
+    try {
+      return queued;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of calls that had to wait for a slot since startup.
+   *
+   * @return the number of queued calls
+   */
+  public long getQueuedTotal() {
+    return queuedTotal.get();
+  }
+
+  /**
+   * Returns the number of rejected calls since startup.
+   *
+   * @return the number of shed calls
+   */
+  public long getShedTotal() {
+    return shedTotal.get();
+  }
+}
@@ -0,0 +1,143 @@
+package com.tickets.filter;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Filter running each group of ticket endpoints behind its own {@link Bulkhead}.
+ *
+ * <p>Bulk imports, exports, full listings, other reads and writes are limited separately, so a
+ * burst of heavy calls cannot take the threads and database connections needed by interactive
+ * updates.
+ * Calls rejected by their bulkhead get <code>503</code> with a <code>Retry-After</code> header. The
+ * change feed is not limited since its connections are long-lived by design.
+ */
+public class BulkheadFilter extends OncePerRequestFilter {
+
+  private static final Logger logger = LoggerFactory.getLogger(BulkheadFilter.class);
+
+  /** Names of the bulkheads, one per group of endpoints. */
+  public static final String IMPORT = "import";
+
+  public static final String EXPORT = "export";
+  public static final String LIST = "list";
+  public static final String READ = "read";
+  public static final String WRITE = "write";
+
+  private static final String BASE_PATH = "/api/tickets";
+
+  private final Map<String, Bulkhead> bulkheads;
+
+  /** Value of the Retry-After header of rejected calls, in seconds. */
+  private final int retryAfter;
+
+  /**
+   * Creates the filter and registers the metrics of its bulkheads.
+   *
+   * @param bulkheads the bulkheads by name; groups without a bulkhead are not limited
+   * @param retryAfter value of the Retry-After header of rejected calls, in seconds
+   * @param meterRegistry the meter registry
+   */
+  public BulkheadFilter(
+      Map<String, Bulkhead> bulkheads, int retryAfter, MeterRegistry meterRegistry) {
+    this.bulkheads = bulkheads;
+    this.retryAfter = retryAfter;
+    for (Bulkhead bulkhead : bulkheads.values()) {
+      String name = bulkhead.getName();
+      Gauge.builder("tickets.bulkhead.limit", bulkhead, Bulkhead::getLimit)
+          .tag("bulkhead", name)
+          .register(meterRegistry);
+      Gauge.builder("tickets.bulkhead.in-flight", bulkhead, Bulkhead::getInFlight)
+          .tag("bulkhead", name)
+          .register(meterRegistry);
+      Gauge.builder("tickets.bulkhead.queued", bulkhead, Bulkhead::getQueued)
+          .tag("bulkhead", name)
+          .register(meterRegistry);
+      FunctionCounter.builder("tickets.bulkhead.queued.total", bulkhead, Bulkhead::getQueuedTotal)
+          .tag("bulkhead", name)
+          .register(meterRegistry);
+      FunctionCounter.builder("tickets.bulkhead.shed", bulkhead, Bulkhead::getShedTotal)
+          .tag("bulkhead", name)
+          .register(meterRegistry);
+    }
+  }
+
+  /**
+   * Runs the request inside the bulkhead of its endpoint group, or rejects it.
+   *
+   * @param request the request
+   * @param response the response
+   * @param filterChain the filter chain
+   */
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    Bulkhead bulkhead = bulkheads.get(group(request));
+    if (bulkhead == null) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+    boolean acquired;
+    try {
+      acquired = bulkhead.tryAcquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      acquired = false;
+    }
+    if (!acquired) {
+      logger.warn(
+          "Shedding {} {} from bulkhead {}",
+          request.getMethod(),
+          request.getRequestURI(),
+          bulkhead.getName());
+      response.setHeader("Retry-After", Integer.toString(retryAfter));
+      response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Overloaded, retry later");
+      return;
+    }
+    long start = System.nanoTime();
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      bulkhead.release(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Returns the endpoint group of a request.
+   *
+   * @param request the request
+   * @return the bulkhead name, or null if the request is not limited
+   */
+  static String group(HttpServletRequest request) {
+    String path = request.getRequestURI().substring(request.getContextPath().length());
+    if (!path.equals(BASE_PATH) && !path.startsWith(BASE_PATH + "/")) {
+      return null;
+    }
+    String method = request.getMethod();
+    if ("GET".equals(method) || "HEAD".equals(method)) {
+      if (path.equals(BASE_PATH + "/stream")) {
+        return null;
+      }
+      if (path.equals(BASE_PATH + "/export") || path.endsWith("/rejects")) {
+        return EXPORT;
+      }
+      return path.equals(BASE_PATH) ? LIST : READ;
+    }
+    if (path.startsWith(BASE_PATH + "/bulkimport")) {
+      return IMPORT;
+    }
+    return WRITE;
+  }
+}
@@ -0,0 +1,83 @@
+package com.tickets.filter;
+
+import com.tickets.configuration.ReplicaRoutingDataSource;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Set;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Filter keeping the reads of a client on the primary database for a while after it wrote.
+ *
+ * <p>Every write request (any method other than GET, HEAD and OPTIONS) sets a cookie holding the
+ * end of the window. Requests carrying an unexpired cookie read from the primary, so a client
+ * always sees its own changes even while the replica lags behind.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+  /** Name of the cookie holding the end of the window, in epoch milliseconds. */
+  public static final String COOKIE_NAME = "tickets-primary-until";
+
+  private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+  /** Duration of the window in milliseconds. */
+  private final long window;
+
+  /**
+   * Creates the filter.
+   *
+   * @param window duration of the read-your-writes window in milliseconds; 0 disables it
+   */
+  public ReadYourWritesFilter(long window) {
+    this.window = window;
+  }
+
+  /**
+   * Opens the window on writes and pins the reads of clients inside their window to the primary.
+   *
+   * @param request the request
+   * @param response the response
+   * @param filterChain the filter chain
+   */
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    long now = System.currentTimeMillis();
+    boolean write = !SAFE_METHODS.contains(request.getMethod());
+    if (write && window > 0) {
+      // Set before the chain runs, the response may be committed afterwards
+      Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(now + window));
+      cookie.setPath("/");
+      cookie.setHttpOnly(true);
+      cookie.setMaxAge((int) Math.ceil(window / 1000.0));
+      response.addCookie(cookie);
+    }
+    ReplicaRoutingDataSource.setPrimaryOnly(write || getPrimaryUntil(request) > now);
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      ReplicaRoutingDataSource.setPrimaryOnly(false);
+    }
+  }
+
+  private long getPrimaryUntil(HttpServletRequest request) {
+    if (request.getCookies() == null) {
+      return 0;
+    }
+    for (Cookie cookie : request.getCookies()) {
+      if (COOKIE_NAME.equals(cookie.getName())) {
+        try {
+          return Long.parseLong(cookie.getValue());
+        } catch (NumberFormatException e) {
+          return 0;
+        }
+      }
+    }
+    return 0;
+  }
+}
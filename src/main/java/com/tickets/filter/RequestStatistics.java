@@ -0,0 +1,103 @@
+package com.tickets.filter;
+
+/**
+ * SQL statistics of the HTTP request handled by the current thread.
+ *
+ * <p>Hibernate reports every prepared statement, loaded entity, fetched collection and flush
+ * through the static hooks; they are counted only while {@link StatementAccountingFilter} has a
+ * request open on the thread. Work done on other threads, such as import chunks committed in the
+ * background, is not attributed to any request.
+ */
+public class RequestStatistics {
+
+  private static final ThreadLocal<RequestStatistics> CURRENT = new ThreadLocal<>();
+
+  private long statements;
+  private long entitiesLoaded;
+  private long collectionsFetched;
+  private long flushes;
+
+  /**
+   * Starts counting for the current thread.
+   *
+   * @return the statistics of the request
+   */
+  public static RequestStatistics begin() {
+    RequestStatistics statistics = new RequestStatistics();
+    CURRENT.set(statistics);
+    return statistics;
+  }
+
+  /** Stops counting for the current thread. */
+  public static void end() {
+    CURRENT.remove();
+  }
+
+  /** Counts a prepared JDBC statement. */
+  public static void statementPrepared() {
+    RequestStatistics statistics = CURRENT.get();
+    if (statistics != null) {
+      statistics.statements++;
+    }
+  }
+
+  /** Counts an entity loaded from the database. */
+  public static void entityLoaded() {
+    RequestStatistics statistics = CURRENT.get();
+    if (statistics != null) {
+      statistics.entitiesLoaded++;
+    }
+  }
+
+  /** Counts a collection initialized with a separate select. */
+  public static void collectionFetched() {
+    RequestStatistics statistics = CURRENT.get();
+    if (statistics != null) {
+      statistics.collectionsFetched++;
+    }
+  }
+
+  /** Counts a flush of the persistence context. */
+  public static void flushed() {
+    RequestStatistics statistics = CURRENT.get();
+    if (statistics != null) {
+      statistics.flushes++;
+    }
+  }
+
+  /**
+   * Returns the number of prepared statements.
+   *
+   * @return the number of statements
+   */
+  public long getStatements() {
+    return statements;
+  }
+
+  /**
+   * Returns the number of loaded entities.
+   *
+   * @return the number of entities
+   */
+  public long getEntitiesLoaded() {
+    return entitiesLoaded;
+  }
+
+  /**
+   * Returns the number of collections initialized with a separate select.
+   *
+   * @return the number of collections
+   */
+  public long getCollectionsFetched() {
+    return collectionsFetched;
+  }
+
+  /**
+   * Returns the number of flushes.
+   *
+   * @return the number of flushes
+   */
+  public long getFlushes() {
+    return flushes;
+  }
+}
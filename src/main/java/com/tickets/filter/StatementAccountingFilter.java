@@ -0,0 +1,110 @@
+package com.tickets.filter;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Filter recording the SQL work of each request.
+ *
+ * <p>The number of statements, loaded entities, separately fetched collections and flushes of a
+ * request are recorded as histograms tagged with the method and endpoint pattern. A request that
+ * runs more than the configured number of statements, typically an N+1 query, is logged; with
+ * <code>failOverMax</code> (meant for tests) it fails instead.
+ */
+public class StatementAccountingFilter extends OncePerRequestFilter {
+
+  private static final Logger logger = LoggerFactory.getLogger(StatementAccountingFilter.class);
+
+  /** Endpoint tag of requests not matched by any handler. */
+  private static final String UNKNOWN = "UNKNOWN";
+
+  private final MeterRegistry meterRegistry;
+
+  /** Maximum number of statements per request; 0 disables the check. */
+  private final int maxStatements;
+
+  /** Whether a request above the maximum fails instead of being logged. */
+  private final boolean failOverMax;
+
+  /**
+   * Creates the filter.
+   *
+   * @param meterRegistry the meter registry
+   * @param maxStatements maximum number of statements per request; 0 disables the check
+   * @param failOverMax whether a request above the maximum fails instead of being logged
+   */
+  public StatementAccountingFilter(
+      MeterRegistry meterRegistry, int maxStatements, boolean failOverMax) {
+    this.meterRegistry = meterRegistry;
+    this.maxStatements = maxStatements;
+    this.failOverMax = failOverMax;
+  }
+
+  /**
+   * Counts the SQL work of the request, records it and checks it against the maximum.
+   *
+   * @param request the request
+   * @param response the response
+   * @param filterChain the filter chain
+   * @throws IllegalStateException if the request ran more statements than the maximum and <code>
+   *     failOverMax</code> is set
+   */
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    RequestStatistics statistics = RequestStatistics.begin();
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      RequestStatistics.end();
+      record(request, statistics);
+    }
+    if (maxStatements > 0 && statistics.getStatements() > maxStatements) {
+      String message =
+          String.format(
+              "%s %s ran %d SQL statements (max %d), loaded %d entities, fetched %d collections"
+                  + " and flushed %d times",
+              request.getMethod(),
+              request.getRequestURI(),
+              statistics.getStatements(),
+              maxStatements,
+              statistics.getEntitiesLoaded(),
+              statistics.getCollectionsFetched(),
+              statistics.getFlushes());
+      if (failOverMax) {
+        throw new IllegalStateException(message);
+      }
+      logger.warn(message);
+    }
+  }
+
+  private void record(HttpServletRequest request, RequestStatistics statistics) {
+    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    String endpoint = pattern == null ? UNKNOWN : pattern.toString();
+    summary("tickets.request.statements", request, endpoint).record(statistics.getStatements());
+    summary("tickets.request.entities.loaded", request, endpoint)
+        .record(statistics.getEntitiesLoaded());
+    summary("tickets.request.collections.fetched", request, endpoint)
+        .record(statistics.getCollectionsFetched());
+    summary("tickets.request.flushes", request, endpoint).record(statistics.getFlushes());
+  }
+
+  private DistributionSummary summary(String name, HttpServletRequest request, String endpoint) {
+    return DistributionSummary.builder(name)
+        .tag("method", request.getMethod())
+        .tag("uri", endpoint)
+        .publishPercentileHistogram()
+        .maximumExpectedValue(10000.0)
+        .register(meterRegistry);
+  }
+}
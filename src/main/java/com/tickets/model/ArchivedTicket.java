@@ -0,0 +1,69 @@
+package com.tickets.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import java.util.Date;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.springframework.data.domain.Persistable;
+
+/** Closed ticket moved out of the hot <code>tickets</code> table by the archive job. */
+@Table(name = "tickets_archive")
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ArchivedTicket implements Persistable<UUID> {
+
+  @Id private UUID id;
+
+  private String subject;
+
+  @Column(columnDefinition = "text")
+  private String description;
+
+  private UUID createdBy;
+  private UUID modifiedBy;
+  private UUID assignedTo;
+
+  private Date createdAt;
+  private Date modifiedAt;
+
+  @Enumerated(EnumType.STRING)
+  private Status status;
+
+  private Long revision;
+
+  private Date archivedAt;
+
+  /** Whether the entity is not stored yet; its ID is assigned, so saving it must not merge. */
+  @Transient
+  @Builder.Default
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private boolean newEntity = true;
+
+  @Override
+  public boolean isNew() {
+    return newEntity;
+  }
+
+  @PostLoad
+  @PostPersist
+  void markStored() {
+    newEntity = false;
+  }
+}
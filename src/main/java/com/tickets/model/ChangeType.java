@@ -5,5 +5,6 @@ public enum ChangeType {
   DESCRIPTION,
   ASSIGNED_TO,
   STATUS,
-  COMMENT;
+  COMMENT,
+  ESCALATION;
 }
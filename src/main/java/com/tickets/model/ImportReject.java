@@ -0,0 +1,40 @@
+package com.tickets.model;
+
+import com.tickets.util.GeneratedUuidV7;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Table(name = "import_rejects")
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportReject {
+
+  @Id
+  @GeneratedUuidV7
+  private UUID id;
+
+  /** ID of the import the row was rejected from. */
+  @Column(name = "import_id")
+  private String importId;
+
+  /** Line of the file on which the row started. */
+  private Long line;
+
+  /** The rejected row, encoded as a CSV record. */
+  @Column(columnDefinition = "text")
+  private String record;
+
+  /** Reason the row was rejected. */
+  @Column(columnDefinition = "text")
+  private String error;
+}
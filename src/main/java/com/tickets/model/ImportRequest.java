@@ -0,0 +1,47 @@
+package com.tickets.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.util.Date;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Table(name = "import_requests")
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportRequest {
+
+  public static enum State {
+    IN_PROGRESS,
+    COMPLETED,
+    FAILED;
+  }
+
+  /** Idempotency key sent by the client with the file, or an ID generated for the import. */
+  @Id private String idempotencyKey;
+
+  @Enumerated(EnumType.STRING)
+  private State state;
+
+  /** Number of rows imported so far. */
+  private Long imported;
+
+  /** Number of rows skipped as duplicates so far. */
+  private Long duplicates;
+
+  /** Number of rows rejected as invalid so far. */
+  private Long rejected;
+
+  private Date createdAt;
+
+  /** Time of the last committed chunk; an import without progress for long is taken over. */
+  private Date updatedAt;
+}
@@ -0,0 +1,25 @@
+package com.tickets.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.util.Date;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Table(name = "outbox_checkpoints")
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OutboxCheckpoint {
+
+  @Id private String sink;
+
+  private Long lastEventId;
+
+  private Date updatedAt;
+}
@@ -1,21 +1,27 @@
 package com.tickets.model;
 
+import com.tickets.util.GeneratedUuidV7;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.springframework.data.domain.Persistable;
 
 @Table(name = "tickets")
 @Entity
@@ -23,10 +29,10 @@ import lombok.NoArgsConstructor;
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
-public class Ticket {
+public class Ticket implements Persistable<UUID> {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.UUID)
+  @GeneratedUuidV7
   private UUID id;
 
   private String subject;
@@ -44,5 +50,33 @@ public class Ticket {
   @Enumerated(EnumType.STRING)
   private Status status;
 
+  /** Number of changes recorded in the ticket history. */
+  private Long revision;
+
+  /** Hash of the CSV row the ticket was imported from; null for tickets not imported. */
+  @Column(name = "import_hash")
+  private Long importHash;
+
   @OneToMany private List<TicketHistory> ticketHistory;
+
+  /**
+   * Whether the entity is not stored yet. Imported tickets get their ID before they are saved, to
+   * pick their shard, so saving them must not merge.
+   */
+  @Transient
+  @Builder.Default
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private boolean newEntity = true;
+
+  @Override
+  public boolean isNew() {
+    return newEntity;
+  }
+
+  @PostLoad
+  @PostPersist
+  void markStored() {
+    newEntity = false;
+  }
 }
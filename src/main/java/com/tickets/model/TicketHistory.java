@@ -1,10 +1,10 @@
 package com.tickets.model;
 
+import com.tickets.util.GeneratedUuidV7;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -24,7 +24,7 @@ import lombok.NoArgsConstructor;
 public class TicketHistory {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.UUID)
+  @GeneratedUuidV7
   private UUID id;
 
   @Enumerated(EnumType.STRING)
@@ -34,5 +34,15 @@ public class TicketHistory {
 
   @ManyToOne private User updatedBy;
 
+  /** Free text of comments, and the "old -> new" text of entries written before typed values. */
   private String text;
+
+  @Column(columnDefinition = "text")
+  private String oldValue;
+
+  @Column(columnDefinition = "text")
+  private String newValue;
+
+  /** Compressed {@link com.tickets.util.TextDelta} replacing old/new values of large texts. */
+  private byte[] delta;
 }
@@ -0,0 +1,44 @@
+package com.tickets.model;
+
+import com.tickets.util.GeneratedUuidV7;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.util.Date;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Table(name = "ticket_snapshots")
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TicketSnapshot {
+
+  @Id
+  @GeneratedUuidV7
+  private UUID id;
+
+  private UUID ticketId;
+
+  private Long revision;
+
+  private Date takenAt;
+
+  private String subject;
+
+  @Column(columnDefinition = "text")
+  private String description;
+
+  @Enumerated(EnumType.STRING)
+  private Status status;
+
+  private UUID assignedTo;
+}
@@ -0,0 +1,14 @@
+package com.tickets.repository;
+
+import com.tickets.model.ArchivedTicketHistory;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ArchivedTicketHistoryRepository
+    extends JpaRepository<ArchivedTicketHistory, UUID> {
+
+  public List<ArchivedTicketHistory> findAllByTicketIdOrderByUpdateDate(UUID ticketId);
+}
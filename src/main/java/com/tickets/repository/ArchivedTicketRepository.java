@@ -0,0 +1,18 @@
+package com.tickets.repository;
+
+import com.tickets.model.ArchivedTicket;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ArchivedTicketRepository extends JpaRepository<ArchivedTicket, UUID> {
+
+  public List<ArchivedTicket> findAllByAssignedTo(UUID assignedTo);
+
+  public List<ArchivedTicket> findAllByAssignedTo(UUID assignedTo, Pageable pageable);
+
+  public List<ArchivedTicket> findAllBy(Pageable pageable);
+}
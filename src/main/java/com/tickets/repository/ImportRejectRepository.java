@@ -0,0 +1,36 @@
+package com.tickets.repository;
+
+import com.tickets.model.ImportReject;
+import jakarta.persistence.QueryHint;
+import java.util.Date;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface ImportRejectRepository extends JpaRepository<ImportReject, UUID> {
+
+  /** Streams the rejected rows of an import in file order; must run inside a transaction. */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+  public Stream<ImportReject> findAllByImportIdOrderByLine(String importId);
+
+  /** Deletes the rejected rows of an import, before it is resumed. */
+  @Transactional
+  @Modifying
+  @Query("delete from ImportReject r where r.importId = :importId")
+  public int deleteByImportId(String importId);
+
+  /** Deletes the rejected rows of imports last updated before a time. */
+  @Transactional
+  @Modifying
+  @Query(
+      "delete from ImportReject r where r.importId in"
+          + " (select i.idempotencyKey from ImportRequest i where i.updatedAt < :before)")
+  public int deleteByImportUpdatedBefore(Date before);
+}
@@ -0,0 +1,51 @@
+package com.tickets.repository;
+
+import com.tickets.model.ImportRequest;
+import java.util.Date;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface ImportRequestRepository extends JpaRepository<ImportRequest, String> {
+
+  /**
+   * Registers a new import for an idempotency key, unless the key is already known.
+   *
+   * @return 1 if the import was registered, 0 if the key exists
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      value =
+          "insert into import_requests"
+              + " (idempotency_key, state, imported, duplicates, rejected, created_at, updated_at)"
+              + " values (:key, 'IN_PROGRESS', 0, 0, 0, :now, :now) on conflict do nothing",
+      nativeQuery = true)
+  public int claim(String key, Date now);
+
+  /**
+   * Takes over a failed import, or one that made no progress since a given time. The counts start
+   * over, since the rows already imported are skipped as duplicates by the new attempt.
+   *
+   * @return 1 if the import was taken over, 0 otherwise
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "update ImportRequest r set r.state = com.tickets.model.ImportRequest.State.IN_PROGRESS,"
+          + " r.imported = 0, r.duplicates = 0,"
+          + " r.rejected = 0, r.updatedAt = :now where r.idempotencyKey = :key"
+          + " and (r.state = com.tickets.model.ImportRequest.State.FAILED"
+          + " or (r.state = com.tickets.model.ImportRequest.State.IN_PROGRESS"
+          + " and r.updatedAt < :staleBefore))")
+  public int reclaim(String key, Date now, Date staleBefore);
+
+  /** Deletes the imports last updated before a time; their rejected rows must be deleted first. */
+  @Transactional
+  @Modifying
+  @Query("delete from ImportRequest r where r.updatedAt < :before")
+  public int deleteUpdatedBefore(Date before);
+}
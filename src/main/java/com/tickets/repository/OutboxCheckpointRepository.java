@@ -0,0 +1,8 @@
+package com.tickets.repository;
+
+import com.tickets.model.OutboxCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxCheckpointRepository extends JpaRepository<OutboxCheckpoint, String> {}
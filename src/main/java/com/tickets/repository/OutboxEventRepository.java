@@ -0,0 +1,24 @@
+package com.tickets.repository;
+
+import com.tickets.model.OutboxEvent;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+  public List<OutboxEvent> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+  @Query("select coalesce(max(e.id), 0) from OutboxEvent e")
+  public long findMaxId();
+
+  @Transactional
+  @Modifying
+  @Query("delete from OutboxEvent e where e.id <= :id")
+  public int deleteUpTo(Long id);
+}
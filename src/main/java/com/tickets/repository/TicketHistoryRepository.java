@@ -1,9 +1,30 @@
 package com.tickets.repository;
 
+import com.tickets.model.ChangeType;
 import com.tickets.model.TicketHistory;
+import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface TicketHistoryRepository extends JpaRepository<TicketHistory, UUID> {}
+public interface TicketHistoryRepository extends JpaRepository<TicketHistory, UUID> {
+
+  @Query(
+      "select h from Ticket t join t.ticketHistory h where t.id = :ticketId"
+          + " and h.updateDate > :after and h.updateDate <= :until order by h.updateDate")
+  public List<TicketHistory> findByTicketIdAndUpdateDateBetween(
+      UUID ticketId, Date after, Date until);
+
+  @Query(
+      "select max(h.updateDate) from Ticket t join t.ticketHistory h"
+          + " where t.id = :ticketId and h.updateDate <= :until")
+  public Date findLastUpdateDate(UUID ticketId, Date until);
+
+  @Query(
+      "select max(h.updateDate) from Ticket t join t.ticketHistory h"
+          + " where t.id = :ticketId and h.type = :type")
+  public Date findLastUpdateDateByType(UUID ticketId, ChangeType type);
+}
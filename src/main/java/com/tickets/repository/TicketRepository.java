@@ -1,13 +1,116 @@
 package com.tickets.repository;
 
+import com.tickets.model.ChangeType;
+import com.tickets.model.Status;
 import com.tickets.model.Ticket;
+import com.tickets.model.User;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface TicketRepository extends JpaRepository<Ticket, UUID> {
+public interface TicketRepository extends JpaRepository<Ticket, UUID>, TicketRepositoryCustom {
 
   public List<Ticket> findAllByAssignedTo_Id(UUID id);
+
+  public List<Ticket> findAllByAssignedTo_Id(UUID id, Pageable pageable);
+
+  public List<Ticket> findAllBy(Pageable pageable);
+
+  /** Loads a ticket and locks its row until the end of the transaction. */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select t from Ticket t where t.id = :id")
+  public Optional<Ticket> findByIdForUpdate(UUID id);
+
+  /** Projection with the columns needed to rebuild the in-memory ticket index. */
+  public interface IndexEntry {
+    UUID getId();
+
+    Status getStatus();
+
+    UUID getAssignedToId();
+  }
+
+  @Query(
+      "select t.id as id, t.status as status, a.id as assignedToId"
+          + " from Ticket t left join t.assignedTo a order by t.createdAt")
+  public List<IndexEntry> findAllIndexEntries();
+
+  @Query(
+      "select t.id as id, t.status as status, a.id as assignedToId"
+          + " from Ticket t join t.assignedTo a where t.status in :statuses and a.role = :role")
+  public List<IndexEntry> findAssignedIndexEntries(Collection<Status> statuses, User.Role role);
+
+  /** Projection with the times needed to schedule the SLA deadline of a ticket. */
+  public interface SlaEntry {
+    UUID getId();
+
+    Status getStatus();
+
+    /** Time of the last status change, or of the creation if the status never changed. */
+    Date getSince();
+
+    /** Time of the last escalation, or null. */
+    Date getEscalatedAt();
+  }
+
+  @Query(
+      "select t.id as id, t.status as status,"
+          + " coalesce((select max(h.updateDate) from Ticket s join s.ticketHistory h"
+          + " where s.id = t.id and h.type = :statusChange), t.createdAt) as since,"
+          + " (select max(h.updateDate) from Ticket s join s.ticketHistory h"
+          + " where s.id = t.id and h.type = :escalation) as escalatedAt"
+          + " from Ticket t where t.status in :statuses")
+  public List<SlaEntry> findSlaEntries(
+      Collection<Status> statuses, ChangeType statusChange, ChangeType escalation);
+
+  /** Projection with the columns of the CSV import and export format. */
+  public interface CsvRow {
+    String getSubject();
+
+    String getDescription();
+
+    Status getStatus();
+  }
+
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+  @Query(
+      "select t.subject as subject, t.description as description, t.status as status"
+          + " from Ticket t where (:status is null or t.status = :status)"
+          + " and (:assignedTo is null or t.assignedTo.id = :assignedTo) order by t.createdAt")
+  public Stream<CsvRow> streamCsvRows(Status status, UUID assignedTo);
+
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+  @Query("select t.importHash from Ticket t where t.importHash is not null")
+  public Stream<Long> streamImportHashes();
+
+  @Query("select t.importHash from Ticket t where t.importHash in :hashes")
+  public List<Long> findImportHashesIn(Collection<Long> hashes);
+
+  /**
+   * Selects and locks a batch of archivable tickets, skipping tickets locked by a concurrent update
+   * so that they are not archived under it.
+   */
+  @Query(
+      value =
+          "select id from tickets where status in (:statuses)"
+              + " and coalesce(modified_at, created_at) < :cutoff"
+              + " order by created_at limit :limit for update skip locked",
+      nativeQuery = true)
+  public List<UUID> findArchivableIds(Collection<String> statuses, Date cutoff, int limit);
+
+  @Query("select distinct t from Ticket t left join fetch t.ticketHistory where t.id in :ids")
+  public List<Ticket> findAllWithHistoryByIdIn(Collection<UUID> ids);
 }
@@ -0,0 +1,36 @@
+package com.tickets.repository;
+
+import jakarta.persistence.Tuple;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/** Ticket queries built at runtime, implemented by {@link TicketRepositoryImpl}. */
+public interface TicketRepositoryCustom {
+
+  /** Ticket fields that can be selected with {@link #findFields}. */
+  public static final Set<String> FIELDS =
+      Set.of(
+          "id",
+          "subject",
+          "description",
+          "createdBy",
+          "modifiedBy",
+          "assignedTo",
+          "createdAt",
+          "modifiedAt",
+          "status");
+
+  /** Fields referencing a user, selected as the user ID. */
+  public static final Set<String> USER_FIELDS = Set.of("createdBy", "modifiedBy", "assignedTo");
+
+  /**
+   * Selects only the given columns of tickets.
+   *
+   * @param fields the fields to select, each one of {@link #FIELDS}; every tuple element is
+   *     aliased with its field name
+   * @param assignedTo (optional) the assigned user ID to filter by
+   * @return one tuple per ticket
+   */
+  public List<Tuple> findFields(List<String> fields, UUID assignedTo);
+}
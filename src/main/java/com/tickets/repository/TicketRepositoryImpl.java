@@ -0,0 +1,61 @@
+package com.tickets.repository;
+
+import com.tickets.model.Ticket;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/** Criteria-based implementation of {@link TicketRepositoryCustom}. */
+public class TicketRepositoryImpl implements TicketRepositoryCustom {
+
+  private final EntityManager entityManager;
+
+  /**
+   * Constructor for dependency injection.
+   *
+   * @param entityManager the entity manager
+   */
+  public TicketRepositoryImpl(EntityManager entityManager) {
+    this.entityManager = entityManager;
+  }
+
+  /**
+   * Selects only the given columns of tickets; user references are selected as their ID through a
+   * left join, so unassigned tickets are kept.
+   *
+   * @param fields the fields to select
+   * @param assignedTo (optional) the assigned user ID to filter by
+   * @return one tuple per ticket
+   * @throws IllegalArgumentException if a field is not one of {@link #FIELDS}
+   */
+  @Override
+  public List<Tuple> findFields(List<String> fields, UUID assignedTo) {
+    CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+    Root<Ticket> ticket = query.from(Ticket.class);
+    List<Selection<?>> selections = new ArrayList<>();
+    for (String field : fields) {
+      if (!FIELDS.contains(field)) {
+        throw new IllegalArgumentException("Unknown ticket field: " + field);
+      }
+      Path<?> path =
+          USER_FIELDS.contains(field)
+              ? ticket.join(field, JoinType.LEFT).get("id")
+              : ticket.get(field);
+      selections.add(path.alias(field));
+    }
+    query.multiselect(selections);
+    if (assignedTo != null) {
+      query.where(criteriaBuilder.equal(ticket.get("assignedTo").get("id"), assignedTo));
+    }
+    return entityManager.createQuery(query).getResultList();
+  }
+}
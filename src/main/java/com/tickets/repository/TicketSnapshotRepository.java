@@ -0,0 +1,25 @@
+package com.tickets.repository;
+
+import com.tickets.model.TicketSnapshot;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TicketSnapshotRepository extends JpaRepository<TicketSnapshot, UUID> {
+
+  public Optional<TicketSnapshot> findFirstByTicketIdAndTakenAtLessThanEqualOrderByTakenAtDesc(
+      UUID ticketId, Date asOf);
+
+  public Optional<TicketSnapshot> findFirstByTicketIdAndTakenAtGreaterThanOrderByTakenAtAsc(
+      UUID ticketId, Date asOf);
+
+  @Modifying
+  @Query("delete from TicketSnapshot s where s.ticketId in :ticketIds")
+  public int deleteByTicketIdIn(Collection<UUID> ticketIds);
+}
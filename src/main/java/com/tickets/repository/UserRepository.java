@@ -10,4 +10,6 @@ import org.springframework.stereotype.Repository;
 public interface UserRepository extends JpaRepository<User, UUID> {
 
   public List<User> findByUserName(String userName);
+
+  public List<User> findAllByRole(User.Role role);
 }
@@ -0,0 +1,33 @@
+package com.tickets.service;
+
+import com.tickets.model.OutboxEvent;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/** Outbox sink writing every event to the log, useful to follow changes locally. */
+@Service
+@ConditionalOnProperty(name = "tickets.outbox.logging-sink.enabled", havingValue = "true")
+public class LoggingOutboxSink implements OutboxSink {
+
+  private static final Logger logger = LoggerFactory.getLogger(LoggingOutboxSink.class);
+
+  @Override
+  public String getName() {
+    return "logging";
+  }
+
+  @Override
+  public void deliver(List<OutboxEvent> events) {
+    for (OutboxEvent event : events) {
+      logger.info(
+          "Outbox event {} {} for ticket {}: {}",
+          event.getId(),
+          event.getType(),
+          event.getTicketId(),
+          event.getPayload());
+    }
+  }
+}
@@ -0,0 +1,213 @@
+package com.tickets.service;
+
+import com.tickets.model.OutboxCheckpoint;
+import com.tickets.model.OutboxEvent;
+import com.tickets.repository.OutboxCheckpointRepository;
+import com.tickets.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Dispatcher delivering outbox events to every registered {@link OutboxSink}.
+ *
+ * <p>Each sink has its own checkpoint (the last delivered event ID). Events are read in ID order in
+ * batches and the checkpoint only moves after the sink accepted a batch, which gives at-least-once
+ * delivery. IDs are taken when an event is inserted, not when its transaction commits, so a missing
+ * ID may belong to a transaction that is still running: delivery stops before such a gap until the
+ * event after it is older than the gap timeout, by which time the transaction must have ended and
+ * the ID is known to be rolled back.
+ */
+@Service
+public class OutboxDispatcher {
+
+  private static final Logger logger = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+  private final OutboxEventRepository outboxEventRepository;
+  private final OutboxCheckpointRepository outboxCheckpointRepository;
+  private final List<OutboxSink> sinks;
+  private final TicketShards ticketShards;
+  private final MeterRegistry meterRegistry;
+
+  private final boolean enabled;
+  private final int batchSize;
+  private final long gapTimeout;
+  private final boolean purgeDelivered;
+
+  /** Last known lag per sink, exported as a gauge. */
+  private final Map<String, AtomicLong> lag = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor for dependency injection.
+   *
+   * @param outboxEventRepository the outbox event repository
+   * @param outboxCheckpointRepository the outbox checkpoint repository
+   * @param sinks the registered sinks
+   * @param ticketShards the ticket shards, each holding its own outbox
+   * @param meterRegistry the meter registry
+   * @param enabled whether events are dispatched
+   * @param batchSize maximum number of events per delivered batch
+   * @param gapTimeout time in milliseconds after which a gap in the event IDs is skipped; must
+   *     exceed the longest transaction writing ticket changes
+   * @param purgeDelivered whether events delivered to every sink are deleted
+   */
+  public OutboxDispatcher(
+      OutboxEventRepository outboxEventRepository,
+      OutboxCheckpointRepository outboxCheckpointRepository,
+      List<OutboxSink> sinks,
+      TicketShards ticketShards,
+      MeterRegistry meterRegistry,
+      @Value("${tickets.outbox.enabled:true}") boolean enabled,
+      @Value("${tickets.outbox.batch-size:500}") int batchSize,
+      @Value("${tickets.outbox.gap-timeout:300000}") long gapTimeout,
+      @Value("${tickets.outbox.purge-delivered:false}") boolean purgeDelivered) {
+    this.outboxEventRepository = outboxEventRepository;
+    this.outboxCheckpointRepository = outboxCheckpointRepository;
+    this.sinks = sinks;
+    this.ticketShards = ticketShards;
+    this.meterRegistry = meterRegistry;
+    this.enabled = enabled;
+    this.batchSize = batchSize;
+    this.gapTimeout = gapTimeout;
+    this.purgeDelivered = purgeDelivered;
+    for (OutboxSink sink : sinks) {
+      AtomicLong sinkLag = lag.computeIfAbsent(sink.getName(), n -> new AtomicLong());
+      Gauge.builder("tickets.outbox.lag", sinkLag, AtomicLong::get)
+          .description("Outbox events not yet delivered to the sink")
+          .tag("sink", sink.getName())
+          .register(meterRegistry);
+    }
+  }
+
+  /** Delivers pending events of every shard to all sinks. */
+  @Scheduled(fixedDelayString = "${tickets.outbox.poll-interval:1000}")
+  public void dispatch() {
+    if (!enabled || sinks.isEmpty()) {
+      return;
+    }
+    Map<String, Long> pending = new HashMap<>();
+    for (int shard = 0; shard < ticketShards.getShardCount(); shard++) {
+      ticketShards.on(
+          shard,
+          () -> {
+            dispatchShard(pending);
+            return null;
+          });
+    }
+    pending.forEach((sink, events) -> lag.get(sink).set(events));
+  }
+
+  /**
+   * Delivers pending events of the current shard to all sinks.
+   *
+   * @param pending number of undelivered events per sink, added to
+   */
+  private void dispatchShard(Map<String, Long> pending) {
+    long maxId = outboxEventRepository.findMaxId();
+    long delivered = Long.MAX_VALUE;
+    for (OutboxSink sink : sinks) {
+      long checkpoint = dispatch(sink);
+      pending.merge(sink.getName(), Math.max(0, maxId - checkpoint), Long::sum);
+      delivered = Math.min(delivered, checkpoint);
+    }
+    if (purgeDelivered && delivered > 0) {
+      int purged = outboxEventRepository.deleteUpTo(delivered);
+      logger.debug("Purged {} delivered outbox events", purged);
+    }
+  }
+
+  /**
+   * Delivers pending events to one sink until it is caught up or fails.
+   *
+   * @param sink the sink
+   * @return the sink checkpoint after the dispatch
+   */
+  long dispatch(OutboxSink sink) {
+    OutboxCheckpoint checkpoint =
+        outboxCheckpointRepository
+            .findById(sink.getName())
+            .orElseGet(
+                () -> OutboxCheckpoint.builder().sink(sink.getName()).lastEventId(0L).build());
+    Timer timer = meterRegistry.timer("tickets.outbox.dispatch", "sink", sink.getName());
+    while (true) {
+      List<OutboxEvent> read =
+          outboxEventRepository.findByIdGreaterThanOrderByIdAsc(
+              checkpoint.getLastEventId(), PageRequest.of(0, batchSize));
+      List<OutboxEvent> events = settled(checkpoint.getLastEventId(), read);
+      if (events.isEmpty()) {
+        break;
+      }
+      try {
+        timer.recordCallable(
+            () -> {
+              sink.deliver(events);
+              return null;
+            });
+      } catch (Exception e) {
+        logger.error(
+            "Outbox sink {} failed after event {}, will retry",
+            sink.getName(),
+            checkpoint.getLastEventId(),
+            e);
+        Counter.builder("tickets.outbox.failures")
+            .tag("sink", sink.getName())
+            .register(meterRegistry)
+            .increment();
+        break;
+      }
+      checkpoint.setLastEventId(events.get(events.size() - 1).getId());
+      checkpoint.setUpdatedAt(Date.from(Instant.now()));
+      checkpoint = outboxCheckpointRepository.save(checkpoint);
+      Counter.builder("tickets.outbox.delivered")
+          .tag("sink", sink.getName())
+          .register(meterRegistry)
+          .increment(events.size());
+      logger.debug("Delivered {} outbox events to sink {}", events.size(), sink.getName());
+      if (events.size() < batchSize) {
+        break;
+      }
+    }
+    return checkpoint.getLastEventId();
+  }
+
+  /**
+   * Returns the leading events that can be delivered after a checkpoint: those before the first gap
+   * in the IDs that a running transaction may still fill.
+   *
+   * @param lastEventId the checkpoint
+   * @param events the events after the checkpoint, in ID order
+   * @return the events to deliver
+   */
+  private List<OutboxEvent> settled(long lastEventId, List<OutboxEvent> events) {
+    long expired = System.currentTimeMillis() - gapTimeout;
+    long expected = lastEventId + 1;
+    int count = 0;
+    for (OutboxEvent event : events) {
+      if (event.getId() != expected) {
+        if (event.getCreatedAt().getTime() > expired) {
+          logger.debug("Waiting for outbox events {} to {}", expected, event.getId() - 1);
+          break;
+        }
+        logger.warn(
+            "Skipping outbox events {} to {}, never committed", expected, event.getId() - 1);
+      }
+      expected = event.getId() + 1;
+      count++;
+    }
+    return events.subList(0, count);
+  }
+}
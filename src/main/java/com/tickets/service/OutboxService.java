@@ -0,0 +1,66 @@
+package com.tickets.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tickets.dto.TicketChangeDto;
+import com.tickets.model.OutboxEvent;
+import com.tickets.repository.OutboxEventRepository;
+import java.time.Instant;
+import java.util.Date;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service recording ticket changes in the transactional outbox.
+ *
+ * <p>The listener runs synchronously inside the transaction that changed the ticket, so an outbox
+ * event exists if and only if the change committed.
+ */
+@Service
+public class OutboxService {
+
+  private static final Logger logger = LoggerFactory.getLogger(OutboxService.class);
+
+  /** Repository for outbox events. */
+  private final OutboxEventRepository outboxEventRepository;
+
+  /** Mapper used to serialize event payloads. */
+  private final ObjectMapper objectMapper;
+
+  /**
+   * Constructor for dependency injection.
+   *
+   * @param outboxEventRepository the outbox event repository
+   * @param objectMapper the JSON object mapper
+   */
+  public OutboxService(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+    this.outboxEventRepository = outboxEventRepository;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Records a ticket change as an outbox event in the current transaction.
+   *
+   * @param change the ticket change
+   */
+  @EventListener
+  public void onTicketChange(TicketChangeDto change) {
+    String payload;
+    try {
+      payload = objectMapper.writeValueAsString(change);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Cannot serialize ticket change", e);
+    }
+    OutboxEvent event =
+        OutboxEvent.builder()
+            .ticketId(change.getTicket().getId())
+            .type(change.getKind().name())
+            .payload(payload)
+            .createdAt(Date.from(Instant.now()))
+            .build();
+    outboxEventRepository.save(event);
+    logger.debug("Recorded outbox event {} for ticket {}", event.getType(), event.getTicketId());
+  }
+}
@@ -0,0 +1,28 @@
+package com.tickets.service;
+
+import com.tickets.model.OutboxEvent;
+import java.util.List;
+
+/**
+ * Destination for outbox events, such as a search indexer or a message broker.
+ *
+ * <p>Sinks receive events in ID order, in batches. A batch that throws is delivered again on the
+ * next dispatch, so sinks must tolerate duplicates.
+ */
+public interface OutboxSink {
+
+  /**
+   * Returns the unique sink name, used as checkpoint key.
+   *
+   * @return the sink name
+   */
+  String getName();
+
+  /**
+   * Delivers a batch of events.
+   *
+   * @param events the events, in ID order
+   * @throws Exception if the batch could not be delivered
+   */
+  void deliver(List<OutboxEvent> events) throws Exception;
+}
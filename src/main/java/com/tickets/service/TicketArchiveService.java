@@ -0,0 +1,255 @@
+package com.tickets.service;
+
+import com.tickets.dto.TicketDto;
+import com.tickets.dto.TicketHistoryDto;
+import com.tickets.model.ArchivedTicket;
+import com.tickets.model.ArchivedTicketHistory;
+import com.tickets.model.ChangeType;
+import com.tickets.model.Status;
+import com.tickets.model.Ticket;
+import com.tickets.model.TicketHistory;
+import com.tickets.repository.ArchivedTicketHistoryRepository;
+import com.tickets.repository.ArchivedTicketRepository;
+import com.tickets.repository.TicketHistoryRepository;
+import com.tickets.repository.TicketRepository;
+import com.tickets.repository.TicketSnapshotRepository;
+import com.tickets.util.TicketMapper;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Service moving long-closed tickets and their history out of the hot tables.
+ *
+ * <p>A scheduled job moves tickets that have been {@link Status#CLOSED} or {@link Status#DONE} for
+ * longer than the configured number of days into <code>tickets_archive</code> and <code>
+ * ticket_history_archive</code>, one batch per transaction. Archived tickets are only read when a
+ * caller explicitly asks for them.
+ */
+@Service
+public class TicketArchiveService {
+
+  private static final Logger logger = LoggerFactory.getLogger(TicketArchiveService.class);
+
+  /** Statuses of tickets that can be archived. */
+  private static final Set<Status> ARCHIVABLE = Set.of(Status.CLOSED, Status.DONE);
+
+  private final TicketRepository ticketRepository;
+  private final TicketHistoryRepository ticketHistoryRepository;
+  private final TicketSnapshotRepository ticketSnapshotRepository;
+  private final ArchivedTicketRepository archivedTicketRepository;
+  private final ArchivedTicketHistoryRepository archivedTicketHistoryRepository;
+  private final TicketMapper ticketMapper;
+  private final TicketIndex ticketIndex;
+  private final TicketShards ticketShards;
+  private final TransactionTemplate transactionTemplate;
+
+  private final boolean enabled;
+  private final int closedDays;
+  private final int batchSize;
+
+  /**
+   * Constructor for dependency injection.
+   *
+   * @param ticketRepository the ticket repository
+   * @param ticketHistoryRepository the ticket history repository
+   * @param ticketSnapshotRepository the ticket snapshot repository
+   * @param archivedTicketRepository the archived ticket repository
+   * @param archivedTicketHistoryRepository the archived ticket history repository
+   * @param ticketMapper the ticket mapper
+   * @param ticketIndex the ticket index
+   * @param ticketShards the ticket shards
+   * @param transactionTemplate the transaction template used for each batch
+   * @param enabled whether the archive job runs
+   * @param closedDays number of days a ticket must have been closed before it is archived
+   * @param batchSize number of tickets moved per transaction
+   */
+  public TicketArchiveService(
+      TicketRepository ticketRepository,
+      TicketHistoryRepository ticketHistoryRepository,
+      TicketSnapshotRepository ticketSnapshotRepository,
+      ArchivedTicketRepository archivedTicketRepository,
+      ArchivedTicketHistoryRepository archivedTicketHistoryRepository,
+      TicketMapper ticketMapper,
+      TicketIndex ticketIndex,
+      TicketShards ticketShards,
+      TransactionTemplate transactionTemplate,
+      @Value("${tickets.archive.enabled:true}") boolean enabled,
+      @Value("${tickets.archive.closed-days:90}") int closedDays,
+      @Value("${tickets.archive.batch-size:500}") int batchSize) {
+    this.ticketRepository = ticketRepository;
+    this.ticketHistoryRepository = ticketHistoryRepository;
+    this.ticketSnapshotRepository = ticketSnapshotRepository;
+    this.archivedTicketRepository = archivedTicketRepository;
+    this.archivedTicketHistoryRepository = archivedTicketHistoryRepository;
+    this.ticketMapper = ticketMapper;
+    this.ticketIndex = ticketIndex;
+    this.ticketShards = ticketShards;
+    this.transactionTemplate = transactionTemplate;
+    this.enabled = enabled;
+    this.closedDays = closedDays;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Moves every archivable ticket to the archive tables of its shard, in batches.
+   *
+   * @return the number of archived tickets
+   */
+  @Scheduled(cron = "${tickets.archive.cron:0 0 3 * * *}")
+  public int archiveClosedTickets() {
+    if (!enabled) {
+      return 0;
+    }
+    Date cutoff = Date.from(Instant.now().minus(Duration.ofDays(closedDays)));
+    logger.info("Archiving tickets closed before {}", cutoff);
+    int total = 0;
+    for (int shard = 0; shard < ticketShards.getShardCount(); shard++) {
+      total += ticketShards.on(shard, () -> archiveShard(cutoff));
+    }
+    logger.info("Archived {} tickets", total);
+    return total;
+  }
+
+  /**
+   * Moves one batch of archivable tickets; must run inside a transaction, which keeps them locked
+   * until they are moved.
+   *
+   * @param cutoff tickets last modified before this time are archived
+   * @return the IDs of the archived tickets
+   */
+  List<UUID> archiveBatch(Date cutoff) {
+    List<UUID> ids =
+        ticketRepository.findArchivableIds(
+            ARCHIVABLE.stream().map(Status::name).toList(), cutoff, batchSize);
+    if (ids.isEmpty()) {
+      return ids;
+    }
+    Date archivedAt = Date.from(Instant.now());
+    List<Ticket> tickets = ticketRepository.findAllWithHistoryByIdIn(ids);
+    List<ArchivedTicket> archivedTickets = new ArrayList<>();
+    List<ArchivedTicketHistory> archivedHistory = new ArrayList<>();
+    List<TicketHistory> history = new ArrayList<>();
+    for (Ticket ticket : tickets) {
+      archivedTickets.add(ticketMapper.archive(ticket, archivedAt));
+      for (TicketHistory entry : ticket.getTicketHistory()) {
+        archivedHistory.add(ticketMapper.archive(ticket.getId(), entry));
+        history.add(entry);
+      }
+    }
+    archivedTicketRepository.saveAll(archivedTickets);
+    archivedTicketHistoryRepository.saveAll(archivedHistory);
+    ticketSnapshotRepository.deleteByTicketIdIn(ids);
+    ticketRepository.deleteAll(tickets);
+    ticketHistoryRepository.deleteAll(history);
+    logger.debug(
+        "Archived batch of {} tickets with {} history entries", ids.size(), history.size());
+    return ids;
+  }
+
+  /**
+   * Retrieves archived tickets, gathered from every shard.
+   *
+   * @param assignedToUserId (optional) the assigned user ID to filter by; if blank, returns all
+   *     archived tickets
+   * @param page the zero-based page number; ignored without a page size
+   * @param size (optional) the page size; if null, returns all archived tickets
+   * @return list of ticket DTOs, in ID order when paged
+   * @throws ResponseStatusException if the page or the size is out of range
+   */
+  public List<TicketDto> getArchivedTickets(String assignedToUserId, int page, Integer size) {
+    logger.info("Retrieving archived tickets for user: {}", assignedToUserId);
+    UUID assignedTo =
+        StringUtils.isBlank(assignedToUserId) ? null : UUID.fromString(assignedToUserId);
+    List<ArchivedTicket> tickets;
+    if (size == null) {
+      tickets =
+          ticketShards.gather(
+              () ->
+                  assignedTo == null
+                      ? archivedTicketRepository.findAll()
+                      : archivedTicketRepository.findAllByAssignedTo(assignedTo));
+    } else {
+      tickets =
+          ticketShards.gatherPage(
+              pageable ->
+                  assignedTo == null
+                      ? archivedTicketRepository.findAllBy(pageable)
+                      : archivedTicketRepository.findAllByAssignedTo(assignedTo, pageable),
+              TicketShards.BY_ID,
+              Comparator.comparing(ArchivedTicket::getId, TicketShards.ID_ORDER),
+              page,
+              size);
+    }
+    return tickets.stream().map(ticketMapper::map).collect(Collectors.toList());
+  }
+
+  /**
+   * Retrieves an archived ticket.
+   *
+   * @param id the ticket ID
+   * @return the ticket DTO
+   * @throws ResponseStatusException if the ticket is not in the archive
+   */
+  public TicketDto getArchivedTicket(String id) {
+    return ticketMapper.map(findArchivedTicket(id));
+  }
+
+  /**
+   * Retrieves the history of an archived ticket, optionally filtered by change type.
+   *
+   * @param id the ticket ID
+   * @param type (optional) the change type to filter by
+   * @return list of ticket history DTOs
+   * @throws ResponseStatusException if the ticket is not in the archive
+   */
+  public List<TicketHistoryDto> getArchivedTicketHistory(String id, ChangeType type) {
+    ArchivedTicket ticket = findArchivedTicket(id);
+    List<ArchivedTicketHistory> history =
+        archivedTicketHistoryRepository.findAllByTicketIdOrderByUpdateDate(ticket.getId());
+    List<TicketHistoryDto> result = ticketMapper.map(ticket, history);
+    if (type == null) {
+      return result;
+    }
+    return result.stream().filter(h -> type.equals(h.getType())).collect(Collectors.toList());
+  }
+
+  private int archiveShard(Date cutoff) {
+    int total = 0;
+    while (true) {
+      List<UUID> archived = transactionTemplate.execute(status -> archiveBatch(cutoff));
+      archived.forEach(ticketIndex::remove);
+      total += archived.size();
+      if (archived.size() < batchSize) {
+        break;
+      }
+    }
+    return total;
+  }
+
+  private ArchivedTicket findArchivedTicket(String id) {
+    ticketShards.route(UUID.fromString(id));
+    return archivedTicketRepository
+        .findById(UUID.fromString(id))
+        .orElseThrow(
+            () -> {
+              logger.warn("Archived ticket not found for id: {}", id);
+              return new ResponseStatusException(HttpStatus.NOT_FOUND, "Ticket not found");
+            });
+  }
+}
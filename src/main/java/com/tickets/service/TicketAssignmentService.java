@@ -0,0 +1,289 @@
+package com.tickets.service;
+
+import com.tickets.dto.TicketChangeDto;
+import com.tickets.dto.TicketDto;
+import com.tickets.model.Status;
+import com.tickets.model.Ticket;
+import com.tickets.model.User;
+import com.tickets.repository.TicketRepository;
+import com.tickets.repository.UserRepository;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Service assigning tickets to the support user with the fewest open tickets.
+ *
+ * <p>The open-ticket load of every {@link User.Role#ROLE_SUPPORT} user is kept in memory, ordered
+ * by load, so picking the least-loaded user and updating its load are <code>O(log n)</code>
+ * without any query. The loads are rebuilt on startup and kept in sync from the {@link
+ * TicketChangeDto} events published by {@link TicketService} and {@link TicketImportService}. An
+ * assignment is counted as soon as it is made, so tickets assigned in the same transaction or in
+ * concurrent ones are spread out; it is taken back if the transaction rolls back. Events received
+ * while a rebuild reads the database are replayed once the rebuilt loads replace the old ones, and
+ * assignments of transactions still running are counted again.
+ */
+@Service
+public class TicketAssignmentService {
+
+  private static final Logger logger = LoggerFactory.getLogger(TicketAssignmentService.class);
+
+  /** Statuses counted in the load of the assignee. */
+  public static final Set<Status> OPEN =
+      EnumSet.of(Status.NEW, Status.IN_PROGRESS, Status.IN_REVIEW);
+
+  /** Number of open tickets of a support user. */
+  private static record Load(UUID userId, long open) {}
+
+  private static final Comparator<Load> BY_LOAD =
+      Comparator.comparingLong(Load::open).thenComparing(Load::userId);
+
+  private final UserRepository userRepository;
+  private final TicketRepository ticketRepository;
+  private final TicketShards ticketShards;
+
+  /** Support users, least loaded first; guarded by <code>this</code>. */
+  private final TreeSet<Load> byLoad = new TreeSet<>(BY_LOAD);
+
+  /** Current load of each support user; guarded by <code>this</code>. */
+  private final Map<UUID, Load> loads = new HashMap<>();
+
+  /** Support user counted for each open ticket; guarded by <code>this</code>. */
+  private final Map<UUID, UUID> assignees = new HashMap<>();
+
+  /** Assignments of transactions not completed yet; guarded by <code>this</code>. */
+  private final Set<PendingAssignments> inFlight = new HashSet<>();
+
+  /** Changes received during a rebuild, or null outside of one; guarded by <code>this</code>. */
+  private List<TicketChangeDto> missed;
+
+  /**
+   * Constructor for dependency injection.
+   *
+   * @param userRepository the user repository
+   * @param ticketRepository the ticket repository
+   * @param ticketShards the ticket shards
+   */
+  public TicketAssignmentService(
+      UserRepository userRepository, TicketRepository ticketRepository, TicketShards ticketShards) {
+    this.userRepository = userRepository;
+    this.ticketRepository = ticketRepository;
+    this.ticketShards = ticketShards;
+  }
+
+  /** Rebuilds the loads from the database, discarding the current content. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    logger.info("Rebuilding support user loads");
+    synchronized (this) {
+      missed = new ArrayList<>();
+    }
+    List<User> users;
+    List<TicketRepository.IndexEntry> entries;
+    try {
+      users = userRepository.findAllByRole(User.Role.ROLE_SUPPORT);
+      entries =
+          ticketShards.gather(
+              () -> ticketRepository.findAssignedIndexEntries(OPEN, User.Role.ROLE_SUPPORT));
+    } catch (RuntimeException e) {
+      synchronized (this) {
+        missed = null;
+      }
+      throw e;
+    }
+    int replayed;
+    synchronized (this) {
+      try {
+        byLoad.clear();
+        loads.clear();
+        assignees.clear();
+        for (User user : users) {
+          Load load = new Load(user.getId(), 0);
+          loads.put(user.getId(), load);
+          byLoad.add(load);
+        }
+        for (TicketRepository.IndexEntry entry : entries) {
+          assignees.put(entry.getId(), entry.getAssignedToId());
+          adjust(entry.getAssignedToId(), 1);
+        }
+        // Not committed yet, so not read from the database
+        for (PendingAssignments pending : inFlight) {
+          if (!pending.committed) {
+            pending.userIds.forEach(userId -> adjust(userId, 1));
+          }
+        }
+        missed.forEach(this::apply);
+        replayed = missed.size();
+      } finally {
+        missed = null;
+      }
+    }
+    logger.info(
+        "Loaded {} support users with {} open tickets, {} changes replayed",
+        users.size(),
+        entries.size(),
+        replayed);
+  }
+
+  /**
+   * Picks the least-loaded support user for a ticket and counts the ticket in its load.
+   *
+   * <p>The caller must assign the ticket to the returned user in the current transaction. New
+   * tickets are tracked by their ID once the transaction commits.
+   *
+   * @param ticket the ticket to assign
+   * @return a reference to the picked user, or null if there is no support user
+   */
+  public User assign(Ticket ticket) {
+    UUID userId;
+    synchronized (this) {
+      if (byLoad.isEmpty()) {
+        logger.warn("No support user to assign ticket {} to", ticket.getId());
+        return null;
+      }
+      userId = byLoad.first().userId();
+      if (TransactionSynchronizationManager.isSynchronizationActive()) {
+        adjust(userId, 1);
+        pending().add(ticket, userId);
+      }
+    }
+    logger.debug("Assigning ticket {} to support user {}", ticket.getId(), userId);
+    return userRepository.getReferenceById(userId);
+  }
+
+  /**
+   * Applies a committed ticket change to the loads.
+   *
+   * @param change the ticket change
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public synchronized void onTicketChange(TicketChangeDto change) {
+    if (missed != null) {
+      missed.add(change);
+    }
+    apply(change);
+  }
+
+  /**
+   * Returns the number of open tickets of each support user.
+   *
+   * @return the loads, least loaded first
+   */
+  public synchronized Map<UUID, Long> getLoads() {
+    Map<UUID, Long> result = new LinkedHashMap<>();
+    byLoad.forEach(load -> result.put(load.userId(), load.open()));
+    return result;
+  }
+
+  private void apply(TicketChangeDto change) {
+    TicketDto ticket = change.getTicket();
+    UUID assignee =
+        StringUtils.isBlank(ticket.getAssignedTo())
+            ? null
+            : UUID.fromString(ticket.getAssignedTo());
+    UUID counted =
+        assignee != null && loads.containsKey(assignee) && OPEN.contains(ticket.getStatus())
+            ? assignee
+            : null;
+    UUID previous =
+        counted == null ? assignees.remove(ticket.getId()) : assignees.put(ticket.getId(), counted);
+    if (Objects.equals(previous, counted)) {
+      return;
+    }
+    if (previous != null) {
+      adjust(previous, -1);
+    }
+    if (counted != null) {
+      adjust(counted, 1);
+    }
+  }
+
+  private void adjust(UUID userId, long delta) {
+    Load load = loads.get(userId);
+    if (load == null) {
+      return;
+    }
+    byLoad.remove(load);
+    Load updated = new Load(userId, load.open() + delta);
+    loads.put(userId, updated);
+    byLoad.add(updated);
+  }
+
+  private PendingAssignments pending() {
+    PendingAssignments pending =
+        (PendingAssignments) TransactionSynchronizationManager.getResource(this);
+    if (pending == null) {
+      pending = new PendingAssignments();
+      TransactionSynchronizationManager.bindResource(this, pending);
+      TransactionSynchronizationManager.registerSynchronization(pending);
+      inFlight.add(pending);
+    }
+    return pending;
+  }
+
+  /** Assignments made in a transaction, tracked by ticket ID once it commits. */
+  private class PendingAssignments implements TransactionSynchronization {
+
+    private final List<Ticket> tickets = new ArrayList<>();
+    private final List<UUID> userIds = new ArrayList<>();
+
+    /** Whether the transaction committed; guarded by the service. */
+    private boolean committed;
+
+    private void add(Ticket ticket, UUID userId) {
+      tickets.add(ticket);
+      userIds.add(userId);
+    }
+
+    /** Runs before the event listeners, so the change events find the tickets tracked. */
+    @Override
+    public int getOrder() {
+      return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public void afterCommit() {
+      synchronized (TicketAssignmentService.this) {
+        committed = true;
+        for (int i = 0; i < tickets.size(); i++) {
+          UUID userId = userIds.get(i);
+          UUID previous = assignees.put(tickets.get(i).getId(), userId);
+          if (previous != null) {
+            // Either the ticket was reassigned, or its change was already applied
+            adjust(previous, -1);
+          }
+        }
+      }
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+      TransactionSynchronizationManager.unbindResourceIfPossible(TicketAssignmentService.this);
+      synchronized (TicketAssignmentService.this) {
+        inFlight.remove(this);
+        if (status != STATUS_COMMITTED) {
+          userIds.forEach(userId -> adjust(userId, -1));
+        }
+      }
+    }
+  }
+}
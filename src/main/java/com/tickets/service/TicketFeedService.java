@@ -0,0 +1,333 @@
+package com.tickets.service;
+
+import com.tickets.dto.TicketChangeDto;
+import com.tickets.dto.TicketDto;
+import com.tickets.model.Status;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Service pushing committed ticket changes to server-sent event subscribers.
+ *
+ * <p>Every change gets a monotonically increasing event ID and is kept in a bounded replay buffer,
+ * so a reconnecting client can resume from its <code>Last-Event-ID</code>. The ID is <code>
+ * &lt;epoch&gt;-&lt;sequence&gt;</code>, the epoch being the startup time of this instance: an ID
+ * of another instance or of an earlier run, or one ahead of this instance, cannot be resumed and
+ * gets a <code>reset</code> event, like an ID older than the replay buffer. A resuming subscriber
+ * first reads the missed events straight from the replay buffer, however many there are, then
+ * switches to its own bounded queue of live events. Each subscriber is drained on a virtual
+ * thread; a subscriber whose queue overflows is disconnected and is expected to reconnect and
+ * resume.
+ */
+@Service
+public class TicketFeedService {
+
+  private static final Logger logger = LoggerFactory.getLogger(TicketFeedService.class);
+
+  /** A change together with its event ID. */
+  private static record FeedEvent(long id, TicketChangeDto change) {}
+
+  /** Maximum number of undelivered events per subscriber. */
+  private final int bufferSize;
+
+  /** Maximum number of past events kept for resuming subscribers. */
+  private final int replaySize;
+
+  /** Subscription timeout in milliseconds. */
+  private final long timeout;
+
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+  /** Past events, oldest first; guarded by <code>this</code>. */
+  private final Deque<FeedEvent> replay = new ArrayDeque<>();
+
+  /** Epoch of the event IDs of this instance, its startup time in milliseconds. */
+  private final long epoch = System.currentTimeMillis();
+
+  /** Sequence of the last published event; guarded by <code>this</code>. */
+  private long lastEventId;
+
+  /**
+   * Constructor for dependency injection.
+   *
+   * @param bufferSize maximum number of undelivered events per subscriber
+   * @param replaySize maximum number of past events kept for resuming subscribers
+   * @param timeout subscription timeout in milliseconds
+   */
+  public TicketFeedService(
+      @Value("${tickets.feed.buffer-size:256}") int bufferSize,
+      @Value("${tickets.feed.replay-size:10000}") int replaySize,
+      @Value("${tickets.feed.timeout:1800000}") long timeout) {
+    this.bufferSize = bufferSize;
+    this.replaySize = replaySize;
+    this.timeout = timeout;
+  }
+
+  /**
+   * Opens a new subscription.
+   *
+   * @param assignedToUserId (optional) only push changes of tickets assigned to this user
+   * @param status (optional) only push changes of tickets in this status
+   * @param lastEventId (optional) the last event ID seen by the client; missed events after it are
+   *     replayed first, or a reset is sent if they cannot be
+   * @return the emitter streaming the changes
+   */
+  public SseEmitter subscribe(String assignedToUserId, Status status, String lastEventId) {
+    logger.info(
+        "New feed subscription for user: {} status: {} from event: {}",
+        assignedToUserId,
+        status,
+        lastEventId);
+    SseEmitter emitter = createEmitter();
+    Subscriber subscriber = new Subscriber(emitter, assignedToUserId, status);
+    emitter.onCompletion(() -> subscribers.remove(subscriber));
+    emitter.onTimeout(() -> subscribers.remove(subscriber));
+    emitter.onError(e -> subscribers.remove(subscriber));
+    synchronized (this) {
+      if (StringUtils.isNotBlank(lastEventId)) {
+        long sequence = sequenceOf(lastEventId);
+        if (sequence < 0 || sequence > this.lastEventId) {
+          // Not an event of this run: the client cannot know what it missed
+          subscriber.pendingReset = lastEventId;
+        } else if (sequence < this.lastEventId) {
+          subscriber.cursor = sequence;
+        }
+      }
+      subscribers.add(subscriber);
+    }
+    subscriber.startDrain();
+    return emitter;
+  }
+
+  /**
+   * Publishes a committed ticket change to all matching subscribers.
+   *
+   * @param change the ticket change
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onTicketChange(TicketChangeDto change) {
+    synchronized (this) {
+      FeedEvent event = new FeedEvent(++lastEventId, change);
+      replay.addLast(event);
+      while (replay.size() > replaySize) {
+        replay.removeFirst();
+      }
+      for (Subscriber subscriber : subscribers) {
+        subscriber.offer(event);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of open subscriptions.
+   *
+   * @return the number of subscribers
+   */
+  public int getSubscriberCount() {
+    return subscribers.size();
+  }
+
+  /**
+   * Returns the event ID of a sequence number of this instance.
+   *
+   * @param sequence the sequence number
+   * @return the event ID
+   */
+  String eventId(long sequence) {
+    return epoch + "-" + sequence;
+  }
+
+  /** Returns the sequence of an event ID of this instance, or -1 for any other ID. */
+  private long sequenceOf(String eventId) {
+    String prefix = epoch + "-";
+    if (!eventId.startsWith(prefix)) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(eventId.substring(prefix.length()));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Creates the emitter of a new subscription.
+   *
+   * @return the emitter
+   */
+  SseEmitter createEmitter() {
+    return new SseEmitter(timeout);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    subscribers.forEach(s -> s.emitter.complete());
+    executor.shutdownNow();
+  }
+
+  /** A single subscription with its filter, replay cursor and bounded buffer. */
+  private class Subscriber {
+
+    private final SseEmitter emitter;
+    private final String assignedToUserId;
+    private final Status status;
+    private final BlockingQueue<FeedEvent> queue = new ArrayBlockingQueue<>(bufferSize);
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile boolean closed;
+
+    /**
+     * ID of the last event read from the replay buffer while catching up, or -1 once the
+     * subscriber receives live events through its queue; written under the service lock.
+     */
+    private volatile long cursor = -1;
+
+    /**
+     * Event ID to send a reset for before the next events, or null; set before the drain starts or
+     * by the drain thread.
+     */
+    private volatile String pendingReset;
+
+    private Subscriber(SseEmitter emitter, String assignedToUserId, Status status) {
+      this.emitter = emitter;
+      this.assignedToUserId = assignedToUserId;
+      this.status = status;
+    }
+
+    private boolean matches(TicketChangeDto change) {
+      TicketDto ticket = change.getTicket();
+      if (StringUtils.isNotBlank(assignedToUserId)
+          && !assignedToUserId.equals(ticket.getAssignedTo())) {
+        return false;
+      }
+      return status == null || status.equals(ticket.getStatus());
+    }
+
+    private void offer(FeedEvent event) {
+      if (closed || cursor >= 0 || !matches(event.change())) {
+        // While catching up, the event is read from the replay buffer instead
+        return;
+      }
+      if (!queue.offer(event)) {
+        logger.warn("Disconnecting slow feed subscriber after {} buffered events", bufferSize);
+        close();
+        emitter.complete();
+        return;
+      }
+      startDrain();
+    }
+
+    private void startDrain() {
+      if (draining.compareAndSet(false, true)) {
+        executor.execute(this::drain);
+      }
+    }
+
+    /**
+     * Takes the next events to send: a batch of the replay buffer after the cursor while catching
+     * up, otherwise the next queued live event.
+     */
+    private List<FeedEvent> nextEvents() {
+      List<FeedEvent> events = new ArrayList<>();
+      synchronized (TicketFeedService.this) {
+        if (cursor < 0) {
+          FeedEvent event = queue.poll();
+          if (event != null) {
+            events.add(event);
+          }
+          return events;
+        }
+        FeedEvent oldest = replay.peekFirst();
+        if (oldest != null && oldest.id() > cursor + 1) {
+          pendingReset = eventId(cursor);
+          cursor = oldest.id() - 1;
+        }
+        for (FeedEvent event : replay) {
+          if (event.id() <= cursor) {
+            continue;
+          }
+          if (matches(event.change())) {
+            events.add(event);
+          }
+          cursor = event.id();
+          if (events.size() == bufferSize) {
+            return events;
+          }
+        }
+        // Caught up: later events are offered to the queue
+        cursor = -1;
+      }
+      return events;
+    }
+
+    private void reset(String lastEventId) {
+      logger.info("Feed subscriber cannot resume from event {}, sending reset", lastEventId);
+      try {
+        emitter.send(SseEmitter.event().name("reset").data(lastEventId));
+      } catch (IOException e) {
+        close();
+      }
+    }
+
+    private void drain() {
+      do {
+        while (!closed) {
+          List<FeedEvent> events = nextEvents();
+          if (pendingReset != null) {
+            reset(pendingReset);
+            pendingReset = null;
+          }
+          if (events.isEmpty()) {
+            break;
+          }
+          for (FeedEvent event : events) {
+            if (closed) {
+              break;
+            }
+            send(event);
+          }
+        }
+        draining.set(false);
+      } while (!closed && (cursor >= 0 || !queue.isEmpty()) && draining.compareAndSet(false, true));
+    }
+
+    private void send(FeedEvent event) {
+      try {
+        emitter.send(
+            SseEmitter.event()
+                .id(eventId(event.id()))
+                .name(event.change().getKind().name())
+                .data(event.change(), MediaType.APPLICATION_JSON));
+      } catch (IOException | IllegalStateException e) {
+        logger.debug("Feed subscriber disconnected: {}", e.getMessage());
+        close();
+      }
+    }
+
+    private void close() {
+      closed = true;
+      queue.clear();
+      subscribers.remove(this);
+    }
+  }
+}
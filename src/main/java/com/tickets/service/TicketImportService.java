@@ -0,0 +1,750 @@
+package com.tickets.service;
+
+import com.tickets.dto.ImportErrorDto;
+import com.tickets.dto.ImportResultDto;
+import com.tickets.dto.TicketChangeDto;
+import com.tickets.model.ImportReject;
+import com.tickets.model.ImportRequest;
+import com.tickets.model.Status;
+import com.tickets.model.Ticket;
+import com.tickets.repository.ImportRejectRepository;
+import com.tickets.repository.ImportRequestRepository;
+import com.tickets.repository.TicketRepository;
+import com.tickets.util.BloomFilter;
+import com.tickets.util.CsvReader;
+import com.tickets.util.CsvWriter;
+import com.tickets.util.Decompression;
+import com.tickets.util.TicketMapper;
+import com.tickets.util.UuidV7;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Service importing tickets from CSV files, skipping rows that were already imported.
+ *
+ * <p>Every row is identified by a 64-bit hash of its content, stored with the imported ticket
+ * under a unique index. An in-memory Bloom filter of all stored hashes answers most duplicate
+ * checks; only the rows it may have seen are looked up in the database, in one query per chunk.
+ * Each chunk is committed in its own transaction, so a failed import keeps the chunks before the
+ * failure and a retry of the same file skips them.
+ *
+ * <p>Invalid rows are rejected one by one instead of failing the file: they are stored with the
+ * reason and can be downloaded as a CSV file to be fixed and imported again. An import stops once
+ * more rows than its error budget are rejected.
+ *
+ * <p>Files sent with an idempotency key are imported at most once: a retry of a completed import
+ * returns its result without reading the file, and a retry of a failed one resumes it.
+ *
+ * <p>With sharded storage the shard of an imported ticket follows from its row hash, so a row
+ * always lands on the same shard and is deduplicated there. Each chunk commits one transaction per
+ * shard, then its progress and rejected rows on shard 0; rows committed before a failure in
+ * between are skipped as duplicates when the import resumes.
+ */
+@Service
+public class TicketImportService {
+
+  private static final Logger logger = LoggerFactory.getLogger(TicketImportService.class);
+
+  /** Columns of the CSV import and export format. */
+  public static final String[] CSV_HEADER = {"subject", "description", "status"};
+
+  /** Columns of the rejects file: the imported columns, the line and the reason. */
+  private static final String[] REJECTS_HEADER = {
+    "subject", "description", "status", "line", "error"
+  };
+
+  /** Maximum length of the subject and the description. */
+  static final int MAX_LENGTH = 255;
+
+  /** Maximum number of rejected rows listed in an import result. */
+  private static final int MAX_REPORTED_ERRORS = 100;
+
+  private final TicketRepository ticketRepository;
+  private final ImportRequestRepository importRequestRepository;
+  private final ImportRejectRepository importRejectRepository;
+  private final TicketMapper ticketMapper;
+  private final TicketAssignmentService ticketAssignmentService;
+  private final TicketShards ticketShards;
+  private final EntityManager entityManager;
+  private final TransactionTemplate transactionTemplate;
+  private final ApplicationEventPublisher eventPublisher;
+
+  /** Number of rows committed per transaction. */
+  private final int chunkSize;
+
+  /** Default number of rows that can be rejected before an import stops. */
+  private final int maxErrors;
+
+  /** Time after which an import without progress can be taken over, in milliseconds. */
+  private final long staleAfter;
+
+  /** Number of days import requests and their rejected rows are kept; 0 keeps them forever. */
+  private final int retentionDays;
+
+  /** Hashes of all imported rows. */
+  private final BloomFilter bloomFilter;
+
+  /** Whether the Bloom filter holds the hashes stored before startup. */
+  private volatile boolean bloomFilterLoaded;
+
+  /** Runs chunk commits while the next chunk is parsed. */
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  /**
+   * Constructor for dependency injection.
+   *
+   * @param ticketRepository the ticket repository
+   * @param importRequestRepository the import request repository
+   * @param importRejectRepository the import reject repository
+   * @param ticketMapper the ticket mapper
+   * @param ticketAssignmentService the ticket assignment service
+   * @param ticketShards the ticket shards
+   * @param entityManager the entity manager, cleared after each chunk
+   * @param transactionTemplate the transaction template used for each chunk
+   * @param eventPublisher the event publisher
+   * @param chunkSize number of rows committed per transaction
+   * @param maxErrors default number of rows that can be rejected before an import stops
+   * @param expectedRows expected number of imported rows, used to size the Bloom filter
+   * @param falsePositiveRate accepted false positive rate of the Bloom filter
+   * @param staleAfter time after which an import without progress can be taken over, in
+   *     milliseconds
+   * @param retentionDays number of days import requests and their rejected rows are kept after
+   *     their last update; 0 keeps them forever
+   */
+  public TicketImportService(
+      TicketRepository ticketRepository,
+      ImportRequestRepository importRequestRepository,
+      ImportRejectRepository importRejectRepository,
+      TicketMapper ticketMapper,
+      TicketAssignmentService ticketAssignmentService,
+      TicketShards ticketShards,
+      EntityManager entityManager,
+      TransactionTemplate transactionTemplate,
+      ApplicationEventPublisher eventPublisher,
+      @Value("${tickets.import.chunk-size:1000}") int chunkSize,
+      @Value("${tickets.import.max-errors:1000}") int maxErrors,
+      @Value("${tickets.import.bloom.expected-rows:10000000}") long expectedRows,
+      @Value("${tickets.import.bloom.false-positive-rate:0.01}") double falsePositiveRate,
+      @Value("${tickets.import.stale-after:3600000}") long staleAfter,
+      @Value("${tickets.import.retention-days:30}") int retentionDays) {
+    this.ticketRepository = ticketRepository;
+    this.importRequestRepository = importRequestRepository;
+    this.importRejectRepository = importRejectRepository;
+    this.ticketMapper = ticketMapper;
+    this.ticketAssignmentService = ticketAssignmentService;
+    this.ticketShards = ticketShards;
+    this.entityManager = entityManager;
+    this.transactionTemplate = transactionTemplate;
+    this.eventPublisher = eventPublisher;
+    this.chunkSize = chunkSize;
+    this.maxErrors = maxErrors;
+    this.staleAfter = staleAfter;
+    this.retentionDays = retentionDays;
+    this.bloomFilter = new BloomFilter(expectedRows, falsePositiveRate);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdown();
+  }
+
+  /** Loads the hashes of all imported rows into the Bloom filter. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadBloomFilter() {
+    logger.info("Loading import hashes into a {} bit Bloom filter", bloomFilter.getBitSize());
+    AtomicLong count = new AtomicLong();
+    transactionTemplate.executeWithoutResult(
+        status ->
+            ticketShards.forEachShard(
+                () -> {
+                  try (Stream<Long> hashes = ticketRepository.streamImportHashes()) {
+                    hashes.forEach(
+                        hash -> {
+                          bloomFilter.put(hash);
+                          count.incrementAndGet();
+                        });
+                  }
+                }));
+    bloomFilterLoaded = true;
+    logger.info("Loaded {} import hashes", count.get());
+  }
+
+  /**
+   * Deletes the import requests, with their rejected rows, that were last updated before the
+   * retention period.
+   *
+   * @return the number of deleted import requests
+   */
+  @Scheduled(cron = "${tickets.import.purge-cron:0 30 3 * * *}")
+  public int purgeExpiredImports() {
+    if (retentionDays <= 0) {
+      return 0;
+    }
+    Date cutoff = Date.from(Instant.now().minus(Duration.ofDays(retentionDays)));
+    return transactionTemplate.execute(
+        status -> {
+          int rejects = importRejectRepository.deleteByImportUpdatedBefore(cutoff);
+          int requests = importRequestRepository.deleteUpdatedBefore(cutoff);
+          logger.info(
+              "Purged {} imports and {} rejected rows older than {}", requests, rejects, cutoff);
+          return requests;
+        });
+  }
+
+  /**
+   * Imports tickets from an uploaded CSV file.
+   *
+   * @param file the CSV file
+   * @param idempotencyKey (optional) key identifying the file across retries
+   * @param maxErrors (optional) number of rows that can be rejected before the import stops; if
+   *     null, the configured default is used
+   * @param autoAssign whether to assign each imported ticket to the least-loaded support user
+   * @return the result of the import
+   * @see #importTickets(InputStreamSource, String, String, String, Integer, boolean)
+   */
+  public ImportResultDto importTickets(
+      MultipartFile file, String idempotencyKey, Integer maxErrors, boolean autoAssign) {
+    return importTickets(
+        file, file.getOriginalFilename(), null, idempotencyKey, maxErrors, autoAssign);
+  }
+
+  /**
+   * Imports tickets from CSV, skipping rows identical to an already imported one and rejecting
+   * invalid rows.
+   *
+   * <p>The input is parsed as it is read. Full chunks are committed in the background while the
+   * next chunk is parsed, so reading a slow upload and writing to the database overlap; at most
+   * one chunk is committed at a time. Gzip- and zstd-compressed input is decompressed on the fly.
+   *
+   * @param source the source of the CSV input; it is only opened if the import runs
+   * @param name the name of the input, for logging
+   * @param contentEncoding (optional) the content encoding of the input; if null, compressed input
+   *     is detected from its first bytes
+   * @param idempotencyKey (optional) key identifying the input across retries
+   * @param maxErrors (optional) number of rows that can be rejected before the import stops; if
+   *     null, the configured default is used
+   * @param autoAssign whether to assign each imported ticket to the least-loaded support user
+   * @return the result of the import; its state is {@link ImportRequest.State#FAILED} if the
+   *     error budget was exceeded
+   * @throws ResponseStatusException if maxErrors is negative, the content encoding is not
+   *     supported, the input cannot be read, or an import with the same key is in progress
+   */
+  public ImportResultDto importTickets(
+      InputStreamSource source,
+      String name,
+      String contentEncoding,
+      String idempotencyKey,
+      Integer maxErrors,
+      boolean autoAssign) {
+    logger.info("Importing tickets from: {} with idempotency key: {}", name, idempotencyKey);
+    if (maxErrors != null && maxErrors < 0) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "maxErrors must not be negative");
+    }
+    if (!Decompression.isSupported(contentEncoding)) {
+      throw new ResponseStatusException(
+          HttpStatus.UNSUPPORTED_MEDIA_TYPE, "Unsupported content encoding: " + contentEncoding);
+    }
+    String id = idempotencyKey == null ? UuidV7.generate().toString() : idempotencyKey;
+    ImportResultDto previous = claim(id);
+    if (previous != null) {
+      logger.info("Import {} already completed, returning its result", id);
+      return previous;
+    }
+    int errorBudget = maxErrors == null ? this.maxErrors : maxErrors;
+    ImportResultDto result =
+        ImportResultDto.builder()
+            .id(id)
+            .state(ImportRequest.State.IN_PROGRESS)
+            .errors(new ArrayList<>())
+            .build();
+    CompletableFuture<Void> commit = CompletableFuture.completedFuture(null);
+    try (InputStream in = Decompression.open(source.getInputStream(), contentEncoding)) {
+      CsvReader reader =
+          new CsvReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+      Date createdAt = Date.from(Instant.now());
+      Chunk chunk = new Chunk();
+      long rejected = 0;
+      boolean first = true;
+      List<String> tokens;
+      while ((tokens = reader.readRecord()) != null) {
+        if (isBlankRecord(tokens) || (first && isCsvHeader(tokens))) {
+          continue;
+        }
+        first = false;
+        try {
+          chunk.tickets.add(parse(tokens, createdAt));
+        } catch (IllegalArgumentException e) {
+          long line = reader.getLineNumber();
+          chunk.rejects.add(
+              ImportReject.builder()
+                  .importId(id)
+                  .line(line)
+                  .record(encode(tokens))
+                  .error(e.getMessage())
+                  .build());
+          if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(new ImportErrorDto(line, e.getMessage()));
+          }
+          rejected++;
+        }
+        if (rejected > errorBudget) {
+          await(commit);
+          commitChunk(chunk, result, autoAssign);
+          result.setError("More than " + errorBudget + " rows were rejected");
+          finish(result, ImportRequest.State.FAILED);
+          logger.warn(
+              "Stopped import {} after {} rejected rows, {} imported",
+              id,
+              rejected,
+              result.getImported());
+          return result;
+        }
+        if (chunk.size() >= chunkSize) {
+          await(commit);
+          Chunk full = chunk;
+          commit =
+              CompletableFuture.runAsync(() -> commitChunk(full, result, autoAssign), executor);
+          chunk = new Chunk();
+        }
+      }
+      await(commit);
+      commitChunk(chunk, result, autoAssign);
+    } catch (IOException e) {
+      logger.error("Error importing tickets from: {}", name, e);
+      commit.exceptionally(t -> null).join();
+      result.setError(e.getMessage());
+      finish(result, ImportRequest.State.FAILED);
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Could not read CSV input", e);
+    } catch (RuntimeException e) {
+      logger.error("Error importing tickets from: {}", name, e);
+      commit.exceptionally(t -> null).join();
+      result.setError(e.getMessage());
+      finish(result, ImportRequest.State.FAILED);
+      throw e;
+    }
+    finish(result, ImportRequest.State.COMPLETED);
+    logger.info(
+        "Imported {} tickets, skipped {} duplicates, rejected {} rows",
+        result.getImported(),
+        result.getDuplicates(),
+        result.getRejected());
+    return result;
+  }
+
+  /**
+   * Writes the rows rejected by an import as CSV, in the import format followed by the line and
+   * the reason of each row.
+   *
+   * @param id the import ID
+   * @param out the stream to write to; it is flushed but not closed
+   * @throws IOException if writing fails
+   * @throws ResponseStatusException if the import is unknown
+   */
+  @Transactional(readOnly = true)
+  public void exportRejects(String id, OutputStream out) throws IOException {
+    if (!importRequestRepository.existsById(id)) {
+      logger.warn("Import not found for id: {}", id);
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Import not found");
+    }
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    CsvWriter csv = new CsvWriter(writer);
+    csv.writeRecord(REJECTS_HEADER);
+    try (Stream<ImportReject> rejects = importRejectRepository.findAllByImportIdOrderByLine(id)) {
+      Iterator<ImportReject> iterator = rejects.iterator();
+      while (iterator.hasNext()) {
+        ImportReject reject = iterator.next();
+        List<String> fields = new CsvReader(new StringReader(reject.getRecord())).readRecord();
+        String[] record = new String[REJECTS_HEADER.length];
+        for (int i = 0; i < CSV_HEADER.length && i < fields.size(); i++) {
+          record[i] = fields.get(i);
+        }
+        record[CSV_HEADER.length] = String.valueOf(reject.getLine());
+        record[CSV_HEADER.length + 1] = reject.getError();
+        csv.writeRecord(record);
+      }
+    }
+    writer.flush();
+  }
+
+  /**
+   * Registers an import.
+   *
+   * @return the result of the completed import with that ID, or null if the import must run
+   * @throws ResponseStatusException if an import with the ID is in progress
+   */
+  private ImportResultDto claim(String id) {
+    Date now = new Date();
+    if (importRequestRepository.claim(id, now) == 1) {
+      return null;
+    }
+    if (importRequestRepository.reclaim(id, now, new Date(now.getTime() - staleAfter)) == 1) {
+      importRejectRepository.deleteByImportId(id);
+      return null;
+    }
+    ImportRequest request =
+        importRequestRepository
+            .findById(id)
+            .orElseThrow(
+                () -> new ResponseStatusException(HttpStatus.CONFLICT, "Import in progress"));
+    if (request.getState() != ImportRequest.State.COMPLETED) {
+      logger.warn("Import {} is already in progress", id);
+      throw new ResponseStatusException(HttpStatus.CONFLICT, "Import in progress");
+    }
+    return ImportResultDto.builder()
+        .id(id)
+        .state(request.getState())
+        .imported(request.getImported())
+        .duplicates(request.getDuplicates())
+        .rejected(request.getRejected() == null ? 0 : request.getRejected())
+        .errors(List.of())
+        .build();
+  }
+
+  /**
+   * Validates a row and builds its ticket.
+   *
+   * @throws IllegalArgumentException if the row is invalid, with the reason as message
+   */
+  private static Ticket parse(List<String> record, Date createdAt) {
+    if (record.size() < CSV_HEADER.length) {
+      throw new IllegalArgumentException(
+          "Expected " + CSV_HEADER.length + " columns but found " + record.size());
+    }
+    String subject = record.get(0);
+    String description = record.get(1);
+    if (StringUtils.isBlank(subject)) {
+      throw new IllegalArgumentException("Subject is empty");
+    }
+    if (subject.length() > MAX_LENGTH) {
+      throw new IllegalArgumentException("Subject is longer than " + MAX_LENGTH + " characters");
+    }
+    if (description.length() > MAX_LENGTH) {
+      throw new IllegalArgumentException(
+          "Description is longer than " + MAX_LENGTH + " characters");
+    }
+    Status status;
+    try {
+      status = Status.valueOf(record.get(2).strip());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown status: " + record.get(2));
+    }
+    return Ticket.builder()
+        .subject(subject)
+        .description(description)
+        .status(status)
+        .createdAt(createdAt)
+        .revision(0L)
+        .importHash(contentHash(subject, description, status))
+        .build();
+  }
+
+  /** Waits for a chunk committed in the background, rethrowing its failure. */
+  private static void await(CompletableFuture<Void> commit) {
+    try {
+      commit.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  private void commitChunk(Chunk chunk, ImportResultDto result, boolean autoAssign) {
+    if (chunk.size() == 0) {
+      return;
+    }
+    List<Ticket> saved;
+    if (!ticketShards.isSharded()) {
+      saved =
+          saveWithRecheck(
+              chunk.tickets,
+              checkAll ->
+                  transactionTemplate.execute(
+                      status -> {
+                        List<Ticket> accepted = saveTickets(chunk.tickets, autoAssign, checkAll);
+                        saveProgress(chunk, result, accepted.size());
+                        return accepted;
+                      }));
+    } else {
+      saved = new ArrayList<>();
+      for (Map.Entry<Integer, List<Ticket>> shard : byShard(chunk.tickets).entrySet()) {
+        saved.addAll(saveOnShard(shard.getKey(), shard.getValue(), autoAssign));
+      }
+      int accepted = saved.size();
+      ticketShards.on(
+          0,
+          () ->
+              transactionTemplate.execute(
+                  status -> {
+                    saveProgress(chunk, result, accepted);
+                    return null;
+                  }));
+    }
+    saved.forEach(ticket -> bloomFilter.put(ticket.getImportHash()));
+    result.setImported(result.getImported() + saved.size());
+    result.setDuplicates(result.getDuplicates() + chunk.tickets.size() - saved.size());
+    result.setRejected(result.getRejected() + chunk.rejects.size());
+    logger.debug(
+        "Committed chunk of {} rows, {} new, {} rejected",
+        chunk.size(),
+        saved.size(),
+        chunk.rejects.size());
+  }
+
+  /** Saves the new tickets among the given ones in a transaction on their shard. */
+  private List<Ticket> saveOnShard(int shard, List<Ticket> tickets, boolean autoAssign) {
+    return ticketShards.on(
+        shard,
+        () ->
+            saveWithRecheck(
+                tickets,
+                checkAll ->
+                    transactionTemplate.execute(
+                        status -> {
+                          List<Ticket> accepted = saveTickets(tickets, autoAssign, checkAll);
+                          clearPersistenceContext();
+                          return accepted;
+                        })));
+  }
+
+  /**
+   * Runs a save of tickets, and runs it again looking up every row in the database if an import
+   * hash conflicts.
+   *
+   * @param tickets the tickets, given their IDs before each attempt
+   * @param save the save, given whether to look up every row instead of only those the Bloom filter
+   *     may have seen
+   * @return the saved tickets
+   */
+  private List<Ticket> saveWithRecheck(
+      List<Ticket> tickets, Function<Boolean, List<Ticket>> save) {
+    assignIds(tickets);
+    try {
+      return save.apply(false);
+    } catch (DataIntegrityViolationException e) {
+      // Rows imported by another instance since startup are missing from the local Bloom filter
+      logger.info("Import hash conflict in chunk, checking every row against the database");
+      assignIds(tickets);
+      return save.apply(true);
+    }
+  }
+
+  /**
+   * Gives tickets new IDs, on the shard of their row hash when sharded, and marks them new. A
+   * rolled back attempt assigned IDs already; new ones make the rows be inserted, not merged.
+   */
+  private void assignIds(List<Ticket> tickets) {
+    for (Ticket ticket : tickets) {
+      ticket.setId(
+          ticketShards.isSharded() ? ticketShards.newId(shardOf(ticket.getImportHash())) : null);
+      ticket.setNewEntity(true);
+    }
+  }
+
+  /** Groups tickets by the shard of their row hash, in shard order. */
+  private Map<Integer, List<Ticket>> byShard(List<Ticket> tickets) {
+    Map<Integer, List<Ticket>> shards = new TreeMap<>();
+    for (Ticket ticket : tickets) {
+      shards.computeIfAbsent(shardOf(ticket.getImportHash()), s -> new ArrayList<>()).add(ticket);
+    }
+    return shards;
+  }
+
+  /** Returns the shard of a row hash; all rows with the same content land on the same shard. */
+  private int shardOf(long importHash) {
+    return (int) Math.floorMod(importHash, (long) ticketShards.getShardCount());
+  }
+
+  /**
+   * Saves the new tickets among the given ones; must run inside a transaction on their shard.
+   *
+   * @param checkAll whether to look up every row in the database instead of only those the Bloom
+   *     filter may have seen
+   * @return the saved tickets
+   */
+  private List<Ticket> saveTickets(List<Ticket> tickets, boolean autoAssign, boolean checkAll) {
+    List<Ticket> unique = deduplicate(tickets, checkAll);
+    if (autoAssign) {
+      unique.forEach(t -> t.setAssignedTo(ticketAssignmentService.assign(t)));
+    }
+    List<Ticket> accepted = ticketRepository.saveAllAndFlush(unique);
+    for (Ticket ticket : accepted) {
+      eventPublisher.publishEvent(
+          TicketChangeDto.builder()
+              .kind(TicketChangeDto.Kind.IMPORTED)
+              .ticket(ticketMapper.map(ticket))
+              .history(List.of())
+              .build());
+    }
+    return accepted;
+  }
+
+  /**
+   * Saves the rejected rows of a chunk and the progress of the import; must run inside a
+   * transaction on shard 0.
+   *
+   * @param accepted the number of tickets of the chunk saved
+   */
+  private void saveProgress(Chunk chunk, ImportResultDto result, int accepted) {
+    // A rolled back attempt assigned IDs; clear them so the rows are inserted, not merged
+    chunk.rejects.forEach(reject -> reject.setId(null));
+    importRejectRepository.saveAll(chunk.rejects);
+    importRequestRepository
+        .findById(result.getId())
+        .ifPresent(
+            request -> {
+              request.setImported(result.getImported() + accepted);
+              request.setDuplicates(result.getDuplicates() + chunk.tickets.size() - accepted);
+              request.setRejected(result.getRejected() + chunk.rejects.size());
+              request.setUpdatedAt(new Date());
+            });
+    clearPersistenceContext();
+  }
+
+  /** Keeps the persistence context small when it spans the whole request. */
+  private void clearPersistenceContext() {
+    entityManager.flush();
+    entityManager.clear();
+  }
+
+  /** Removes rows already imported before, or earlier in the same chunk. */
+  private List<Ticket> deduplicate(List<Ticket> chunk, boolean checkAll) {
+    List<Long> candidates = new ArrayList<>();
+    for (Ticket ticket : chunk) {
+      if (checkAll || !bloomFilterLoaded || bloomFilter.mightContain(ticket.getImportHash())) {
+        candidates.add(ticket.getImportHash());
+      }
+    }
+    Set<Long> existing =
+        candidates.isEmpty()
+            ? new HashSet<>()
+            : new HashSet<>(ticketRepository.findImportHashesIn(candidates));
+    List<Ticket> accepted = new ArrayList<>();
+    for (Ticket ticket : chunk) {
+      if (existing.add(ticket.getImportHash())) {
+        accepted.add(ticket);
+      }
+    }
+    return accepted;
+  }
+
+  private void finish(ImportResultDto result, ImportRequest.State state) {
+    result.setState(state);
+    transactionTemplate.executeWithoutResult(
+        status ->
+            importRequestRepository
+                .findById(result.getId())
+                .ifPresent(
+                    request -> {
+                      request.setState(state);
+                      request.setImported(result.getImported());
+                      request.setDuplicates(result.getDuplicates());
+                      request.setRejected(result.getRejected());
+                      request.setUpdatedAt(new Date());
+                    }));
+  }
+
+  private static boolean isBlankRecord(List<String> record) {
+    return record.size() == 1 && record.get(0).isBlank();
+  }
+
+  private static boolean isCsvHeader(List<String> record) {
+    return record.size() >= CSV_HEADER.length
+        && CSV_HEADER[CSV_HEADER.length - 1].equalsIgnoreCase(record.get(CSV_HEADER.length - 1));
+  }
+
+  /** Encodes a row as a single CSV record, without the line break. */
+  private static String encode(List<String> record) {
+    StringWriter out = new StringWriter();
+    try {
+      new CsvWriter(out).writeRecord(record.toArray(String[]::new));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return StringUtils.removeEnd(out.toString(), "\r\n");
+  }
+
+  /**
+   * Returns the hash identifying the content of an imported row.
+   *
+   * @param subject the subject
+   * @param description the description
+   * @param status the status
+   * @return the first 64 bits of the SHA-256 digest of the fields
+   */
+  static long contentHash(String subject, String description, Status status) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    for (String field : new String[] {subject, description, Objects.toString(status, "")}) {
+      digest.update(Objects.toString(field, "").getBytes(StandardCharsets.UTF_8));
+      // Unit separator, so that field boundaries are part of the hash
+      digest.update((byte) 0x1f);
+    }
+    return ByteBuffer.wrap(digest.digest()).getLong();
+  }
+
+  /** Parsed rows waiting to be committed. */
+  private static class Chunk {
+
+    private final List<Ticket> tickets = new ArrayList<>();
+    private final List<ImportReject> rejects = new ArrayList<>();
+
+    private int size() {
+      return tickets.size() + rejects.size();
+    }
+  }
+}
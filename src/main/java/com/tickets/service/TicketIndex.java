@@ -0,0 +1,329 @@
+package com.tickets.service;
+
+import com.tickets.dto.TicketChangeDto;
+import com.tickets.dto.TicketDto;
+import com.tickets.model.Status;
+import com.tickets.repository.TicketRepository;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.apache.commons.lang3.StringUtils;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * In-process index of tickets by status and assignee.
+ *
+ * <p>Every ticket gets a dense integer ordinal; each status and each assignee owns a compressed
+ * bitmap of the ordinals it covers. Triage queries (for example "open tickets for these users,
+ * grouped by status") become bitmap intersections and cardinality counts instead of SQL scans.
+ * The index is rebuilt from the database on startup and kept in sync from the {@link
+ * TicketChangeDto} events published by {@link TicketService}. Events received while a rebuild
+ * reads the database are applied as usual and replayed once the rebuilt content replaces the old
+ * one, so a change committed after its shard was read is not lost.
+ */
+@Service
+public class TicketIndex {
+
+  private static final Logger logger = LoggerFactory.getLogger(TicketIndex.class);
+
+  /** Repository used to rebuild the index on startup. */
+  private final TicketRepository ticketRepository;
+
+  /** Shards the index is rebuilt from. */
+  private final TicketShards ticketShards;
+
+  /** Whether the index is maintained at all. */
+  private final boolean enabled;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /** Ticket ID to ordinal. */
+  private final Map<UUID, Integer> ordinals = new HashMap<>();
+
+  /** Ordinal to ticket ID, status and assignee. */
+  private final List<UUID> ticketIds = new ArrayList<>();
+
+  private final List<Status> statuses = new ArrayList<>();
+  private final List<UUID> assignees = new ArrayList<>();
+
+  /** Ordinals of all indexed tickets. */
+  private final RoaringBitmap live = new RoaringBitmap();
+
+  private final Map<Status, RoaringBitmap> byStatus = new EnumMap<>(Status.class);
+  private final Map<UUID, RoaringBitmap> byAssignee = new HashMap<>();
+
+  /** Changes received during a rebuild, or null outside of one; guarded by the write lock. */
+  private List<TicketChangeDto> missed;
+
+  /**
+   * Constructor for dependency injection.
+   *
+   * @param ticketRepository the ticket repository
+   * @param ticketShards the ticket shards
+   * @param enabled whether the index is enabled
+   */
+  public TicketIndex(
+      TicketRepository ticketRepository,
+      TicketShards ticketShards,
+      @Value("${tickets.index.enabled:true}") boolean enabled) {
+    this.ticketRepository = ticketRepository;
+    this.ticketShards = ticketShards;
+    this.enabled = enabled;
+  }
+
+  /**
+   * Returns whether the index is enabled.
+   *
+   * @return true if the index is maintained
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Rebuilds the index from the database, discarding the current content. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    if (!enabled) {
+      logger.info("Ticket index is disabled, skipping rebuild");
+      return;
+    }
+    logger.info("Rebuilding ticket index");
+    lock.writeLock().lock();
+    try {
+      missed = new ArrayList<>();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    List<TicketRepository.IndexEntry> entries;
+    try {
+      entries = ticketShards.gather(ticketRepository::findAllIndexEntries);
+    } catch (RuntimeException e) {
+      lock.writeLock().lock();
+      missed = null;
+      lock.writeLock().unlock();
+      throw e;
+    }
+    int replayed;
+    lock.writeLock().lock();
+    try {
+      ordinals.clear();
+      ticketIds.clear();
+      statuses.clear();
+      assignees.clear();
+      live.clear();
+      byStatus.clear();
+      byAssignee.clear();
+      for (TicketRepository.IndexEntry entry : entries) {
+        doPut(entry.getId(), entry.getStatus(), entry.getAssignedToId());
+      }
+      missed.forEach(this::apply);
+      replayed = missed.size();
+    } finally {
+      missed = null;
+      lock.writeLock().unlock();
+    }
+    logger.info(
+        "Ticket index rebuilt with {} tickets, {} changes replayed", entries.size(), replayed);
+  }
+
+  /**
+   * Applies a committed ticket change to the index.
+   *
+   * @param change the ticket change
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onTicketChange(TicketChangeDto change) {
+    if (!enabled) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      if (missed != null) {
+        missed.add(change);
+      }
+      apply(change);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Adds or updates a ticket in the index.
+   *
+   * @param id the ticket ID
+   * @param status the ticket status
+   * @param assignee (optional) the assigned user ID
+   */
+  public void put(UUID id, Status status, UUID assignee) {
+    lock.writeLock().lock();
+    try {
+      doPut(id, status, assignee);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes a ticket from the index. Its ordinal is not reused until the next rebuild.
+   *
+   * @param id the ticket ID
+   */
+  public void remove(UUID id) {
+    lock.writeLock().lock();
+    try {
+      Integer ordinal = ordinals.remove(id);
+      if (ordinal == null) {
+        return;
+      }
+      unlink(ordinal);
+      live.remove(ordinal);
+      ticketIds.set(ordinal, null);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the ordinals of tickets matching the given status and assignees.
+   *
+   * @param status (optional) the status to match; if null, matches any status
+   * @param assignedTo (optional) the assignees to match; if empty, matches any assignee
+   * @return a new bitmap with the matching ordinals
+   */
+  public RoaringBitmap select(Status status, Collection<UUID> assignedTo) {
+    lock.readLock().lock();
+    try {
+      RoaringBitmap result;
+      if (status == null) {
+        result = live.clone();
+      } else {
+        result = byStatus.getOrDefault(status, new RoaringBitmap()).clone();
+      }
+      if (assignedTo != null && !assignedTo.isEmpty()) {
+        RoaringBitmap assigned = new RoaringBitmap();
+        for (UUID assignee : assignedTo) {
+          RoaringBitmap bitmap = byAssignee.get(assignee);
+          if (bitmap != null) {
+            assigned.or(bitmap);
+          }
+        }
+        result.and(assigned);
+      }
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Counts tickets per status, optionally restricted to a set of assignees.
+   *
+   * @param assignedTo (optional) the assignees to match; if empty, counts all tickets
+   * @return number of tickets per status
+   */
+  public Map<Status, Long> countByStatus(Collection<UUID> assignedTo) {
+    RoaringBitmap assigned = select(null, assignedTo);
+    Map<Status, Long> counts = new EnumMap<>(Status.class);
+    lock.readLock().lock();
+    try {
+      for (Status status : Status.values()) {
+        RoaringBitmap bitmap = byStatus.get(status);
+        counts.put(status, bitmap == null ? 0L : RoaringBitmap.andCardinality(bitmap, assigned));
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    return counts;
+  }
+
+  /**
+   * Resolves a page of ticket IDs from a bitmap, in ordinal order.
+   *
+   * @param bitmap the ordinals, as returned by {@link #select}
+   * @param offset the number of matches to skip
+   * @param limit the maximum number of IDs to return
+   * @return the ticket IDs of the page
+   */
+  public List<UUID> page(RoaringBitmap bitmap, long offset, int limit) {
+    List<UUID> result = new ArrayList<>();
+    if (offset >= bitmap.getLongCardinality() || limit <= 0) {
+      return result;
+    }
+    PeekableIntIterator iterator = bitmap.getIntIterator();
+    iterator.advanceIfNeeded(bitmap.select((int) offset));
+    lock.readLock().lock();
+    try {
+      while (iterator.hasNext() && result.size() < limit) {
+        UUID id = ticketIds.get(iterator.next());
+        if (id != null) {
+          result.add(id);
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    return result;
+  }
+
+  private void apply(TicketChangeDto change) {
+    TicketDto ticket = change.getTicket();
+    UUID assignee =
+        StringUtils.isBlank(ticket.getAssignedTo())
+            ? null
+            : UUID.fromString(ticket.getAssignedTo());
+    doPut(ticket.getId(), ticket.getStatus(), assignee);
+  }
+
+  private void doPut(UUID id, Status status, UUID assignee) {
+    Integer ordinal = ordinals.get(id);
+    if (ordinal == null) {
+      ordinal = ticketIds.size();
+      ordinals.put(id, ordinal);
+      ticketIds.add(id);
+      statuses.add(null);
+      assignees.add(null);
+    } else {
+      unlink(ordinal);
+    }
+    statuses.set(ordinal, status);
+    assignees.set(ordinal, assignee);
+    live.add(ordinal);
+    if (status != null) {
+      byStatus.computeIfAbsent(status, s -> new RoaringBitmap()).add(ordinal);
+    }
+    if (assignee != null) {
+      byAssignee.computeIfAbsent(assignee, a -> new RoaringBitmap()).add(ordinal);
+    }
+  }
+
+  private void unlink(int ordinal) {
+    Status status = statuses.get(ordinal);
+    if (status != null) {
+      byStatus.get(status).remove(ordinal);
+    }
+    UUID assignee = assignees.get(ordinal);
+    if (assignee != null) {
+      RoaringBitmap bitmap = byAssignee.get(assignee);
+      bitmap.remove(ordinal);
+      if (bitmap.isEmpty()) {
+        byAssignee.remove(assignee);
+      }
+    }
+    statuses.set(ordinal, null);
+    assignees.set(ordinal, null);
+  }
+}
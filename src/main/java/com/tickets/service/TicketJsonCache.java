@@ -0,0 +1,118 @@
+package com.tickets.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tickets.dto.TicketChangeDto;
+import com.tickets.model.Ticket;
+import com.tickets.util.TicketMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.io.ByteArrayOutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Cache of the JSON encoding of tickets.
+ *
+ * <p>Each entry holds the encoded {@link com.tickets.dto.TicketDto} of a ticket together with the
+ * revision it was encoded at; an entry is only used for a ticket at the same revision, so a stale
+ * encoding is never served even if an invalidation is missed. Entries are also dropped when a
+ * change of the ticket commits. Lists are assembled by concatenating the cached fragments.
+ */
+@Service
+public class TicketJsonCache {
+
+  /** The encoding of a ticket at a revision. */
+  private static record Fragment(long revision, byte[] json) {}
+
+  private final TicketMapper ticketMapper;
+  private final ObjectMapper objectMapper;
+  private final Cache<UUID, Fragment> cache;
+
+  /**
+   * Constructor for dependency injection.
+   *
+   * @param ticketMapper the ticket mapper
+   * @param objectMapper the object mapper used for JSON responses
+   * @param meterRegistry the meter registry
+   * @param maxSize maximum number of cached tickets; 0 disables the cache
+   */
+  public TicketJsonCache(
+      TicketMapper ticketMapper,
+      ObjectMapper objectMapper,
+      MeterRegistry meterRegistry,
+      @Value("${tickets.json-cache.max-size:10000}") long maxSize) {
+    this.ticketMapper = ticketMapper;
+    this.objectMapper = objectMapper;
+    this.cache = Caffeine.newBuilder().maximumSize(maxSize).recordStats().build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "tickets.json");
+  }
+
+  /**
+   * Returns the JSON encoding of a ticket, encoding it on a miss.
+   *
+   * @param ticket the Ticket entity
+   * @return the encoded TicketDto; must not be modified
+   */
+  public byte[] get(Ticket ticket) {
+    long revision = ticket.getRevision() == null ? -1 : ticket.getRevision();
+    Fragment fragment = cache.getIfPresent(ticket.getId());
+    if (fragment == null || fragment.revision() != revision) {
+      fragment = new Fragment(revision, encode(ticket));
+      cache.put(ticket.getId(), fragment);
+    }
+    return fragment.json();
+  }
+
+  /**
+   * Returns the JSON array of the encodings of tickets.
+   *
+   * @param tickets the Ticket entities
+   * @return the encoded list of TicketDto
+   */
+  public byte[] getAll(List<Ticket> tickets) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write('[');
+    for (int i = 0; i < tickets.size(); i++) {
+      if (i > 0) {
+        out.write(',');
+      }
+      out.writeBytes(get(tickets.get(i)));
+    }
+    out.write(']');
+    return out.toByteArray();
+  }
+
+  /**
+   * Drops the cached encoding of a ticket.
+   *
+   * @param id the ticket ID
+   */
+  public void evict(UUID id) {
+    cache.invalidate(id);
+  }
+
+  /**
+   * Drops the cached encoding of a ticket once its change commits.
+   *
+   * @param change the ticket change
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onTicketChange(TicketChangeDto change) {
+    evict(change.getTicket().getId());
+  }
+
+  private byte[] encode(Ticket ticket) {
+    try {
+      return objectMapper.writeValueAsBytes(ticketMapper.map(ticket));
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
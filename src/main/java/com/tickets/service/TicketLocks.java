@@ -0,0 +1,152 @@
+package com.tickets.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Striped in-process locks serializing concurrent changes of the same ticket.
+ *
+ * <p>Each ticket ID maps to one of a fixed number of locks, so memory does not grow with the
+ * number of tickets; unrelated tickets sharing a stripe only wait for each other. A caller waits
+ * at most the configured timeout, then gets <code>409</code>. Callers take the lock before starting
+ * their transaction and release it after the commit, so a waiting caller holds no pooled
+ * connection and the next writer of the ticket reads the committed change. Taken inside a
+ * transaction, the lock is held until it completes.
+ */
+@Service
+public class TicketLocks {
+
+  private static final Logger logger = LoggerFactory.getLogger(TicketLocks.class);
+
+  private final ReentrantLock[] stripes;
+
+  /** Maximum wait for a lock, in milliseconds. */
+  private final long timeout;
+
+  private final AtomicInteger waiting = new AtomicInteger();
+  private final AtomicLong acquired = new AtomicLong();
+  private final Counter contended;
+  private final Counter timeouts;
+  private final Timer waitTimer;
+
+  /**
+   * Constructor for dependency injection.
+   *
+   * @param meterRegistry the meter registry
+   * @param stripes number of locks shared by all tickets
+   * @param timeout maximum wait for a lock, in milliseconds
+   */
+  public TicketLocks(
+      MeterRegistry meterRegistry,
+      @Value("${tickets.locks.stripes:1024}") int stripes,
+      @Value("${tickets.locks.timeout:2000}") long timeout) {
+    if (stripes < 1) {
+      throw new IllegalArgumentException("At least one lock stripe is required");
+    }
+    this.stripes = new ReentrantLock[stripes];
+    for (int i = 0; i < stripes; i++) {
+      this.stripes[i] = new ReentrantLock();
+    }
+    this.timeout = timeout;
+    FunctionCounter.builder("tickets.locks.acquired", acquired, AtomicLong::get)
+        .register(meterRegistry);
+    Gauge.builder("tickets.locks.waiting", waiting, AtomicInteger::get).register(meterRegistry);
+    this.contended = Counter.builder("tickets.locks.contended").register(meterRegistry);
+    this.timeouts = Counter.builder("tickets.locks.timeouts").register(meterRegistry);
+    this.waitTimer = Timer.builder("tickets.locks.wait").register(meterRegistry);
+  }
+
+  /**
+   * Runs an action while holding the lock of a ticket. Inside a transaction the lock is released
+   * when the transaction completes, otherwise when the action returns.
+   *
+   * @param id the ticket ID
+   * @param action the action
+   * @return the result of the action
+   * @throws ResponseStatusException if the lock is not acquired within the timeout
+   */
+  public <T> T withLock(UUID id, Supplier<T> action) {
+    ReentrantLock lock = stripeOf(id);
+    acquire(id, lock);
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      try {
+        return action.get();
+      } finally {
+        lock.unlock();
+      }
+    }
+    try {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+              lock.unlock();
+            }
+          });
+    } catch (RuntimeException e) {
+      lock.unlock();
+      throw e;
+    }
+    return action.get();
+  }
+
+  /**
+   * Returns whether the lock of a ticket is held by any thread.
+   *
+   * @param id the ticket ID
+   * @return true if the stripe of the ticket is locked
+   */
+  public boolean isLocked(UUID id) {
+    return stripeOf(id).isLocked();
+  }
+
+  private void acquire(UUID id, ReentrantLock lock) {
+    if (lock.tryLock()) {
+      acquired.incrementAndGet();
+      return;
+    }
+    contended.increment();
+    waiting.incrementAndGet();
+    long start = System.nanoTime();
+    boolean locked;
+    try {
+      locked = lock.tryLock(timeout, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      locked = false;
+    } finally {
+      waiting.decrementAndGet();
+      waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+    if (!locked) {
+      timeouts.increment();
+      logger.warn("Timed out after {} ms waiting for the lock of ticket {}", timeout, id);
+      throw new ResponseStatusException(
+          HttpStatus.CONFLICT, "Ticket is being updated, retry later");
+    }
+    acquired.incrementAndGet();
+    logger.debug("Acquired contended lock of ticket {}", id);
+  }
+
+  private ReentrantLock stripeOf(UUID id) {
+    // The low bits of a version 7 UUID are random, the high bits a timestamp
+    return stripes[Math.floorMod(id.hashCode(), stripes.length)];
+  }
+}
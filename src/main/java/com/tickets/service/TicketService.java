@@ -1,5 +1,6 @@
 package com.tickets.service;
 
+import com.tickets.dto.TicketChangeDto;
 import com.tickets.dto.TicketCreationDto;
 import com.tickets.dto.TicketDto;
 import com.tickets.dto.TicketHistoryDto;
@@ -8,32 +9,51 @@ import com.tickets.model.ChangeType;
 import com.tickets.model.Status;
 import com.tickets.model.Ticket;
 import com.tickets.model.TicketHistory;
+import com.tickets.model.User;
 import com.tickets.repository.TicketHistoryRepository;
 import com.tickets.repository.TicketRepository;
+import com.tickets.repository.TicketRepositoryCustom;
+import com.tickets.util.CsvWriter;
 import com.tickets.util.TicketMapper;
-import java.io.BufferedReader;
+import io.micrometer.observation.annotation.Observed;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.time.Instant;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 /**
  * Service class for handling business logic related to tickets.
  *
- * <p>Provides methods for creating, updating, retrieving history, and importing tickets.
+ * <p>Provides methods for creating, updating, retrieving history, and importing tickets. Every
+ * write publishes a {@link TicketChangeDto} inside its transaction; listeners use it to record the
+ * outbox event atomically with the change and, after commit, to update derived views.
  */
+@Observed(name = "tickets.service")
 @Service
 public class TicketService {
 
@@ -48,51 +68,297 @@ public class TicketService {
   /** Mapper for converting between DTOs and entities. */
   private final TicketMapper ticketMapper;
 
+  /** In-memory index of tickets by status and assignee. */
+  private final TicketIndex ticketIndex;
+
+  /** Cache of the JSON encoding of tickets. */
+  private final TicketJsonCache ticketJsonCache;
+
+  /** Service assigning tickets to the least-loaded support user. */
+  private final TicketAssignmentService ticketAssignmentService;
+
+  /** Service for archived tickets. */
+  private final TicketArchiveService ticketArchiveService;
+
+  /** Service for ticket snapshots and past states. */
+  private final TicketSnapshotService ticketSnapshotService;
+
+  /** Routing of ticket operations to the shard owning the ticket. */
+  private final TicketShards ticketShards;
+
+  /** Locks serializing concurrent updates of the same ticket. */
+  private final TicketLocks ticketLocks;
+
+  /** Template for the transaction of an update, started once the ticket lock is held. */
+  private final TransactionTemplate transactionTemplate;
+
+  /** Publisher for ticket change events. */
+  private final ApplicationEventPublisher eventPublisher;
+
   /**
    * Constructor for dependency injection.
    *
    * @param ticketRepository the ticket repository
    * @param ticketHistoryRepository the ticket history repository
    * @param ticketMapper the ticket mapper
+   * @param ticketIndex the ticket index
+   * @param ticketJsonCache the ticket JSON cache
+   * @param ticketAssignmentService the ticket assignment service
+   * @param ticketSnapshotService the ticket snapshot service
+   * @param ticketArchiveService the ticket archive service
+   * @param ticketShards the ticket shards
+   * @param ticketLocks the ticket locks
+   * @param transactionTemplate the transaction template used for each update
+   * @param eventPublisher the event publisher
    */
   public TicketService(
       TicketRepository ticketRepository,
       TicketHistoryRepository ticketHistoryRepository,
-      TicketMapper ticketMapper) {
+      TicketMapper ticketMapper,
+      TicketIndex ticketIndex,
+      TicketJsonCache ticketJsonCache,
+      TicketAssignmentService ticketAssignmentService,
+      TicketSnapshotService ticketSnapshotService,
+      TicketArchiveService ticketArchiveService,
+      TicketShards ticketShards,
+      TicketLocks ticketLocks,
+      TransactionTemplate transactionTemplate,
+      ApplicationEventPublisher eventPublisher) {
     this.ticketRepository = ticketRepository;
     this.ticketHistoryRepository = ticketHistoryRepository;
     this.ticketMapper = ticketMapper;
+    this.ticketIndex = ticketIndex;
+    this.ticketJsonCache = ticketJsonCache;
+    this.ticketAssignmentService = ticketAssignmentService;
+    this.ticketSnapshotService = ticketSnapshotService;
+    this.ticketArchiveService = ticketArchiveService;
+    this.ticketShards = ticketShards;
+    this.ticketLocks = ticketLocks;
+    this.transactionTemplate = transactionTemplate;
+    this.eventPublisher = eventPublisher;
   }
 
   /**
-   * Retrieves a list of tickets.
+   * Retrieves a list of tickets, gathered from every shard.
    *
    * @param assignedToUserId (optional) the assigned user ID to filter by; if blank, returns all
    *     tickets
-   * @return list of ticket DTOs
+   * @param archived whether to read archived tickets instead of active ones
+   * @param page the zero-based page number; ignored without a page size
+   * @param size (optional) the page size; if null, returns all tickets
+   * @return list of ticket DTOs, in ID order when paged
+   * @throws ResponseStatusException if the page or the size is out of range
    */
-  public List<TicketDto> getTikets(String assignedToUserId) {
+  @Transactional(readOnly = true)
+  public List<TicketDto> getTikets(
+      String assignedToUserId, boolean archived, int page, Integer size) {
+    if (archived) {
+      return ticketArchiveService.getArchivedTickets(assignedToUserId, page, size);
+    }
+    return findTickets(assignedToUserId, page, size).stream()
+        .map(ticketMapper::map)
+        .collect(Collectors.toList());
+  }
 
-    List<Ticket> tickets;
-    if (StringUtils.isBlank(assignedToUserId)) {
-      tickets = ticketRepository.findAll();
-    } else {
-      tickets = ticketRepository.findAllByAssignedTo_Id(UUID.fromString(assignedToUserId));
+  /**
+   * Retrieves a list of tickets as a JSON array, assembled from cached encodings of the tickets.
+   *
+   * @param assignedToUserId (optional) the assigned user ID to filter by; if blank, returns all
+   *     tickets
+   * @param page the zero-based page number; ignored without a page size
+   * @param size (optional) the page size; if null, returns all tickets
+   * @return the JSON array of ticket DTOs
+   * @throws ResponseStatusException if the page or the size is out of range
+   */
+  @Transactional(readOnly = true)
+  public byte[] getTicketsJson(String assignedToUserId, int page, Integer size) {
+    return ticketJsonCache.getAll(findTickets(assignedToUserId, page, size));
+  }
+
+  /**
+   * Retrieves selected fields of tickets. Only the requested columns are read from the database;
+   * the ticket ID is always included.
+   *
+   * @param assignedToUserId (optional) the assigned user ID to filter by; if blank, returns all
+   *     tickets
+   * @param fields the fields to return
+   * @param archived whether to read archived tickets; not supported with sparse fields
+   * @return one map of field name to value per ticket
+   * @throws ResponseStatusException if a field is unknown or archived tickets are requested
+   */
+  @Transactional(readOnly = true)
+  public List<Map<String, Object>> getTicketFields(
+      String assignedToUserId, List<String> fields, boolean archived) {
+    logger.info("Retrieving fields {} of tickets for user: {}", fields, assignedToUserId);
+    if (archived) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "Fields cannot be selected for archived tickets");
+    }
+    Set<String> selected = new LinkedHashSet<>();
+    selected.add("id");
+    for (String field : fields) {
+      if (!TicketRepositoryCustom.FIELDS.contains(field)) {
+        logger.warn("Unknown ticket field requested: {}", field);
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown field: " + field);
+      }
+      selected.add(field);
+    }
+    UUID assignedTo =
+        StringUtils.isBlank(assignedToUserId) ? null : UUID.fromString(assignedToUserId);
+    return ticketShards.gather(
+        () ->
+            ticketRepository.findFields(new ArrayList<>(selected), assignedTo).stream()
+                .map(ticketMapper::map)
+                .collect(Collectors.toList()));
+  }
+
+  /**
+   * Writes tickets as CSV in the bulk import format, streaming them from a database cursor.
+   *
+   * @param status (optional) the status to filter by
+   * @param assignedToUserId (optional) the assigned user ID to filter by
+   * @param out the stream to write to; it is flushed but not closed
+   * @throws IOException if writing fails
+   */
+  @Transactional(readOnly = true)
+  public void exportTickets(Status status, String assignedToUserId, OutputStream out)
+      throws IOException {
+    logger.info("Exporting tickets with status: {} for user: {}", status, assignedToUserId);
+    UUID assignedTo =
+        StringUtils.isBlank(assignedToUserId) ? null : UUID.fromString(assignedToUserId);
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    CsvWriter csv = new CsvWriter(writer);
+    csv.writeRecord(TicketImportService.CSV_HEADER);
+    AtomicLong count = new AtomicLong();
+    try {
+      ticketShards.forEachShard(() -> count.addAndGet(writeCsvRows(csv, status, assignedTo)));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    writer.flush();
+    logger.info("Exported {} tickets", count.get());
+  }
+
+  /**
+   * Retrieves a ticket, either in its current state or as it was at a past time.
+   *
+   * @param id the ticket ID
+   * @param asOf (optional) the time to rebuild the ticket state at; if null, returns the current
+   *     state
+   * @param archived whether to read the ticket from the archive; past states are not available
+   *     for archived tickets
+   * @return the ticket DTO
+   * @throws ResponseStatusException if the ticket is not found or did not exist at that time
+   */
+  @Transactional(readOnly = true)
+  public TicketDto getTicket(String id, Date asOf, boolean archived) {
+    logger.info("Retrieving ticket id: {} as of: {}", id, asOf);
+    if (archived) {
+      if (asOf != null) {
+        throw new ResponseStatusException(
+            HttpStatus.BAD_REQUEST, "Past states are not available for archived tickets");
+      }
+      return ticketArchiveService.getArchivedTicket(id);
+    }
+    Ticket ticket = findTicket(id);
+    if (asOf == null) {
+      return ticketMapper.map(ticket);
+    }
+    return ticketSnapshotService
+        .reconstruct(ticket, asOf)
+        .orElseThrow(
+            () -> {
+              logger.warn("Ticket {} did not exist as of {}", id, asOf);
+              return new ResponseStatusException(HttpStatus.NOT_FOUND, "Ticket not found");
+            });
+  }
+
+  /**
+   * Retrieves the current state of a ticket as JSON, from the cached encoding of the ticket.
+   *
+   * @param id the ticket ID
+   * @return the JSON ticket DTO
+   * @throws ResponseStatusException if the ticket is not found
+   */
+  @Transactional(readOnly = true)
+  public byte[] getTicketJson(String id) {
+    logger.info("Retrieving ticket id: {} as JSON", id);
+    return ticketJsonCache.get(findTicket(id));
+  }
+
+  /**
+   * Retrieves a page of tickets matching a status and a set of assignees, resolved through the
+   * in-memory ticket index.
+   *
+   * @param status (optional) the status to filter by
+   * @param assignedToUserIds (optional) the assigned user IDs to filter by; if empty, matches any
+   *     assignee
+   * @param page the zero-based page number
+   * @param size the page size
+   * @return list of ticket DTOs, in creation order
+   * @throws ResponseStatusException if the ticket index is disabled, or if the page or the size is
+   *     out of range
+   */
+  @Transactional(readOnly = true)
+  public List<TicketDto> getTriageTickets(
+      Status status, List<String> assignedToUserIds, int page, int size) {
+    logger.info(
+        "Retrieving triage tickets with status: {} for users: {}", status, assignedToUserIds);
+    requireIndex();
+    if (page < 0 || size < 1) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid page or size");
     }
+    List<UUID> ids =
+        ticketIndex.page(
+            ticketIndex.select(status, toUuids(assignedToUserIds)), (long) page * size, size);
+    Map<UUID, Ticket> tickets =
+        ticketShards.gather(() -> ticketRepository.findAllById(ids)).stream()
+            .collect(Collectors.toMap(Ticket::getId, t -> t));
+    return ids.stream()
+        .map(tickets::get)
+        .filter(t -> t != null)
+        .map(ticketMapper::map)
+        .collect(Collectors.toList());
+  }
 
-    return tickets.stream().map(ticketMapper::map).collect(Collectors.toList());
+  /**
+   * Counts tickets per status, optionally restricted to a set of assignees.
+   *
+   * @param assignedToUserIds (optional) the assigned user IDs to filter by; if empty, counts all
+   *     tickets
+   * @return number of tickets per status
+   * @throws ResponseStatusException if the ticket index is disabled
+   */
+  public Map<Status, Long> getTriageCounts(List<String> assignedToUserIds) {
+    logger.info("Counting triage tickets for users: {}", assignedToUserIds);
+    requireIndex();
+    return ticketIndex.countByStatus(toUuids(assignedToUserIds));
   }
 
   /**
-   * Creates a new ticket.
+   * Creates a new ticket, optionally assigned to the least-loaded support user.
    *
    * @param ticketDto the ticket creation DTO
    * @return the created ticket as a DTO
    */
+  @Transactional
   public TicketDto createTicket(TicketCreationDto ticketDto) {
     logger.info("Creating new ticket with subject: {}", ticketDto.getSubject());
     Ticket ticket = ticketMapper.map(ticketDto);
-    TicketDto result = ticketMapper.map(ticketRepository.saveAndFlush(ticket));
+    if (ticketDto.isAutoAssign()) {
+      ticket.setAssignedTo(ticketAssignmentService.assign(ticket));
+    }
+    Ticket saved = ticketRepository.save(ticket);
+    // The ID is assigned on persist, before any statement ran, so the insert can still be routed
+    ticketShards.route(saved.getId());
+    ticketRepository.flush();
+    TicketDto result = ticketMapper.map(saved);
+    eventPublisher.publishEvent(
+        TicketChangeDto.builder()
+            .kind(TicketChangeDto.Kind.CREATED)
+            .ticket(result)
+            .history(List.of())
+            .build());
     logger.debug("Created ticket: {}", result);
     return result;
   }
@@ -100,26 +366,26 @@ public class TicketService {
   /**
    * Updates an existing ticket by ID.
    *
+   * <p>The lock of the ticket is taken before the transaction starts and released after it
+   * commits, so updates waiting for a hot ticket do not hold a pooled connection.
+   *
    * @param id the ticket ID
    * @param tickerUpdateDto the ticket update DTO
    * @return the updated ticket as a DTO
-   * @throws ResponseStatusException if the ticket is not found
+   * @throws ResponseStatusException if the ticket is not found, or if another update of it does not
+   *     finish in time
    */
   public TicketDto updateTicket(String id, TicketUpdateDto tickerUpdateDto) {
     logger.info("Updating ticket with id: {}", id);
-    Optional<Ticket> optionalTicket = ticketRepository.findById(UUID.fromString(id));
-    Ticket ticket =
-        optionalTicket.orElseThrow(
-            () -> {
-              logger.warn("Ticket not found for id: {}", id);
-              return new ResponseStatusException(HttpStatus.NOT_FOUND, "Ticket not found");
-            });
-    List<TicketHistory> ticketHistory = ticketMapper.update(ticket, tickerUpdateDto);
-    logger.debug("Ticket history updates: {}", ticketHistory);
-    ticket.getTicketHistory().addAll(ticketHistoryRepository.saveAllAndFlush(ticketHistory));
-    TicketDto result = ticketMapper.map(ticketRepository.saveAndFlush(ticket));
-    logger.debug("Updated ticket: {}", result);
-    return result;
+    UUID ticketId = UUID.fromString(id);
+    return ticketLocks.withLock(
+        ticketId,
+        () ->
+            transactionTemplate.execute(
+                status -> {
+                  ticketShards.route(ticketId);
+                  return applyUpdate(ticketId, tickerUpdateDto);
+                }));
   }
 
   /**
@@ -127,11 +393,17 @@ public class TicketService {
    *
    * @param id the ticket ID
    * @param type (optional) the change type to filter by
+   * @param archived whether to read the history of an archived ticket
    * @return list of ticket history DTOs
    * @throws ResponseStatusException if the ticket is not found
    */
-  public List<TicketHistoryDto> getTicketHistory(String id, ChangeType type) {
+  @Transactional(readOnly = true)
+  public List<TicketHistoryDto> getTicketHistory(String id, ChangeType type, boolean archived) {
     logger.info("Retrieving history for ticket id: {} with change type: {}", id, type);
+    if (archived) {
+      return ticketArchiveService.getArchivedTicketHistory(id, type);
+    }
+    ticketShards.route(UUID.fromString(id));
     Optional<Ticket> optionalTicket = ticketRepository.findById(UUID.fromString(id));
     Ticket ticket =
         optionalTicket.orElseThrow(
@@ -139,50 +411,118 @@ public class TicketService {
               logger.warn("Ticket not found for id: {}", id);
               return new ResponseStatusException(HttpStatus.NOT_FOUND, "Ticket not found");
             });
-    List<TicketHistoryDto> result;
+    List<TicketHistory> history;
     if (type == null) {
-      result =
-          ticket.getTicketHistory().stream().map(ticketMapper::map).collect(Collectors.toList());
+      history = ticket.getTicketHistory();
     } else {
-      result =
+      history =
           ticket.getTicketHistory().stream()
               .filter(th -> th.getType().equals(type))
-              .map(ticketMapper::map)
               .collect(Collectors.toList());
     }
+    List<TicketHistoryDto> result = ticketMapper.map(ticket, history);
     logger.debug("Ticket history result: {}", result);
     return result;
   }
 
-  /**
-   * Imports tickets from a CSV file.
-   *
-   * @param file the CSV file containing tickets
-   */
-  public void importTickets(MultipartFile file) {
-    logger.info("Importing tickets from file: {}", file.getOriginalFilename());
-    try {
-      BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream()));
-      Date createdAt = Date.from(Instant.now());
-      List<Ticket> importedTickets = new ArrayList<>();
-      while (reader.ready()) {
-        String line = reader.readLine();
-        String[] tokens = line.split(",");
-        Ticket ticket =
-            Ticket.builder()
-                .subject(tokens[0])
-                .description(tokens[1])
-                .status(Status.valueOf(tokens[2]))
-                .createdAt(createdAt)
-                .build();
-        importedTickets.add(ticket);
-        logger.debug("Parsed ticket from CSV: {}", ticket);
+  /** Loads, updates and persists a ticket; runs under the lock of the ticket. */
+  private TicketDto applyUpdate(UUID id, TicketUpdateDto tickerUpdateDto) {
+    Optional<Ticket> optionalTicket = ticketRepository.findById(id);
+    Ticket ticket =
+        optionalTicket.orElseThrow(
+            () -> {
+              logger.warn("Ticket not found for id: {}", id);
+              return new ResponseStatusException(HttpStatus.NOT_FOUND, "Ticket not found");
+            });
+    long previousRevision = ticket.getRevision() == null ? 0 : ticket.getRevision();
+    if (tickerUpdateDto.isAutoAssign() && StringUtils.isBlank(tickerUpdateDto.getAssignedTo())) {
+      User user = ticketAssignmentService.assign(ticket);
+      if (user != null) {
+        tickerUpdateDto.setAssignedTo(user.getId().toString());
+      }
+    }
+    List<TicketHistory> ticketHistory = ticketMapper.update(ticket, tickerUpdateDto);
+    logger.debug("Ticket history updates: {}", ticketHistory);
+    List<TicketHistory> savedHistory = ticketHistoryRepository.saveAllAndFlush(ticketHistory);
+    ticket.getTicketHistory().addAll(savedHistory);
+    TicketDto result = ticketMapper.map(ticketRepository.saveAndFlush(ticket));
+    ticketSnapshotService.recordUpdate(ticket, previousRevision);
+    eventPublisher.publishEvent(
+        TicketChangeDto.builder()
+            .kind(TicketChangeDto.Kind.UPDATED)
+            .ticket(result)
+            .history(ticketMapper.map(ticket, savedHistory))
+            .build());
+    logger.debug("Updated ticket: {}", result);
+    return result;
+  }
+
+  private List<Ticket> findTickets(String assignedToUserId, int page, Integer size) {
+    UUID assignedTo =
+        StringUtils.isBlank(assignedToUserId) ? null : UUID.fromString(assignedToUserId);
+    if (size == null) {
+      return ticketShards.gather(
+          () ->
+              assignedTo == null
+                  ? ticketRepository.findAll()
+                  : ticketRepository.findAllByAssignedTo_Id(assignedTo));
+    }
+    return ticketShards.gatherPage(
+        pageable ->
+            assignedTo == null
+                ? ticketRepository.findAllBy(pageable)
+                : ticketRepository.findAllByAssignedTo_Id(assignedTo, pageable),
+        TicketShards.BY_ID,
+        Comparator.comparing(Ticket::getId, TicketShards.ID_ORDER),
+        page,
+        size);
+  }
+
+  /** Writes the CSV rows of the current shard; must run inside a transaction. */
+  private long writeCsvRows(CsvWriter csv, Status status, UUID assignedTo) {
+    long count = 0;
+    try (Stream<TicketRepository.CsvRow> rows =
+        ticketRepository.streamCsvRows(status, assignedTo)) {
+      Iterator<TicketRepository.CsvRow> iterator = rows.iterator();
+      while (iterator.hasNext()) {
+        TicketRepository.CsvRow row = iterator.next();
+        csv.writeRecord(
+            row.getSubject(),
+            row.getDescription(),
+            row.getStatus() == null ? null : row.getStatus().name());
+        count++;
       }
-      ticketRepository.saveAllAndFlush(importedTickets);
-      logger.info("Successfully imported {} tickets", importedTickets.size());
     } catch (IOException e) {
-      logger.error("Error importing tickets from file: {}", file.getOriginalFilename(), e);
-      e.printStackTrace();
+      throw new UncheckedIOException(e);
+    }
+    return count;
+  }
+
+  private Ticket findTicket(String id) {
+    ticketShards.route(UUID.fromString(id));
+    return ticketRepository
+        .findById(UUID.fromString(id))
+        .orElseThrow(
+            () -> {
+              logger.warn("Ticket not found for id: {}", id);
+              return new ResponseStatusException(HttpStatus.NOT_FOUND, "Ticket not found");
+            });
+  }
+
+  private void requireIndex() {
+    if (!ticketIndex.isEnabled()) {
+      logger.warn("Ticket index is disabled");
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Ticket index is disabled");
+    }
+  }
+
+  private static List<UUID> toUuids(List<String> ids) {
+    if (ids == null) {
+      return List.of();
     }
+    return ids.stream()
+        .filter(StringUtils::isNotBlank)
+        .map(UUID::fromString)
+        .collect(Collectors.toList());
   }
 }
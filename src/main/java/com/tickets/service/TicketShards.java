@@ -0,0 +1,259 @@
+package com.tickets.service;
+
+import com.tickets.configuration.ShardRoutingDataSource;
+import com.tickets.util.UuidV7;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Routing of ticket operations to the shards holding <code>tickets</code> and <code>
+ * ticket_history</code>.
+ *
+ * <p>An operation on one ticket runs in a single transaction on the shard owning its ID, see
+ * {@link #route}. Operations over many tickets are scattered to every shard, each in its own
+ * read-only transaction on a virtual thread, and their results gathered. With a single shard (the
+ * default, when <code>tickets.sharding.urls</code> is not set) every method runs its work directly
+ * in the caller's transaction.
+ */
+@Service
+public class TicketShards {
+
+  private static final Logger logger = LoggerFactory.getLogger(TicketShards.class);
+
+  /** Sort of paged ticket queries, so that pages of several shards can be merged. */
+  public static final Sort BY_ID = Sort.by("id");
+
+  /** Order of {@link #BY_ID} in the database: UUIDs compare as unsigned bytes. */
+  public static final Comparator<UUID> ID_ORDER =
+      Comparator.comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+          .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+  private final int shardCount;
+
+  /** Template for the transaction of each shard, suspending the caller's transaction. */
+  private final TransactionTemplate readTemplate;
+
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  /**
+   * Constructor for dependency injection.
+   *
+   * @param transactionManager the transaction manager
+   * @param urls JDBC URLs of the shards; empty if tickets are not sharded
+   */
+  public TicketShards(
+      PlatformTransactionManager transactionManager,
+      @Value("${tickets.sharding.urls:}") List<String> urls) {
+    this.shardCount = Math.max(1, urls.size());
+    this.readTemplate = new TransactionTemplate(transactionManager);
+    readTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    readTemplate.setReadOnly(true);
+  }
+
+  /**
+   * Returns the number of shards.
+   *
+   * @return the number of shards, 1 if tickets are not sharded
+   */
+  public int getShardCount() {
+    return shardCount;
+  }
+
+  /**
+   * Returns whether tickets are spread over several shards.
+   *
+   * @return true if there is more than one shard
+   */
+  public boolean isSharded() {
+    return shardCount > 1;
+  }
+
+  /**
+   * Returns the shard owning a ticket.
+   *
+   * @param id the ticket ID
+   * @return the shard index
+   */
+  public int shardOf(UUID id) {
+    return ShardRoutingDataSource.shardOf(id, shardCount);
+  }
+
+  /**
+   * Generates a new ticket ID owned by a shard.
+   *
+   * @param shard the shard index
+   * @return a version 7 UUID for which {@link #shardOf} returns the shard
+   */
+  public UUID newId(int shard) {
+    UUID id;
+    do {
+      id = UuidV7.generate();
+    } while (shardOf(id) != shard);
+    return id;
+  }
+
+  /**
+   * Routes the current transaction to the shard owning a ticket, until the transaction completes.
+   * Must be called before the first statement of the transaction, which fixes its connection.
+   *
+   * @param id the ticket ID
+   * @throws IllegalStateException if tickets are sharded and no transaction is active
+   */
+  public void route(UUID id) {
+    if (!isSharded()) {
+      return;
+    }
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      throw new IllegalStateException("Ticket " + id + " must be routed inside a transaction");
+    }
+    Integer previous = ShardRoutingDataSource.getShard();
+    ShardRoutingDataSource.setShard(shardOf(id));
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCompletion(int status) {
+            ShardRoutingDataSource.setShard(previous);
+          }
+        });
+  }
+
+  /**
+   * Runs an action with every connection of the current thread going to one shard. The action must
+   * not join a transaction started before, which would keep the connection of that transaction.
+   *
+   * @param shard the shard index
+   * @param action the action
+   * @return the result of the action
+   */
+  public <T> T on(int shard, Supplier<T> action) {
+    Integer previous = ShardRoutingDataSource.getShard();
+    ShardRoutingDataSource.setShard(shard);
+    try {
+      return action.get();
+    } finally {
+      ShardRoutingDataSource.setShard(previous);
+    }
+  }
+
+  /**
+   * Runs a query on every shard and concatenates the results, in shard order.
+   *
+   * @param query the query, run in a read-only transaction on each shard
+   * @return the results of all shards
+   */
+  public <T> List<T> gather(Supplier<List<T>> query) {
+    if (!isSharded()) {
+      return query.get();
+    }
+    List<CompletableFuture<List<T>>> results = new ArrayList<>();
+    for (int shard = 0; shard < shardCount; shard++) {
+      int target = shard;
+      results.add(
+          CompletableFuture.supplyAsync(
+              () -> on(target, () -> readTemplate.execute(status -> query.get())), executor));
+    }
+    List<T> gathered = new ArrayList<>();
+    for (CompletableFuture<List<T>> result : results) {
+      gathered.addAll(await(result));
+    }
+    logger.debug("Gathered {} results from {} shards", gathered.size(), shardCount);
+    return gathered;
+  }
+
+  /**
+   * Runs an action on every shard in turn, each in its own read-only transaction.
+   *
+   * @param action the action
+   */
+  public void forEachShard(Runnable action) {
+    if (!isSharded()) {
+      action.run();
+      return;
+    }
+    for (int shard = 0; shard < shardCount; shard++) {
+      on(
+          shard,
+          () -> {
+            readTemplate.executeWithoutResult(status -> action.run());
+            return null;
+          });
+    }
+  }
+
+  /**
+   * Runs a paged query on every shard and merges one page of the results.
+   *
+   * <p>Each shard returns its first <code>(page + 1) * size</code> rows in the given order, which
+   * contain every row of the merged page; deep pages therefore read more rows per shard.
+   *
+   * @param query the query, given the page to read and its sort
+   * @param sort the sort of the query
+   * @param order the same order, to merge the shard results
+   * @param page the zero-based page number
+   * @param size the page size
+   * @return the rows of the page
+   * @throws ResponseStatusException if the page or the size is out of range
+   */
+  public <T> List<T> gatherPage(
+      Function<Pageable, List<T>> query,
+      Sort sort,
+      Comparator<? super T> order,
+      int page,
+      int size) {
+    if (page < 0 || size < 1) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid page or size");
+    }
+    if (!isSharded()) {
+      return query.apply(PageRequest.of(page, size, sort));
+    }
+    long rows = (long) (page + 1) * size;
+    if (rows > Integer.MAX_VALUE) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page is too deep");
+    }
+    List<T> merged =
+        new ArrayList<>(gather(() -> query.apply(PageRequest.of(0, (int) rows, sort))));
+    merged.sort(order);
+    int from = Math.min(merged.size(), page * size);
+    return new ArrayList<>(merged.subList(from, Math.min(merged.size(), from + size)));
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdown();
+  }
+
+  /** Waits for the query of one shard, rethrowing its failure. */
+  private static <T> T await(CompletableFuture<T> result) {
+    try {
+      return result.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+}
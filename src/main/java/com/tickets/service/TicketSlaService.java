@@ -0,0 +1,358 @@
+package com.tickets.service;
+
+import com.tickets.dto.TicketChangeDto;
+import com.tickets.dto.TicketDto;
+import com.tickets.dto.TicketHistoryDto;
+import com.tickets.model.ChangeType;
+import com.tickets.model.Status;
+import com.tickets.model.Ticket;
+import com.tickets.model.TicketHistory;
+import com.tickets.repository.TicketHistoryRepository;
+import com.tickets.repository.TicketRepository;
+import com.tickets.util.TicketMapper;
+import com.tickets.util.TimingWheel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Service escalating tickets that stay in {@link Status#NEW} or {@link Status#IN_PROGRESS} longer
+ * than their SLA.
+ *
+ * <p>The deadline of every watched ticket is kept in a {@link TimingWheel}, loaded from the
+ * database on startup and moved from the {@link TicketChangeDto} events published after each
+ * committed status change; events received while the deadlines are loaded are replayed once the
+ * loaded deadlines replace the old ones. A scheduled job only advances the wheel, so its cost
+ * depends on the number of expiring tickets rather than on the size of the <code>tickets</code>
+ * table. An expired ticket gets an {@link ChangeType#ESCALATION} history entry and an {@link
+ * TicketChangeDto.Kind#ESCALATED} event, once per status period.
+ */
+@Service
+public class TicketSlaService {
+
+  private static final Logger logger = LoggerFactory.getLogger(TicketSlaService.class);
+
+  /** Number of slots per level of the timing wheel. */
+  private static final int WHEEL_SIZE = 64;
+
+  /** Number of levels of the timing wheel; with a one second tick they cover about 194 days. */
+  private static final int WHEEL_LEVELS = 4;
+
+  private final TicketRepository ticketRepository;
+  private final TicketHistoryRepository ticketHistoryRepository;
+  private final TicketMapper ticketMapper;
+  private final TicketSnapshotService ticketSnapshotService;
+  private final TicketShards ticketShards;
+  private final TicketLocks ticketLocks;
+  private final TransactionTemplate transactionTemplate;
+  private final ApplicationEventPublisher eventPublisher;
+
+  private final boolean enabled;
+  private final long tick;
+
+  /** Time a ticket may stay in each status, in milliseconds. */
+  private final Map<Status, Long> limits = new EnumMap<>(Status.class);
+
+  /** Deadlines of watched tickets; guarded by <code>this</code>. */
+  private TimingWheel<UUID> wheel;
+
+  /** Status each watched ticket had when its deadline was set; guarded by <code>this</code>. */
+  private final Map<UUID, Status> watched = new HashMap<>();
+
+  /** Changes received during a load, or null outside of one; guarded by <code>this</code>. */
+  private List<TicketChangeDto> missed;
+
+  /**
+   * Constructor for dependency injection.
+   *
+   * @param ticketRepository the ticket repository
+   * @param ticketHistoryRepository the ticket history repository
+   * @param ticketMapper the ticket mapper
+   * @param ticketSnapshotService the ticket snapshot service
+   * @param ticketShards the ticket shards
+   * @param ticketLocks the ticket locks, shared with ticket updates
+   * @param transactionTemplate the transaction template used for each escalation
+   * @param eventPublisher the application event publisher
+   * @param enabled whether tickets are escalated
+   * @param newLimit time a ticket may stay NEW, in milliseconds; 0 disables it
+   * @param inProgressLimit time a ticket may stay IN_PROGRESS, in milliseconds; 0 disables it
+   * @param tick resolution of the deadlines and interval of the escalation job, in milliseconds
+   */
+  public TicketSlaService(
+      TicketRepository ticketRepository,
+      TicketHistoryRepository ticketHistoryRepository,
+      TicketMapper ticketMapper,
+      TicketSnapshotService ticketSnapshotService,
+      TicketShards ticketShards,
+      TicketLocks ticketLocks,
+      TransactionTemplate transactionTemplate,
+      ApplicationEventPublisher eventPublisher,
+      @Value("${tickets.sla.enabled:true}") boolean enabled,
+      @Value("${tickets.sla.new-limit:14400000}") long newLimit,
+      @Value("${tickets.sla.in-progress-limit:259200000}") long inProgressLimit,
+      @Value("${tickets.sla.tick:1000}") long tick) {
+    this.ticketRepository = ticketRepository;
+    this.ticketHistoryRepository = ticketHistoryRepository;
+    this.ticketMapper = ticketMapper;
+    this.ticketSnapshotService = ticketSnapshotService;
+    this.ticketShards = ticketShards;
+    this.ticketLocks = ticketLocks;
+    this.transactionTemplate = transactionTemplate;
+    this.eventPublisher = eventPublisher;
+    this.enabled = enabled;
+    this.tick = tick;
+    if (newLimit > 0) {
+      limits.put(Status.NEW, newLimit);
+    }
+    if (inProgressLimit > 0) {
+      limits.put(Status.IN_PROGRESS, inProgressLimit);
+    }
+    this.wheel = new TimingWheel<>(tick, WHEEL_SIZE, WHEEL_LEVELS, System.currentTimeMillis());
+  }
+
+  /** Loads the deadlines of all watched tickets from the database, discarding the current ones. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void load() {
+    if (!enabled || limits.isEmpty()) {
+      logger.info("SLA escalation is disabled, skipping load");
+      return;
+    }
+    logger.info("Loading SLA deadlines");
+    synchronized (this) {
+      missed = new ArrayList<>();
+    }
+    List<TicketRepository.SlaEntry> entries;
+    try {
+      entries =
+          ticketShards.gather(
+              () ->
+                  ticketRepository.findSlaEntries(
+                      limits.keySet(), ChangeType.STATUS, ChangeType.ESCALATION));
+    } catch (RuntimeException e) {
+      synchronized (this) {
+        missed = null;
+      }
+      throw e;
+    }
+    int scheduled = 0;
+    int replayed;
+    synchronized (this) {
+      try {
+        wheel = new TimingWheel<>(tick, WHEEL_SIZE, WHEEL_LEVELS, System.currentTimeMillis());
+        watched.clear();
+        for (TicketRepository.SlaEntry entry : entries) {
+          Date since = entry.getSince();
+          if (since == null
+              || (entry.getEscalatedAt() != null && !entry.getEscalatedAt().before(since))) {
+            continue;
+          }
+          doSchedule(entry.getId(), entry.getStatus(), since);
+          scheduled++;
+        }
+        missed.forEach(this::apply);
+        replayed = missed.size();
+      } finally {
+        missed = null;
+      }
+    }
+    logger.info("Loaded {} SLA deadlines, {} changes replayed", scheduled, replayed);
+  }
+
+  /**
+   * Moves the deadline of a ticket after a committed change.
+   *
+   * @param change the ticket change
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onTicketChange(TicketChangeDto change) {
+    if (!enabled) {
+      return;
+    }
+    synchronized (this) {
+      if (missed != null) {
+        missed.add(change);
+      }
+      apply(change);
+    }
+  }
+
+  /**
+   * Escalates the tickets whose deadline has passed.
+   *
+   * @return the number of escalated tickets
+   */
+  @Scheduled(fixedDelayString = "${tickets.sla.tick:1000}")
+  public int escalateExpired() {
+    return escalateExpired(System.currentTimeMillis());
+  }
+
+  /**
+   * Escalates the tickets whose deadline is before the given time.
+   *
+   * @param now the current time, in epoch milliseconds
+   * @return the number of escalated tickets
+   */
+  int escalateExpired(long now) {
+    if (!enabled) {
+      return 0;
+    }
+    Map<UUID, Status> expired = new HashMap<>();
+    synchronized (this) {
+      for (UUID id : wheel.advance(now)) {
+        expired.put(id, watched.remove(id));
+      }
+    }
+    int escalated = 0;
+    for (Map.Entry<UUID, Status> entry : expired.entrySet()) {
+      try {
+        if (escalate(entry.getKey(), entry.getValue())) {
+          escalated++;
+        }
+      } catch (ResponseStatusException e) {
+        logger.warn("Ticket {} is being updated, retrying its escalation", entry.getKey());
+        synchronized (this) {
+          if (!watched.containsKey(entry.getKey())) {
+            wheel.schedule(entry.getKey(), now + tick);
+            watched.put(entry.getKey(), entry.getValue());
+          }
+        }
+      } catch (RuntimeException e) {
+        logger.error("Failed to escalate ticket {}", entry.getKey(), e);
+      }
+    }
+    if (escalated > 0) {
+      logger.info("Escalated {} tickets", escalated);
+    }
+    return escalated;
+  }
+
+  /**
+   * Returns the deadline of a ticket.
+   *
+   * @param id the ticket ID
+   * @return the deadline in epoch milliseconds, or null if the ticket is not watched
+   */
+  public synchronized Long getDeadline(UUID id) {
+    return wheel.getDeadline(id);
+  }
+
+  /**
+   * Escalates one ticket in its own transaction.
+   *
+   * <p>The ticket is escalated under its {@link TicketLocks} lock, like an update, so it does not
+   * interleave with an update of this instance; the lock is taken before the transaction starts,
+   * so waiting for it holds no connection. The ticket row stays locked until the transaction ends,
+   * so a concurrent escalation of the same ticket, from another instance or a reloaded deadline,
+   * waits and then sees this one.
+   *
+   * @param id the ticket ID
+   * @param status the status the deadline was set for
+   * @return true if the ticket was escalated, false if it is gone, its status changed or it was
+   *     already escalated since its last status change
+   * @throws ResponseStatusException if an update of the ticket does not finish in time
+   */
+  boolean escalate(UUID id, Status status) {
+    return Boolean.TRUE.equals(
+        ticketLocks.withLock(
+            id,
+            () ->
+                transactionTemplate.execute(
+                    tx -> {
+                      ticketShards.route(id);
+                      return doEscalate(id, status);
+                    })));
+  }
+
+  private boolean doEscalate(UUID id, Status status) {
+    Ticket ticket = ticketRepository.findByIdForUpdate(id).orElse(null);
+    if (ticket == null || ticket.getStatus() != status) {
+      logger.debug("Skipping escalation of ticket {}, no longer {}", id, status);
+      return false;
+    }
+    Date since = ticketHistoryRepository.findLastUpdateDateByType(id, ChangeType.STATUS);
+    if (since == null) {
+      since = ticket.getCreatedAt();
+    }
+    Date escalatedAt = ticketHistoryRepository.findLastUpdateDateByType(id, ChangeType.ESCALATION);
+    if (escalatedAt != null && (since == null || !escalatedAt.before(since))) {
+      logger.debug("Skipping escalation of ticket {}, already escalated at {}", id, escalatedAt);
+      return false;
+    }
+    long previousRevision = ticket.getRevision() == null ? 0 : ticket.getRevision();
+    Date now = new Date();
+    TicketHistory escalation =
+        TicketHistory.builder()
+            .type(ChangeType.ESCALATION)
+            .updateDate(now)
+            .text(
+                String.format(
+                    "SLA exceeded: %s for more than %s",
+                    status, Duration.ofMillis(limits.get(status))))
+            .build();
+    TicketHistory saved = ticketHistoryRepository.saveAndFlush(escalation);
+    ticket.getTicketHistory().add(saved);
+    ticket.setModifiedAt(now);
+    ticket.setRevision(previousRevision + 1);
+    TicketDto result = ticketMapper.map(ticketRepository.saveAndFlush(ticket));
+    ticketSnapshotService.recordUpdate(ticket, previousRevision);
+    eventPublisher.publishEvent(
+        TicketChangeDto.builder()
+            .kind(TicketChangeDto.Kind.ESCALATED)
+            .ticket(result)
+            .history(ticketMapper.map(ticket, List.of(saved)))
+            .build());
+    logger.warn("Escalated ticket {} after SLA of status {} expired", id, status);
+    return true;
+  }
+
+  private void apply(TicketChangeDto change) {
+    TicketDto ticket = change.getTicket();
+    Date since;
+    switch (change.getKind()) {
+      case CREATED, IMPORTED -> since = ticket.getCreatedAt();
+      case UPDATED -> since = statusChangedAt(change.getHistory());
+      default -> since = null;
+    }
+    if (since == null) {
+      return;
+    }
+    if (limits.containsKey(ticket.getStatus())) {
+      doSchedule(ticket.getId(), ticket.getStatus(), since);
+    } else {
+      wheel.cancel(ticket.getId());
+      watched.remove(ticket.getId());
+    }
+  }
+
+  private void doSchedule(UUID id, Status status, Date since) {
+    wheel.schedule(id, since.getTime() + limits.get(status));
+    watched.put(id, status);
+  }
+
+  private static Date statusChangedAt(List<TicketHistoryDto> history) {
+    if (history == null) {
+      return null;
+    }
+    return history.stream()
+        .filter(h -> h.getType() == ChangeType.STATUS)
+        .map(TicketHistoryDto::getUpdateDate)
+        .findFirst()
+        .orElse(null);
+  }
+}
@@ -0,0 +1,210 @@
+package com.tickets.service;
+
+import com.tickets.dto.TicketDto;
+import com.tickets.model.Status;
+import com.tickets.model.Ticket;
+import com.tickets.model.TicketHistory;
+import com.tickets.model.TicketSnapshot;
+import com.tickets.repository.TicketHistoryRepository;
+import com.tickets.repository.TicketSnapshotRepository;
+import com.tickets.util.TextDelta;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service writing periodic ticket snapshots and rebuilding the state of a ticket at a past time.
+ *
+ * <p>A snapshot is written every time the revision of a ticket crosses a multiple of the snapshot
+ * interval. To rebuild a past state, the nearest snapshot before the requested time is replayed
+ * forward; if there is none, the nearest later snapshot (or the current ticket) is rolled back.
+ * Either way at most one interval of history entries is read.
+ */
+@Service
+public class TicketSnapshotService {
+
+  private static final Logger logger = LoggerFactory.getLogger(TicketSnapshotService.class);
+
+  /** Separator of entries written before history stored typed values. */
+  private static final String LEGACY_SEPARATOR = " -> ";
+
+  /** Repository for ticket snapshots. */
+  private final TicketSnapshotRepository ticketSnapshotRepository;
+
+  /** Repository for ticket history entities. */
+  private final TicketHistoryRepository ticketHistoryRepository;
+
+  /** Number of changes between two snapshots of a ticket. */
+  private final int interval;
+
+  /**
+   * Constructor for dependency injection.
+   *
+   * @param ticketSnapshotRepository the ticket snapshot repository
+   * @param ticketHistoryRepository the ticket history repository
+   * @param interval number of changes between two snapshots of a ticket; 0 disables snapshots
+   */
+  public TicketSnapshotService(
+      TicketSnapshotRepository ticketSnapshotRepository,
+      TicketHistoryRepository ticketHistoryRepository,
+      @Value("${tickets.snapshot.interval:50}") int interval) {
+    this.ticketSnapshotRepository = ticketSnapshotRepository;
+    this.ticketHistoryRepository = ticketHistoryRepository;
+    this.interval = interval;
+  }
+
+  /**
+   * Writes a snapshot of an updated ticket if its revision crossed a multiple of the interval.
+   *
+   * @param ticket the updated Ticket entity
+   * @param previousRevision the revision of the ticket before the update
+   */
+  public void recordUpdate(Ticket ticket, long previousRevision) {
+    long revision = ticket.getRevision() == null ? 0 : ticket.getRevision();
+    if (interval <= 0 || revision / interval == previousRevision / interval) {
+      return;
+    }
+    TicketSnapshot snapshot =
+        TicketSnapshot.builder()
+            .ticketId(ticket.getId())
+            .revision(revision)
+            .takenAt(ticket.getModifiedAt())
+            .subject(ticket.getSubject())
+            .description(ticket.getDescription())
+            .status(ticket.getStatus())
+            .assignedTo(ticket.getAssignedTo() == null ? null : ticket.getAssignedTo().getId())
+            .build();
+    ticketSnapshotRepository.save(snapshot);
+    logger.debug("Wrote snapshot of ticket {} at revision {}", ticket.getId(), revision);
+  }
+
+  /**
+   * Rebuilds the state of a ticket at a past time.
+   *
+   * @param ticket the current Ticket entity
+   * @param asOf the time to rebuild the state at
+   * @return the state of the ticket, or empty if the ticket did not exist yet
+   */
+  public Optional<TicketDto> reconstruct(Ticket ticket, Date asOf) {
+    logger.info("Rebuilding ticket {} as of {}", ticket.getId(), asOf);
+    if (ticket.getCreatedAt() != null && asOf.before(ticket.getCreatedAt())) {
+      return Optional.empty();
+    }
+    UUID id = ticket.getId();
+    State state;
+    Optional<TicketSnapshot> before =
+        ticketSnapshotRepository.findFirstByTicketIdAndTakenAtLessThanEqualOrderByTakenAtDesc(
+            id, asOf);
+    if (before.isPresent()) {
+      state = new State(before.get());
+      List<TicketHistory> changes =
+          ticketHistoryRepository.findByTicketIdAndUpdateDateBetween(
+              id, before.get().getTakenAt(), asOf);
+      changes.forEach(state::apply);
+      logger.debug("Replayed {} changes after snapshot {}", changes.size(), before.get().getId());
+    } else {
+      Optional<TicketSnapshot> after =
+          ticketSnapshotRepository.findFirstByTicketIdAndTakenAtGreaterThanOrderByTakenAtAsc(
+              id, asOf);
+      state = after.map(State::new).orElseGet(() -> new State(ticket));
+      Date until = after.map(TicketSnapshot::getTakenAt).orElse(ticket.getModifiedAt());
+      if (until != null && until.after(asOf)) {
+        List<TicketHistory> changes =
+            ticketHistoryRepository.findByTicketIdAndUpdateDateBetween(id, asOf, until);
+        for (int i = changes.size() - 1; i >= 0; i--) {
+          state.undo(changes.get(i));
+        }
+        logger.debug("Rolled back {} changes until {}", changes.size(), until);
+      }
+    }
+    TicketDto dto =
+        TicketDto.builder()
+            .id(id)
+            .subject(state.subject)
+            .description(state.description)
+            .status(state.status)
+            .assignedTo(state.assignedTo)
+            .createdAt(ticket.getCreatedAt())
+            .modifiedAt(ticketHistoryRepository.findLastUpdateDate(id, asOf))
+            .build();
+    if (ticket.getCreatedBy() != null) {
+      dto.setCreatedBy(ticket.getCreatedBy().getId().toString());
+    }
+    return Optional.of(dto);
+  }
+
+  /** Mutable field values of a ticket while replaying its history. */
+  private static class State {
+
+    private String subject;
+    private String description;
+    private Status status;
+    private String assignedTo;
+
+    private State(TicketSnapshot snapshot) {
+      subject = snapshot.getSubject();
+      description = snapshot.getDescription();
+      status = snapshot.getStatus();
+      assignedTo = snapshot.getAssignedTo() == null ? null : snapshot.getAssignedTo().toString();
+    }
+
+    private State(Ticket ticket) {
+      subject = ticket.getSubject();
+      description = ticket.getDescription();
+      status = ticket.getStatus();
+      assignedTo =
+          ticket.getAssignedTo() == null ? null : ticket.getAssignedTo().getId().toString();
+    }
+
+    private void apply(TicketHistory change) {
+      if (change.getDelta() != null) {
+        description =
+            description == null ? null : TextDelta.applyForward(description, change.getDelta());
+        return;
+      }
+      set(change, change.getText() == null ? change.getNewValue() : legacyValue(change, false));
+    }
+
+    private void undo(TicketHistory change) {
+      if (change.getDelta() != null) {
+        description =
+            description == null ? null : TextDelta.applyReverse(description, change.getDelta());
+        return;
+      }
+      set(change, change.getText() == null ? change.getOldValue() : legacyValue(change, true));
+    }
+
+    private void set(TicketHistory change, String value) {
+      if (change.getType() == null) {
+        return;
+      }
+      switch (change.getType()) {
+        case SUBJECT -> subject = value;
+        case DESCRIPTION -> description = value;
+        case STATUS ->
+            status =
+                StringUtils.isBlank(value) || "null".equals(value) ? null : Status.valueOf(value);
+        case ASSIGNED_TO -> assignedTo = "null".equals(value) ? null : value;
+        default -> {}
+      }
+    }
+
+    /** Splits an entry written as "old -> new" before history stored typed values. */
+    private static String legacyValue(TicketHistory change, boolean old) {
+      String text = change.getText();
+      int separator = text.indexOf(LEGACY_SEPARATOR);
+      if (separator < 0) {
+        return null;
+      }
+      return old
+          ? text.substring(0, separator)
+          : text.substring(separator + LEGACY_SEPARATOR.length());
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package com.tickets.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter of 64-bit hashes.
+ *
+ * <p>Answers whether a hash may have been added, with no false negatives and a false positive rate
+ * close to the configured one as long as the number of added hashes stays below the expected
+ * number. The hashes are expected to be uniformly distributed already (for example taken from a
+ * cryptographic digest); bit positions are derived from them by double hashing.
+ */
+public class BloomFilter {
+
+  private final AtomicLongArray bits;
+  private final long bitSize;
+  private final int hashFunctions;
+
+  /**
+   * Creates an empty filter.
+   *
+   * @param expectedInsertions the expected number of added hashes
+   * @param falsePositiveRate the accepted false positive rate, between 0 and 1
+   */
+  public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+    if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+      throw new IllegalArgumentException("Invalid Bloom filter size");
+    }
+    long size =
+        (long)
+            Math.ceil(
+                -expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    int words = (int) Math.min(Integer.MAX_VALUE - 8, (size + 63) / 64);
+    this.bits = new AtomicLongArray(words);
+    this.bitSize = (long) words * 64;
+    this.hashFunctions =
+        Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+  }
+
+  /**
+   * Adds a hash.
+   *
+   * @param hash the hash
+   */
+  public void put(long hash) {
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 1; i <= hashFunctions; i++) {
+      long index = index(h1, h2, i);
+      int word = (int) (index >>> 6);
+      long mask = 1L << index;
+      long current;
+      while (((current = bits.get(word)) & mask) == 0
+          && !bits.compareAndSet(word, current, current | mask)) {
+        // Retry until the bit is set
+      }
+    }
+  }
+
+  /**
+   * Returns whether a hash may have been added.
+   *
+   * @param hash the hash
+   * @return false if the hash was definitely never added
+   */
+  public boolean mightContain(long hash) {
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 1; i <= hashFunctions; i++) {
+      long index = index(h1, h2, i);
+      if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of bits of the filter.
+   *
+   * @return the size in bits
+   */
+  public long getBitSize() {
+    return bitSize;
+  }
+
+  private long index(int h1, int h2, int i) {
+    long combined = h1 + (long) i * h2;
+    return (combined & Long.MAX_VALUE) % bitSize;
+  }
+}
@@ -0,0 +1,108 @@
+package com.tickets.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reader of RFC 4180 CSV records.
+ *
+ * <p>Quoted fields may contain commas, doubled quotes and line breaks. Records may end with CRLF or
+ * LF. Only the current record is held in memory.
+ */
+public class CsvReader {
+
+  private final Reader reader;
+
+  /** Character read ahead, or -2 if none. */
+  private int next = -2;
+
+  /** Number of line breaks read so far. */
+  private long lineBreaks;
+
+  /** Line on which the last record started. */
+  private long recordLine;
+
+  /**
+   * Creates a CSV reader.
+   *
+   * @param reader the reader to read records from; buffering is left to the caller
+   */
+  public CsvReader(Reader reader) {
+    this.reader = reader;
+  }
+
+  /**
+   * Reads the next record.
+   *
+   * @return the fields of the record, or null at the end of the input
+   * @throws IOException if reading fails or a quoted field is not terminated
+   */
+  public List<String> readRecord() throws IOException {
+    int c = read();
+    if (c == -1) {
+      return null;
+    }
+    recordLine = lineBreaks + 1;
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    while (true) {
+      if (quoted) {
+        if (c == -1) {
+          throw new IOException("Unterminated quoted field");
+        }
+        if (c == '"') {
+          c = read();
+          if (c != '"') {
+            quoted = false;
+            continue;
+          }
+        }
+        if (c == '\n') {
+          lineBreaks++;
+        }
+        field.append((char) c);
+      } else if (c == '"' && field.isEmpty()) {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else if (c == '\r' || c == '\n' || c == -1) {
+        if (c == '\r') {
+          int lf = read();
+          if (lf != '\n') {
+            next = lf;
+          }
+        }
+        if (c != -1) {
+          lineBreaks++;
+        }
+        fields.add(field.toString());
+        return fields;
+      } else {
+        field.append((char) c);
+      }
+      c = read();
+    }
+  }
+
+  /**
+   * Returns the line on which the last record started, counting from 1.
+   *
+   * @return the line number, or 0 if no record was read yet
+   */
+  public long getLineNumber() {
+    return recordLine;
+  }
+
+  private int read() throws IOException {
+    if (next != -2) {
+      int c = next;
+      next = -2;
+      return c;
+    }
+    return reader.read();
+  }
+}
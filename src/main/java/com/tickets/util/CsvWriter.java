@@ -0,0 +1,58 @@
+package com.tickets.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writer of RFC 4180 CSV records.
+ *
+ * <p>Fields containing a comma, a quote or a line break are quoted, with quotes doubled; null
+ * fields are written as empty fields. Records end with CRLF.
+ */
+public class CsvWriter {
+
+  private final Writer writer;
+
+  /**
+   * Creates a CSV writer.
+   *
+   * @param writer the writer to write records to; buffering is left to the caller
+   */
+  public CsvWriter(Writer writer) {
+    this.writer = writer;
+  }
+
+  /**
+   * Writes one record.
+   *
+   * @param fields the fields of the record
+   * @throws IOException if writing fails
+   */
+  public void writeRecord(String... fields) throws IOException {
+    for (int i = 0; i < fields.length; i++) {
+      if (i > 0) {
+        writer.write(',');
+      }
+      writeField(fields[i]);
+    }
+    writer.write("\r\n");
+  }
+
+  private void writeField(String field) throws IOException {
+    if (field == null || field.isEmpty()) {
+      return;
+    }
+    boolean quote = false;
+    for (int i = 0; i < field.length() && !quote; i++) {
+      char c = field.charAt(i);
+      quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+    }
+    if (!quote) {
+      writer.write(field);
+      return;
+    }
+    writer.write('"');
+    writer.write(field.replace("\"", "\"\""));
+    writer.write('"');
+  }
+}
@@ -0,0 +1,122 @@
+package com.tickets.util;
+
+import io.airlift.compress.MalformedInputException;
+import io.airlift.compress.zstd.ZstdInputStream;
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streaming decompression of uploaded files.
+ *
+ * <p>The compression is taken from the <code>Content-Encoding</code> of the upload or, when there
+ * is none, detected from the magic bytes at the start of the data. Data is decompressed as it is
+ * read; nothing is buffered beyond the decompressor's own window.
+ */
+public class Decompression {
+
+  /** Content encodings that can be decompressed, besides none. */
+  private static final Set<String> ENCODINGS = Set.of("gzip", "x-gzip", "zstd");
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final byte[] GZIP_MAGIC = {0x1f, (byte) 0x8b};
+  private static final byte[] ZSTD_MAGIC = {0x28, (byte) 0xb5, 0x2f, (byte) 0xfd};
+
+  private Decompression() {}
+
+  /**
+   * Returns whether a content encoding is supported.
+   *
+   * @param contentEncoding the content encoding, or null for none
+   * @return true if {@link #open} can decode it
+   */
+  public static boolean isSupported(String contentEncoding) {
+    String encoding = normalize(contentEncoding);
+    return encoding == null || ENCODINGS.contains(encoding);
+  }
+
+  /**
+   * Wraps a stream with the decompressor matching its encoding.
+   *
+   * @param in the compressed or uncompressed stream
+   * @param contentEncoding (optional) the content encoding; if null or <code>identity</code>, the
+   *     compression is detected from the first bytes of the stream
+   * @return the decompressed stream
+   * @throws IOException if reading the first bytes fails
+   * @throws IllegalArgumentException if the content encoding is not supported
+   */
+  public static InputStream open(InputStream in, String contentEncoding) throws IOException {
+    String encoding = normalize(contentEncoding);
+    if (encoding != null && !ENCODINGS.contains(encoding)) {
+      throw new IllegalArgumentException("Unsupported content encoding: " + contentEncoding);
+    }
+    InputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+    if (encoding == null) {
+      buffered.mark(ZSTD_MAGIC.length);
+      byte[] head = buffered.readNBytes(ZSTD_MAGIC.length);
+      buffered.reset();
+      if (startsWith(head, GZIP_MAGIC)) {
+        encoding = "gzip";
+      } else if (startsWith(head, ZSTD_MAGIC)) {
+        encoding = "zstd";
+      } else {
+        return buffered;
+      }
+    }
+    return switch (encoding) {
+      case "zstd" -> new ZstdStream(new ZstdInputStream(buffered));
+      default -> new GZIPInputStream(buffered, BUFFER_SIZE);
+    };
+  }
+
+  private static String normalize(String contentEncoding) {
+    if (contentEncoding == null || contentEncoding.isBlank()) {
+      return null;
+    }
+    String encoding = contentEncoding.strip().toLowerCase(Locale.ROOT);
+    return encoding.equals("identity") ? null : encoding;
+  }
+
+  private static boolean startsWith(byte[] data, byte[] prefix) {
+    if (data.length < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (data[i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Reports corrupt zstd input as an {@link IOException}, like the gzip decoder does. */
+  private static class ZstdStream extends FilterInputStream {
+
+    private ZstdStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      try {
+        return super.read();
+      } catch (MalformedInputException e) {
+        throw new IOException("Malformed zstd input", e);
+      }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      try {
+        return super.read(b, off, len);
+      } catch (MalformedInputException e) {
+        throw new IOException("Malformed zstd input", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package com.tickets.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compact, compressed delta between two versions of a text.
+ *
+ * <p>The delta keeps the length of the common prefix and suffix and the differing middle part of
+ * both versions, deflated. It can be applied in both directions, so either version can be rebuilt
+ * from the other one.
+ */
+public final class TextDelta {
+
+  private static final int FORMAT_VERSION = 1;
+
+  private final int prefix;
+  private final int suffix;
+  private final String removed;
+  private final String inserted;
+
+  private TextDelta(int prefix, int suffix, String removed, String inserted) {
+    this.prefix = prefix;
+    this.suffix = suffix;
+    this.removed = removed;
+    this.inserted = inserted;
+  }
+
+  /**
+   * Encodes the delta between two texts.
+   *
+   * @param oldText the old text
+   * @param newText the new text
+   * @return the compressed delta
+   */
+  public static byte[] encode(String oldText, String newText) {
+    int max = Math.min(oldText.length(), newText.length());
+    int prefix = 0;
+    while (prefix < max && oldText.charAt(prefix) == newText.charAt(prefix)) {
+      prefix++;
+    }
+    int suffix = 0;
+    while (suffix < max - prefix
+        && oldText.charAt(oldText.length() - 1 - suffix)
+            == newText.charAt(newText.length() - 1 - suffix)) {
+      suffix++;
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+      out.writeByte(FORMAT_VERSION);
+      out.writeInt(prefix);
+      out.writeInt(suffix);
+      writeString(out, oldText.substring(prefix, oldText.length() - suffix));
+      writeString(out, newText.substring(prefix, newText.length() - suffix));
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot encode text delta", e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Rebuilds the new text from the old text and a delta.
+   *
+   * @param oldText the old text
+   * @param delta the delta, as returned by {@link #encode}
+   * @return the new text
+   */
+  public static String applyForward(String oldText, byte[] delta) {
+    TextDelta decoded = decode(delta);
+    return oldText.substring(0, decoded.prefix)
+        + decoded.inserted
+        + oldText.substring(oldText.length() - decoded.suffix);
+  }
+
+  /**
+   * Rebuilds the old text from the new text and a delta.
+   *
+   * @param newText the new text
+   * @param delta the delta, as returned by {@link #encode}
+   * @return the old text
+   */
+  public static String applyReverse(String newText, byte[] delta) {
+    TextDelta decoded = decode(delta);
+    return newText.substring(0, decoded.prefix)
+        + decoded.removed
+        + newText.substring(newText.length() - decoded.suffix);
+  }
+
+  private static TextDelta decode(byte[] delta) {
+    try (DataInputStream in =
+        new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(delta)))) {
+      int version = in.readByte();
+      if (version != FORMAT_VERSION) {
+        throw new IllegalArgumentException("Unsupported text delta version: " + version);
+      }
+      int prefix = in.readInt();
+      int suffix = in.readInt();
+      return new TextDelta(prefix, suffix, readString(in), readString(in));
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Invalid text delta", e);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -5,18 +5,31 @@ import com.tickets.dto.TicketDto;
 import com.tickets.dto.TicketDto.TicketDtoBuilder;
 import com.tickets.dto.TicketHistoryDto;
 import com.tickets.dto.TicketUpdateDto;
+import com.tickets.model.ArchivedTicket;
+import com.tickets.model.ArchivedTicketHistory;
 import com.tickets.model.ChangeType;
 import com.tickets.model.Status;
 import com.tickets.model.Ticket;
 import com.tickets.model.TicketHistory;
 import com.tickets.model.User;
+import com.tickets.repository.TicketRepositoryCustom;
 import com.tickets.repository.UserRepository;
+import io.micrometer.observation.annotation.Observed;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,6 +48,9 @@ public class TicketMapper {
 
   private static final Logger logger = LoggerFactory.getLogger(TicketMapper.class);
 
+  /** Combined length of old and new description from which changes are stored as a delta. */
+  static final int DELTA_THRESHOLD = 256;
+
   /** Repository for user entities, used for resolving assigned users. */
   private UserRepository userRepository;
 
@@ -62,6 +78,7 @@ public class TicketMapper {
             .description(ticketDto.getDescription())
             .status(Status.NEW)
             .createdAt(Date.from(Instant.now()))
+            .revision(0L)
             .build();
     logger.debug("Mapped Ticket: {}", ticket);
     return ticket;
@@ -97,6 +114,25 @@ public class TicketMapper {
     return dto;
   }
 
+  /**
+   * Maps the selected columns of a ticket to a map of field name to value. User references are
+   * rendered as ID strings, as in TicketDto.
+   *
+   * @param tuple the tuple returned by {@link TicketRepositoryCustom#findFields}
+   * @return the field values, in the selected order
+   */
+  public Map<String, Object> map(Tuple tuple) {
+    Map<String, Object> fields = new LinkedHashMap<>();
+    for (TupleElement<?> element : tuple.getElements()) {
+      Object value = tuple.get(element);
+      if (value != null && TicketRepositoryCustom.USER_FIELDS.contains(element.getAlias())) {
+        value = value.toString();
+      }
+      fields.put(element.getAlias(), value);
+    }
+    return fields;
+  }
+
   /**
    * Updates a Ticket entity based on a TicketUpdateDto and returns the list of TicketHistory
    * changes. Handles subject, description, assigned user, status, and comments.
@@ -106,6 +142,7 @@ public class TicketMapper {
    * @return list of TicketHistory entries representing the changes
    * @throws ResponseStatusException if the assigned user is not found
    */
+  @Observed(name = "tickets.mapper")
   public List<TicketHistory> update(Ticket ticket, TicketUpdateDto ticketUpdateDto) {
     logger.info("Updating Ticket entity with TicketUpdateDto. Ticket ID: {}", ticket.getId());
     Date updatedAt = Date.from(Instant.now());
@@ -118,7 +155,8 @@ public class TicketMapper {
       TicketHistory update =
           TicketHistory.builder()
               .type(ChangeType.SUBJECT)
-              .text(ticket.getSubject() + " -> " + ticketUpdateDto.getSubject())
+              .oldValue(ticket.getSubject())
+              .newValue(ticketUpdateDto.getSubject())
               .build();
       ticket.setSubject(ticketUpdateDto.getSubject());
       ticketHistory.add(update);
@@ -131,10 +169,7 @@ public class TicketMapper {
           ticket.getDescription(),
           ticketUpdateDto.getDescription());
       TicketHistory update =
-          TicketHistory.builder()
-              .type(ChangeType.DESCRIPTION)
-              .text(ticket.getDescription() + " -> " + ticketUpdateDto.getDescription())
-              .build();
+          descriptionChange(ticket.getDescription(), ticketUpdateDto.getDescription());
       ticket.setDescription(ticketUpdateDto.getDescription());
       ticketHistory.add(update);
     }
@@ -152,11 +187,12 @@ public class TicketMapper {
       if (ticket.getAssignedTo() == null
           || !ticketUpdateDto.getAssignedTo().equals(ticket.getAssignedTo().getId().toString())) {
         String assignedToId =
-            (ticket.getAssignedTo() == null) ? "null" : ticket.getAssignedTo().getId().toString();
+            (ticket.getAssignedTo() == null) ? null : ticket.getAssignedTo().getId().toString();
         TicketHistory update =
             TicketHistory.builder()
                 .type(ChangeType.ASSIGNED_TO)
-                .text(assignedToId + " -> " + ticketUpdateDto.getAssignedTo())
+                .oldValue(assignedToId)
+                .newValue(ticketUpdateDto.getAssignedTo())
                 .build();
         ticket.setAssignedTo(user);
         ticketHistory.add(update);
@@ -170,7 +206,8 @@ public class TicketMapper {
       TicketHistory update =
           TicketHistory.builder()
               .type(ChangeType.STATUS)
-              .text(ticket.getStatus() + " -> " + ticketUpdateDto.getStatus())
+              .oldValue(ticket.getStatus() == null ? null : ticket.getStatus().name())
+              .newValue(ticketUpdateDto.getStatus().name())
               .build();
       ticket.setStatus(ticketUpdateDto.getStatus());
       ticketHistory.add(update);
@@ -193,28 +230,212 @@ public class TicketMapper {
               h.setUpdateDate(updatedAt);
             });
     ticket.setModifiedAt(updatedAt);
+    ticket.setRevision(
+        (ticket.getRevision() == null ? 0 : ticket.getRevision()) + ticketHistory.size());
     logger.debug("Ticket history after update: {}", ticketHistory);
     return ticketHistory;
   }
 
   /**
-   * Maps a TicketHistory entity to a TicketHistoryDto.
+   * Maps a TicketHistory entity to a TicketHistoryDto. Entries stored as a delta need the new
+   * value of the field and are mapped with {@link #map(Ticket, List)} instead.
    *
    * @param ticketHistory the TicketHistory entity
    * @return the TicketHistoryDto
    */
   public TicketHistoryDto map(TicketHistory ticketHistory) {
+    return map(ticketHistory, ticketHistory.getNewValue());
+  }
+
+  /**
+   * Maps history entries of a ticket to TicketHistoryDtos, rebuilding the old and new values of
+   * entries stored as a delta.
+   *
+   * <p>Description deltas are resolved by walking the description changes of the ticket from the
+   * newest to the oldest, starting from the current description. The walk stops as soon as every
+   * requested entry is resolved, and is skipped when none of them is a delta.
+   *
+   * @param ticket the Ticket entity owning the history
+   * @param ticketHistory the entries to map, all belonging to the ticket
+   * @return the TicketHistoryDtos, in the order of the entries
+   */
+  public List<TicketHistoryDto> map(Ticket ticket, List<TicketHistory> ticketHistory) {
+    Set<TicketHistory> pending = Collections.newSetFromMap(new IdentityHashMap<>());
+    ticketHistory.stream().filter(h -> h.getDelta() != null).forEach(pending::add);
+    Map<TicketHistory, String> newValues = new IdentityHashMap<>();
+    if (!pending.isEmpty()) {
+      List<TicketHistory> descriptionChanges =
+          ticket.getTicketHistory().stream()
+              .filter(h -> h.getType() == ChangeType.DESCRIPTION)
+              .sorted(
+                  Comparator.comparing(
+                          TicketHistory::getUpdateDate,
+                          Comparator.nullsFirst(Comparator.naturalOrder()))
+                      // Version 7 IDs are time-ordered, so they break ties within a millisecond;
+                      // entries not saved yet are the newest
+                      .thenComparing(
+                          TicketHistory::getId, Comparator.nullsLast(Comparator.naturalOrder()))
+                      .reversed())
+              .collect(Collectors.toList());
+      String current = ticket.getDescription();
+      for (TicketHistory change : descriptionChanges) {
+        if (pending.isEmpty()) {
+          break;
+        }
+        newValues.put(change, current);
+        pending.remove(change);
+        current = oldValue(change, current);
+      }
+    }
+    return ticketHistory.stream()
+        .map(h -> map(h, newValues.getOrDefault(h, h.getNewValue())))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Returns the value a field had before a history entry, given the value right after it.
+   *
+   * @param ticketHistory the history entry
+   * @param newValue the value of the field right after the entry
+   * @return the old value, or null if unknown
+   */
+  public String oldValue(TicketHistory ticketHistory, String newValue) {
+    if (ticketHistory.getDelta() != null) {
+      return newValue == null ? null : TextDelta.applyReverse(newValue, ticketHistory.getDelta());
+    }
+    return ticketHistory.getOldValue();
+  }
+
+  /**
+   * Maps an ArchivedTicket entity to a TicketDto.
+   *
+   * @param archivedTicket the ArchivedTicket entity
+   * @return the TicketDto
+   */
+  public TicketDto map(ArchivedTicket archivedTicket) {
+    return TicketDto.builder()
+        .id(archivedTicket.getId())
+        .subject(archivedTicket.getSubject())
+        .description(archivedTicket.getDescription())
+        .status(archivedTicket.getStatus())
+        .createdAt(archivedTicket.getCreatedAt())
+        .modifiedAt(archivedTicket.getModifiedAt())
+        .assignedTo(toString(archivedTicket.getAssignedTo()))
+        .createdBy(toString(archivedTicket.getCreatedBy()))
+        .modifiedBy(toString(archivedTicket.getModifiedBy()))
+        .build();
+  }
+
+  /**
+   * Maps the history of an archived ticket to TicketHistoryDtos, rebuilding delta entries the same
+   * way as for live tickets.
+   *
+   * @param archivedTicket the ArchivedTicket entity
+   * @param archivedHistory all history entries of the ticket
+   * @return the TicketHistoryDtos, in the order of the entries
+   */
+  public List<TicketHistoryDto> map(
+      ArchivedTicket archivedTicket, List<ArchivedTicketHistory> archivedHistory) {
+    List<TicketHistory> history =
+        archivedHistory.stream()
+            .map(
+                h ->
+                    TicketHistory.builder()
+                        .id(h.getId())
+                        .type(h.getType())
+                        .updateDate(h.getUpdateDate())
+                        .text(h.getText())
+                        .oldValue(h.getOldValue())
+                        .newValue(h.getNewValue())
+                        .delta(h.getDelta())
+                        .build())
+            .collect(Collectors.toList());
+    Ticket ticket =
+        Ticket.builder()
+            .id(archivedTicket.getId())
+            .description(archivedTicket.getDescription())
+            .ticketHistory(history)
+            .build();
+    return map(ticket, history);
+  }
+
+  /**
+   * Copies a Ticket entity into its archived form.
+   *
+   * @param ticket the Ticket entity
+   * @param archivedAt the archive time
+   * @return the ArchivedTicket entity
+   */
+  public ArchivedTicket archive(Ticket ticket, Date archivedAt) {
+    return ArchivedTicket.builder()
+        .id(ticket.getId())
+        .subject(ticket.getSubject())
+        .description(ticket.getDescription())
+        .createdBy(ticket.getCreatedBy() == null ? null : ticket.getCreatedBy().getId())
+        .modifiedBy(ticket.getModifiedBy() == null ? null : ticket.getModifiedBy().getId())
+        .assignedTo(ticket.getAssignedTo() == null ? null : ticket.getAssignedTo().getId())
+        .createdAt(ticket.getCreatedAt())
+        .modifiedAt(ticket.getModifiedAt())
+        .status(ticket.getStatus())
+        .revision(ticket.getRevision())
+        .archivedAt(archivedAt)
+        .build();
+  }
+
+  /**
+   * Copies a TicketHistory entity into its archived form.
+   *
+   * @param ticketId the ID of the ticket owning the entry
+   * @param ticketHistory the TicketHistory entity
+   * @return the ArchivedTicketHistory entity
+   */
+  public ArchivedTicketHistory archive(UUID ticketId, TicketHistory ticketHistory) {
+    return ArchivedTicketHistory.builder()
+        .id(ticketHistory.getId())
+        .ticketId(ticketId)
+        .type(ticketHistory.getType())
+        .updateDate(ticketHistory.getUpdateDate())
+        .updatedBy(
+            ticketHistory.getUpdatedBy() == null ? null : ticketHistory.getUpdatedBy().getId())
+        .text(ticketHistory.getText())
+        .oldValue(ticketHistory.getOldValue())
+        .newValue(ticketHistory.getNewValue())
+        .delta(ticketHistory.getDelta())
+        .build();
+  }
+
+  private TicketHistoryDto map(TicketHistory ticketHistory, String newValue) {
     logger.info(
         "Mapping TicketHistory to TicketHistoryDto. TicketHistory ID: {}", ticketHistory.getId());
     // TODO add update by
-    TicketHistoryDto dto =
+    TicketHistoryDto.TicketHistoryDtoBuilder builder =
         TicketHistoryDto.builder()
             // .updatedBy(ticketHistory.getUpdatedBy().getId().toString())
             .updateDate(ticketHistory.getUpdateDate())
             .type(ticketHistory.getType())
-            .text(ticketHistory.getText())
-            .build();
+            .text(ticketHistory.getText());
+    if (ticketHistory.getText() == null && ticketHistory.getType() != ChangeType.COMMENT) {
+      String oldValue = oldValue(ticketHistory, newValue);
+      builder.oldValue(oldValue).newValue(newValue).text(oldValue + " -> " + newValue);
+    }
+    TicketHistoryDto dto = builder.build();
     logger.debug("Mapped TicketHistoryDto: {}", dto);
     return dto;
   }
+
+  private TicketHistory descriptionChange(String oldDescription, String newDescription) {
+    TicketHistory.TicketHistoryBuilder builder =
+        TicketHistory.builder().type(ChangeType.DESCRIPTION);
+    if (oldDescription != null
+        && oldDescription.length() + newDescription.length() >= DELTA_THRESHOLD) {
+      builder.delta(TextDelta.encode(oldDescription, newDescription));
+    } else {
+      builder.oldValue(oldDescription).newValue(newDescription);
+    }
+    return builder.build();
+  }
+
+  private static String toString(UUID id) {
+    return id == null ? null : id.toString();
+  }
 }
@@ -0,0 +1,168 @@
+package com.tickets.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hierarchical timing wheel holding one deadline per key.
+ *
+ * <p>Level 0 has one slot per tick; each higher level has slots as long as a full rotation of the
+ * level below. A key is placed in the lowest level whose rotation covers its deadline and moves
+ * down a level each time the clock reaches its slot, so scheduling, cancelling and expiring a key
+ * are <code>O(1)</code> and advancing the clock only touches the slots that are due. Deadlines
+ * beyond the top level are parked in its last slot and placed again when it is reached. Keys
+ * expire at most one tick late, never early.
+ *
+ * <p>Not thread-safe.
+ *
+ * @param <K> the key type
+ */
+public class TimingWheel<K> {
+
+  /** Position of a scheduled key. */
+  private static record Timer(long deadline, int level, int slot) {}
+
+  private final long tick;
+  private final int wheelSize;
+
+  /** Duration of one slot of each level, in milliseconds. */
+  private final long[] slotMillis;
+
+  /** Keys of each slot of each level. */
+  private final List<List<Set<Object>>> wheels = new ArrayList<>();
+
+  private final Map<K, Timer> timers = new HashMap<>();
+
+  /** Start of the current tick, in epoch milliseconds. */
+  private long currentTime;
+
+  /**
+   * Creates an empty timing wheel.
+   *
+   * @param tick duration of a level 0 slot, in milliseconds
+   * @param wheelSize number of slots per level
+   * @param levels number of levels
+   * @param startTime the current time, in epoch milliseconds
+   */
+  public TimingWheel(long tick, int wheelSize, int levels, long startTime) {
+    if (tick <= 0 || wheelSize < 2 || levels < 1) {
+      throw new IllegalArgumentException("Invalid timing wheel dimensions");
+    }
+    this.tick = tick;
+    this.wheelSize = wheelSize;
+    this.slotMillis = new long[levels];
+    long span = tick;
+    for (int level = 0; level < levels; level++) {
+      slotMillis[level] = span;
+      span = Math.multiplyExact(span, wheelSize);
+      List<Set<Object>> slots = new ArrayList<>(wheelSize);
+      for (int slot = 0; slot < wheelSize; slot++) {
+        slots.add(new HashSet<>());
+      }
+      wheels.add(slots);
+    }
+    this.currentTime = Math.floorDiv(startTime, tick) * tick;
+  }
+
+  /**
+   * Schedules a key, replacing its previous deadline.
+   *
+   * @param key the key
+   * @param deadline the deadline, in epoch milliseconds; a past deadline expires on the next tick
+   */
+  public void schedule(K key, long deadline) {
+    cancel(key);
+    place(key, deadline);
+  }
+
+  /**
+   * Cancels the deadline of a key.
+   *
+   * @param key the key
+   * @return true if the key was scheduled
+   */
+  public boolean cancel(K key) {
+    Timer timer = timers.remove(key);
+    if (timer == null) {
+      return false;
+    }
+    wheels.get(timer.level()).get(timer.slot()).remove(key);
+    return true;
+  }
+
+  /**
+   * Returns the deadline of a key.
+   *
+   * @param key the key
+   * @return the deadline in epoch milliseconds, or null if the key is not scheduled
+   */
+  public Long getDeadline(K key) {
+    Timer timer = timers.get(key);
+    return timer == null ? null : timer.deadline();
+  }
+
+  /**
+   * Returns the number of scheduled keys.
+   *
+   * @return the number of keys
+   */
+  public int size() {
+    return timers.size();
+  }
+
+  /**
+   * Advances the clock and removes the keys whose deadline has passed.
+   *
+   * @param now the current time, in epoch milliseconds
+   * @return the expired keys, earliest tick first
+   */
+  @SuppressWarnings("unchecked")
+  public List<K> advance(long now) {
+    List<K> expired = new ArrayList<>();
+    while (currentTime + tick <= now) {
+      Set<Object> due = wheels.get(0).get(slot(currentTime, 0));
+      for (Object key : due) {
+        timers.remove(key);
+        expired.add((K) key);
+      }
+      due.clear();
+      currentTime += tick;
+      for (int level = 1; level < slotMillis.length; level++) {
+        if (Math.floorMod(currentTime, slotMillis[level]) != 0) {
+          break;
+        }
+        Set<Object> slot = wheels.get(level).get(slot(currentTime, level));
+        List<Object> keys = new ArrayList<>(slot);
+        slot.clear();
+        for (Object key : keys) {
+          place((K) key, timers.get(key).deadline());
+        }
+      }
+    }
+    return expired;
+  }
+
+  private void place(K key, long deadline) {
+    long due = Math.max(deadline, currentTime);
+    int top = slotMillis.length - 1;
+    for (int level = 0; level <= top; level++) {
+      long bucket = Math.floorDiv(due, slotMillis[level]);
+      long current = Math.floorDiv(currentTime, slotMillis[level]);
+      if (bucket - current < wheelSize || level == top) {
+        bucket = Math.min(bucket, current + wheelSize - 1);
+        int slot = (int) Math.floorMod(bucket, (long) wheelSize);
+        wheels.get(level).get(slot).add(key);
+        timers.put(key, new Timer(deadline, level, slot));
+        return;
+      }
+    }
+  }
+
+  private int slot(long time, int level) {
+    return (int) Math.floorMod(Math.floorDiv(time, slotMillis[level]), (long) wheelSize);
+  }
+}
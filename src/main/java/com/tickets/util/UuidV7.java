@@ -0,0 +1,71 @@
+package com.tickets.util;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Generator of time-ordered UUIDs (version 7, RFC 9562).
+ *
+ * <p>The first 48 bits hold the Unix time in milliseconds and the next 12 bits a counter, so IDs
+ * generated by this process are strictly increasing and new rows are appended to the right edge of
+ * the primary key index instead of being scattered across it. The remaining 62 bits are random.
+ * Version 7 UUIDs share the column type and format of the random (version 4) ones, so both can be
+ * mixed in the same table.
+ */
+public final class UuidV7 {
+
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  private static final int COUNTER_BITS = 12;
+  private static final int MAX_COUNTER = (1 << COUNTER_BITS) - 1;
+
+  /** Millisecond timestamp of the last generated ID. */
+  private static long lastMillis;
+
+  /** Counter of the last generated ID within its millisecond. */
+  private static int counter;
+
+  private UuidV7() {}
+
+  /**
+   * Generates a new UUID that sorts after every UUID previously generated by this process.
+   *
+   * @return the UUID
+   */
+  public static UUID generate() {
+    long millis;
+    int sequence;
+    synchronized (UuidV7.class) {
+      long now = System.currentTimeMillis();
+      if (now > lastMillis) {
+        lastMillis = now;
+        // Start low in the range so the counter has room to grow within the millisecond
+        counter = RANDOM.nextInt(MAX_COUNTER / 2);
+      } else if (++counter > MAX_COUNTER) {
+        // Counter exhausted or clock moved backwards: borrow the next millisecond
+        lastMillis++;
+        counter = 0;
+      }
+      millis = lastMillis;
+      sequence = counter;
+    }
+    long msb = (millis << 16) | 0x7000L | sequence;
+    long lsb = (RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+    return new UUID(msb, lsb);
+  }
+
+  /**
+   * Returns the creation time encoded in a version 7 UUID.
+   *
+   * @param uuid the UUID
+   * @return the creation time, with millisecond precision
+   * @throws IllegalArgumentException if the UUID is not a version 7 UUID
+   */
+  public static Instant getTimestamp(UUID uuid) {
+    if (uuid.version() != 7) {
+      throw new IllegalArgumentException("Not a version 7 UUID: " + uuid);
+    }
+    return Instant.ofEpochMilli(uuid.getMostSignificantBits() >>> 16);
+  }
+}
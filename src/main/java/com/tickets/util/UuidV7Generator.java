@@ -0,0 +1,49 @@
+package com.tickets.util;
+
+import java.util.EnumSet;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+/** Hibernate identifier generator backing {@link GeneratedUuidV7}. */
+public class UuidV7Generator implements BeforeExecutionGenerator {
+
+  /**
+   * Generates a new version 7 UUID, unless one was assigned.
+   *
+   * @param session the current session
+   * @param owner the entity being inserted
+   * @param currentValue the current identifier value
+   * @param eventType the event type
+   * @return the assigned identifier, or a new one
+   */
+  @Override
+  public Object generate(
+      SharedSessionContractImplementor session,
+      Object owner,
+      Object currentValue,
+      EventType eventType) {
+    return currentValue != null ? currentValue : UuidV7.generate();
+  }
+
+  /**
+   * Returns whether an identifier assigned before persisting is kept.
+   *
+   * @return true, so that callers can choose an ID, for example on a given shard
+   */
+  @Override
+  public boolean allowAssignedIdentifiers() {
+    return true;
+  }
+
+  /**
+   * Returns the events this generator runs on.
+   *
+   * @return insert only
+   */
+  @Override
+  public EnumSet<EventType> getEventTypes() {
+    return EventTypeSets.INSERT_ONLY;
+  }
+}
@@ -0,0 +1,117 @@
+-- Schema as previously created by spring.jpa.hibernate.ddl-auto=update.
+-- Databases created that way are baselined at version 0 and pass through this script as well,
+-- so every statement is idempotent and columns added after the first release are added when
+-- missing.
+
+create table if not exists users (
+    id uuid not null primary key,
+    user_name varchar(255),
+    password varchar(255),
+    role varchar(255)
+);
+
+create table if not exists tickets (
+    id uuid not null primary key,
+    subject varchar(255),
+    description varchar(255),
+    created_by_id uuid references users (id),
+    modified_by_id uuid references users (id),
+    assigned_to_id uuid references users (id),
+    created_at timestamp(6),
+    modified_at timestamp(6),
+    status varchar(255)
+);
+
+alter table tickets add column if not exists revision bigint;
+alter table tickets add column if not exists import_hash bigint;
+
+create table if not exists ticket_history (
+    id uuid not null primary key,
+    type varchar(255),
+    update_date timestamp(6),
+    updated_by_id uuid references users (id),
+    text varchar(255)
+);
+
+alter table ticket_history add column if not exists old_value text;
+alter table ticket_history add column if not exists new_value text;
+alter table ticket_history add column if not exists delta bytea;
+
+create table if not exists tickets_ticket_history (
+    ticket_id uuid not null references tickets (id),
+    ticket_history_id uuid not null unique references ticket_history (id)
+);
+
+create table if not exists ticket_snapshots (
+    id uuid not null primary key,
+    ticket_id uuid,
+    revision bigint,
+    taken_at timestamp(6),
+    subject varchar(255),
+    description text,
+    status varchar(255),
+    assigned_to uuid
+);
+
+create table if not exists tickets_archive (
+    id uuid not null primary key,
+    subject varchar(255),
+    description text,
+    created_by uuid,
+    modified_by uuid,
+    assigned_to uuid,
+    created_at timestamp(6),
+    modified_at timestamp(6),
+    status varchar(255),
+    revision bigint,
+    archived_at timestamp(6)
+);
+
+create table if not exists ticket_history_archive (
+    id uuid not null primary key,
+    ticket_id uuid,
+    type varchar(255),
+    update_date timestamp(6),
+    updated_by uuid,
+    text varchar(255),
+    old_value text,
+    new_value text,
+    delta bytea
+);
+
+create table if not exists outbox_events (
+    id bigint generated by default as identity primary key,
+    ticket_id uuid,
+    type varchar(255),
+    payload text,
+    created_at timestamp(6)
+);
+
+create table if not exists outbox_checkpoints (
+    sink varchar(255) not null primary key,
+    last_event_id bigint,
+    updated_at timestamp(6)
+);
+
+create table if not exists import_requests (
+    idempotency_key varchar(255) not null primary key,
+    state varchar(255),
+    imported bigint,
+    duplicates bigint,
+    created_at timestamp(6),
+    updated_at timestamp(6)
+);
+
+alter table import_requests add column if not exists rejected bigint;
+
+create table if not exists import_rejects (
+    id uuid not null primary key,
+    import_id varchar(255),
+    line bigint,
+    record text,
+    error text
+);
+
+alter table import_rejects alter column error type text;
+
+create unique index if not exists ux_tickets_import_hash on tickets (import_hash);
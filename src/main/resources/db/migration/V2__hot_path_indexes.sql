@@ -0,0 +1,29 @@
+-- Secondary indexes for the repository queries. On large tables, create them by hand with
+-- "create index concurrently" and the same names before deploying; this script then skips them.
+
+-- Tickets of a user (listing, field selection, export), in creation order
+create index if not exists ix_tickets_assigned_to_id_created_at
+    on tickets (assigned_to_id, created_at);
+
+-- Export by status and archivable tickets, in creation order
+create index if not exists ix_tickets_status_created_at on tickets (status, created_at);
+
+-- Index rebuild and unfiltered export, in creation order
+create index if not exists ix_tickets_created_at on tickets (created_at);
+
+-- History of a ticket; ticket_history_id is already covered by its unique constraint
+create index if not exists ix_tickets_ticket_history_ticket_id
+    on tickets_ticket_history (ticket_id);
+
+create index if not exists ix_users_user_name on users (user_name);
+
+-- Nearest snapshot of a ticket before or after a time
+create index if not exists ix_ticket_snapshots_ticket_id_taken_at
+    on ticket_snapshots (ticket_id, taken_at);
+
+create index if not exists ix_tickets_archive_assigned_to on tickets_archive (assigned_to);
+
+create index if not exists ix_ticket_history_archive_ticket_id_update_date
+    on ticket_history_archive (ticket_id, update_date);
+
+create index if not exists ix_import_rejects_import_id on import_rejects (import_id, line);
@@ -0,0 +1,27 @@
+-- Tables created by spring.jpa.hibernate.ddl-auto got a check constraint on every enum column,
+-- listing the values the enum had at the time. Databases created by V1 never had them, and the
+-- application only writes values of its enums, so drop them on adopted databases; otherwise every
+-- value added to an enum later, such as ESCALATION, is rejected there.
+do $$
+declare
+    generated record;
+begin
+    for generated in
+        select c.conrelid::regclass as table_name, c.conname as constraint_name
+        from pg_constraint c
+        join pg_attribute a on a.attrelid = c.conrelid and a.attnum = c.conkey[1]
+        where c.contype = 'c'
+          and cardinality(c.conkey) = 1
+          and (c.conrelid::regclass::text, a.attname::text) in (
+              ('users', 'role'),
+              ('tickets', 'status'),
+              ('tickets_archive', 'status'),
+              ('ticket_snapshots', 'status'),
+              ('ticket_history', 'type'),
+              ('ticket_history_archive', 'type'),
+              ('import_requests', 'state'))
+    loop
+        execute format('alter table %s drop constraint %I',
+            generated.table_name, generated.constraint_name);
+    end loop;
+end $$;
@@ -0,0 +1,101 @@
+package com.tickets.benchmark;
+
+import static org.junit.jupiter.api.Assumptions.*;
+
+import com.tickets.util.UuidV7;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Insert throughput and primary key index size of random (v4) against time-ordered (v7) UUIDs.
+ *
+ * <p>Runs with <code>./gradlew benchmark -Pbenchmark.jdbc.url=...</code> against a scratch
+ * Postgres database; <code>benchmark.rows</code> (default 10,000,000), <code>benchmark.jdbc.user
+ * </code> and <code>benchmark.jdbc.password</code> can be set the same way. Skipped when no URL is
+ * given.
+ */
+@Tag("benchmark")
+public class UuidInsertBenchmark {
+
+  private static final Logger logger = LoggerFactory.getLogger(UuidInsertBenchmark.class);
+
+  private static final int BATCH_SIZE = 10_000;
+
+  @Test
+  void compareRandomAndTimeOrderedIds() throws SQLException {
+    String url = System.getProperty("benchmark.jdbc.url");
+    assumeTrue(url != null, "benchmark.jdbc.url not set");
+    long rows = Long.getLong("benchmark.rows", 10_000_000L);
+    try (Connection connection =
+        DriverManager.getConnection(
+            url,
+            System.getProperty("benchmark.jdbc.user", "postgres"),
+            System.getProperty("benchmark.jdbc.password", "mysecretpassword"))) {
+      connection.setAutoCommit(false);
+      run(connection, "uuid_v4_benchmark", rows, UUID::randomUUID);
+      run(connection, "uuid_v7_benchmark", rows, UuidV7::generate);
+    }
+  }
+
+  private void run(Connection connection, String table, long rows, Supplier<UUID> ids)
+      throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("DROP TABLE IF EXISTS " + table);
+      statement.execute(
+          "CREATE TABLE " + table + " (id uuid PRIMARY KEY, created_at timestamp, payload text)");
+    }
+    connection.commit();
+
+    long start = System.nanoTime();
+    long lastReport = start;
+    try (PreparedStatement insert =
+        connection.prepareStatement(
+            "INSERT INTO " + table + " (id, created_at, payload) VALUES (?, now(), ?)")) {
+      for (long i = 1; i <= rows; i++) {
+        insert.setObject(1, ids.get());
+        insert.setString(2, "ticket " + i);
+        insert.addBatch();
+        if (i % BATCH_SIZE == 0 || i == rows) {
+          insert.executeBatch();
+          connection.commit();
+        }
+        if (i % 1_000_000 == 0) {
+          long now = System.nanoTime();
+          logger.info(
+              "{}: {} rows, last million at {} rows/s",
+              table,
+              i,
+              (long) (1_000_000 / ((now - lastReport) / 1e9)));
+          lastReport = now;
+        }
+      }
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    String sizes =
+        "SELECT pg_relation_size('" + table + "_pkey'), pg_relation_size('" + table + "')";
+    try (Statement statement = connection.createStatement();
+        ResultSet result = statement.executeQuery(sizes)) {
+      result.next();
+      logger.info(
+          "{}: {} rows in {} s ({} rows/s), primary key index {} MB, table {} MB",
+          table,
+          rows,
+          String.format("%.1f", seconds),
+          (long) (rows / seconds),
+          result.getLong(1) / (1024 * 1024),
+          result.getLong(2) / (1024 * 1024));
+    }
+    connection.commit();
+  }
+}
@@ -0,0 +1,65 @@
+package com.tickets.configuration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.tickets.service.LoggingOutboxSink;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.mock.env.MockEnvironment;
+
+public class AotConditionCheckTest {
+  private static final List<Class<?>> GATED =
+      List.of(BulkheadConfig.class, ShardingConfig.class, LoggingOutboxSink.class);
+
+  private DefaultListableBeanFactory beanFactory;
+  private MockEnvironment environment;
+
+  @BeforeEach
+  void setUp() {
+    // Built with the defaults: bulkheads on, no shards, no logging sink
+    beanFactory = new DefaultListableBeanFactory();
+    beanFactory.registerBeanDefinition(
+        "bulkheadConfig", new RootBeanDefinition(BulkheadConfig.class));
+    environment = new MockEnvironment();
+  }
+
+  @Test
+  void testMatchingProperties() {
+    assertEquals(List.of(), AotConditionCheck.mismatches(beanFactory, environment, GATED));
+
+    environment.setProperty("tickets.bulkhead.enabled", "true");
+    environment.setProperty("tickets.outbox.logging-sink.enabled", "false");
+    assertEquals(List.of(), AotConditionCheck.mismatches(beanFactory, environment, GATED));
+  }
+
+  @Test
+  void testPropertySetAtRuntimeOnly() {
+    environment.setProperty("tickets.sharding.urls", "jdbc:postgresql://db-shard0:5432/postgres");
+    environment.setProperty("tickets.outbox.logging-sink.enabled", "true");
+
+    assertEquals(
+        List.of(
+            "tickets.sharding.urls=jdbc:postgresql://db-shard0:5432/postgres but the build lacks"
+                + " ShardingConfig",
+            "tickets.outbox.logging-sink.enabled=true but the build lacks LoggingOutboxSink"),
+        AotConditionCheck.mismatches(beanFactory, environment, GATED));
+  }
+
+  @Test
+  void testPropertyDisabledAtRuntimeOnly() {
+    environment.setProperty("tickets.bulkhead.enabled", "false");
+
+    assertEquals(
+        List.of("tickets.bulkhead.enabled=false but the build has BulkheadConfig"),
+        AotConditionCheck.mismatches(beanFactory, environment, GATED));
+  }
+
+  @Test
+  void testNoCheckWithoutAot() {
+    environment.setProperty("tickets.bulkhead.enabled", "false");
+    assertDoesNotThrow(() -> new AotConditionCheck(beanFactory, environment));
+  }
+}
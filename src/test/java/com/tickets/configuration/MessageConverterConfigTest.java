@@ -0,0 +1,47 @@
+package com.tickets.configuration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tickets.dto.TicketDto;
+import com.tickets.model.Status;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+public class MessageConverterConfigTest {
+  private final MessageConverterConfig config = new MessageConverterConfig();
+
+  @Test
+  void testBinaryFormatsRoundTripAndAreSmallerThanJson() throws Exception {
+    List<TicketDto> tickets = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      tickets.add(
+          TicketDto.builder()
+              .id(UUID.randomUUID())
+              .subject("Ticket " + i)
+              .description("Printer on floor " + i + " is jammed")
+              .createdBy(UUID.randomUUID().toString())
+              .createdAt(new Date())
+              .modifiedAt(new Date())
+              .status(Status.IN_PROGRESS)
+              .build());
+    }
+    byte[] json = new Jackson2ObjectMapperBuilder().build().writeValueAsBytes(tickets);
+
+    ObjectMapper cbor =
+        config.cborHttpMessageConverter(new Jackson2ObjectMapperBuilder()).getObjectMapper();
+    byte[] cborBytes = cbor.writeValueAsBytes(tickets);
+    assertTrue(cborBytes.length < json.length);
+    assertEquals(tickets, List.of(cbor.readValue(cborBytes, TicketDto[].class)));
+
+    ObjectMapper smile =
+        config.smileHttpMessageConverter(new Jackson2ObjectMapperBuilder()).getObjectMapper();
+    byte[] smileBytes = smile.writeValueAsBytes(tickets);
+    assertTrue(smileBytes.length < json.length);
+    assertEquals(tickets, List.of(smile.readValue(smileBytes, TicketDto[].class)));
+  }
+}
@@ -0,0 +1,70 @@
+package com.tickets.configuration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+public class ReplicaRoutingDataSourceTest {
+  private JdbcTemplate jdbcTemplate;
+  private TransactionTemplate writeTemplate;
+  private TransactionTemplate readTemplate;
+
+  @BeforeEach
+  void setUp() {
+    DataSource primary = database("primary");
+    DataSource replica = database("replica");
+    DataSource dataSource =
+        new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replica));
+    DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    writeTemplate = new TransactionTemplate(transactionManager);
+    readTemplate = new TransactionTemplate(transactionManager);
+    readTemplate.setReadOnly(true);
+  }
+
+  @AfterEach
+  void tearDown() {
+    ReplicaRoutingDataSource.setPrimaryOnly(false);
+  }
+
+  @Test
+  void testReadOnlyTransactionUsesReplica() {
+    assertEquals("replica", readTemplate.execute(status -> currentDatabase()));
+  }
+
+  @Test
+  void testWritesAndNonTransactionalQueriesUsePrimary() {
+    assertEquals("primary", writeTemplate.execute(status -> currentDatabase()));
+    assertEquals("primary", currentDatabase());
+  }
+
+  @Test
+  void testPrimaryOnlyKeepsReadsOnPrimary() {
+    ReplicaRoutingDataSource.setPrimaryOnly(true);
+    assertEquals("primary", readTemplate.execute(status -> currentDatabase()));
+    ReplicaRoutingDataSource.setPrimaryOnly(false);
+    assertEquals("replica", readTemplate.execute(status -> currentDatabase()));
+  }
+
+  private String currentDatabase() {
+    return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+  }
+
+  private static DataSource database(String name) {
+    DriverManagerDataSource dataSource =
+        new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(16))");
+    jdbcTemplate.update("DELETE FROM node");
+    jdbcTemplate.update("INSERT INTO node VALUES (?)", name);
+    return dataSource;
+  }
+}
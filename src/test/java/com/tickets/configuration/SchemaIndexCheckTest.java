@@ -0,0 +1,75 @@
+package com.tickets.configuration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+public class SchemaIndexCheckTest {
+  private DriverManagerDataSource dataSource;
+  private JdbcTemplate jdbcTemplate;
+
+  @BeforeEach
+  void setUp() {
+    String url = "jdbc:h2:mem:schema-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+    dataSource = new DriverManagerDataSource(url);
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute(
+        "create table tickets (id uuid primary key, assigned_to_id uuid, status varchar(255),"
+            + " created_at timestamp, import_hash bigint)");
+    jdbcTemplate.execute(
+        "create table tickets_ticket_history (ticket_id uuid, ticket_history_id uuid unique)");
+    jdbcTemplate.execute("create table users (id uuid primary key, user_name varchar(255))");
+    jdbcTemplate.execute(
+        "create table ticket_snapshots (id uuid primary key, ticket_id uuid, taken_at timestamp)");
+    jdbcTemplate.execute("create table tickets_archive (id uuid primary key, assigned_to uuid)");
+    jdbcTemplate.execute(
+        "create table ticket_history_archive (id uuid primary key, ticket_id uuid,"
+            + " update_date timestamp)");
+    jdbcTemplate.execute(
+        "create table import_rejects (id uuid primary key, import_id varchar(255), line bigint)");
+  }
+
+  @Test
+  void testAllIndexesMissing() throws Exception {
+    List<String> missing =
+        SchemaIndexCheck.findMissing(dataSource.getConnection().getMetaData(), "PUBLIC").stream()
+            .map(Object::toString)
+            .toList();
+    assertTrue(missing.contains("tickets (assigned_to_id, created_at)"));
+    assertFalse(missing.contains("tickets_ticket_history (ticket_history_id)"));
+    assertThrows(IllegalStateException.class, () -> new SchemaIndexCheck(dataSource).check());
+  }
+
+  @Test
+  void testAllIndexesPresent() {
+    createIndexes();
+    assertDoesNotThrow(() -> new SchemaIndexCheck(dataSource).check());
+  }
+
+  @Test
+  void testIndexWithOtherNameAndMoreColumnsMatches() throws Exception {
+    createIndexes();
+    jdbcTemplate.execute("drop index ix_tickets_created_at");
+    jdbcTemplate.execute("create index some_name on tickets (created_at, status)");
+    assertTrue(
+        SchemaIndexCheck.findMissing(dataSource.getConnection().getMetaData(), "PUBLIC")
+            .isEmpty());
+  }
+
+  private void createIndexes() {
+    jdbcTemplate.execute("create index ix_1 on tickets (assigned_to_id, created_at)");
+    jdbcTemplate.execute("create index ix_2 on tickets (status, created_at)");
+    jdbcTemplate.execute("create index ix_tickets_created_at on tickets (created_at)");
+    jdbcTemplate.execute("create unique index ix_4 on tickets (import_hash)");
+    jdbcTemplate.execute("create index ix_5 on tickets_ticket_history (ticket_id)");
+    jdbcTemplate.execute("create index ix_6 on users (user_name)");
+    jdbcTemplate.execute("create index ix_7 on ticket_snapshots (ticket_id, taken_at)");
+    jdbcTemplate.execute("create index ix_8 on tickets_archive (assigned_to)");
+    jdbcTemplate.execute("create index ix_9 on ticket_history_archive (ticket_id, update_date)");
+    jdbcTemplate.execute("create index ix_10 on import_rejects (import_id, line)");
+  }
+}
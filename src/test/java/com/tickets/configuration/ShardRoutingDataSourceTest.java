@@ -0,0 +1,68 @@
+package com.tickets.configuration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.tickets.util.UuidV7;
+import java.util.List;
+import java.util.UUID;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+public class ShardRoutingDataSourceTest {
+
+  @AfterEach
+  void tearDown() {
+    ShardRoutingDataSource.setShard(null);
+  }
+
+  @Test
+  void testConnectionsFollowShardOfThread() {
+    JdbcTemplate jdbcTemplate =
+        new JdbcTemplate(
+            new ShardRoutingDataSource(List.of(database("node0"), database("node1"))));
+
+    assertEquals("node0", currentDatabase(jdbcTemplate));
+    ShardRoutingDataSource.setShard(1);
+    assertEquals("node1", currentDatabase(jdbcTemplate));
+    ShardRoutingDataSource.setShard(null);
+    assertEquals("node0", currentDatabase(jdbcTemplate));
+  }
+
+  @Test
+  void testShardOfSpreadsTimeOrderedIds() {
+    int[] counts = new int[4];
+    for (int i = 0; i < 4000; i++) {
+      UUID id = UuidV7.generate();
+      int shard = ShardRoutingDataSource.shardOf(id, counts.length);
+      assertEquals(shard, ShardRoutingDataSource.shardOf(id, counts.length));
+      counts[shard]++;
+    }
+    for (int count : counts) {
+      assertTrue(count > 800 && count < 1200, "Shard count: " + count);
+    }
+  }
+
+  @Test
+  void testShardOfIsFixed() {
+    UUID id = UUID.fromString("0190b6a2-7c1e-7000-8000-000000000000");
+    assertEquals(ShardRoutingDataSource.shardOf(id, 3), ShardRoutingDataSource.shardOf(id, 3));
+    assertEquals(0, ShardRoutingDataSource.shardOf(id, 1));
+  }
+
+  private static String currentDatabase(JdbcTemplate jdbcTemplate) {
+    return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+  }
+
+  private static DataSource database(String name) {
+    DriverManagerDataSource dataSource =
+        new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(16))");
+    jdbcTemplate.update("DELETE FROM node");
+    jdbcTemplate.update("INSERT INTO node VALUES (?)", name);
+    return dataSource;
+  }
+}
@@ -0,0 +1,78 @@
+package com.tickets.configuration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+public class ShardUserReplicationTest {
+  private final List<DataSource> shards = new ArrayList<>();
+  private ShardUserReplication replication;
+
+  @BeforeEach
+  void setUp() {
+    for (int shard = 0; shard < 3; shard++) {
+      String url = "jdbc:h2:mem:users-" + shard + "-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+      DataSource dataSource = new DriverManagerDataSource(url);
+      new JdbcTemplate(dataSource)
+          .execute(
+              "create table users (id uuid primary key, user_name varchar(255),"
+                  + " password varchar(255), role varchar(255))");
+      shards.add(dataSource);
+    }
+    replication = new ShardUserReplication(new ShardRoutingDataSource(shards));
+  }
+
+  @Test
+  void testReplicateInsertsMissingAndUpdatesChangedUsers() {
+    UUID support = UUID.randomUUID();
+    UUID user = UUID.randomUUID();
+    UUID retired = UUID.randomUUID();
+    insert(0, support, "support", "ROLE_SUPPORT");
+    insert(0, user, "user", "ROLE_USER");
+    insert(1, support, "support", "ROLE_USER");
+    insert(2, retired, "retired", "ROLE_USER");
+
+    replication.replicateAndCheck();
+
+    for (int shard = 1; shard < 3; shard++) {
+      JdbcTemplate jdbcTemplate = new JdbcTemplate(shards.get(shard));
+      String sql = "select role from users where id = ?";
+      assertEquals("ROLE_SUPPORT", jdbcTemplate.queryForObject(sql, String.class, support));
+      assertEquals("ROLE_USER", jdbcTemplate.queryForObject(sql, String.class, user));
+    }
+    assertEquals(
+        1,
+        new JdbcTemplate(shards.get(2))
+            .queryForObject("select count(*) from users where id = ?", Integer.class, retired));
+    assertEquals(0, replication.replicate());
+  }
+
+  @Test
+  void testReplicatePicksUpLaterChanges() {
+    UUID support = UUID.randomUUID();
+    insert(0, support, "support", "ROLE_SUPPORT");
+    replication.replicateAndCheck();
+
+    new JdbcTemplate(shards.get(0))
+        .update("update users set role = 'ROLE_USER' where id = ?", support);
+    insert(0, UUID.randomUUID(), "product", "ROLE_PRODUCT");
+
+    assertEquals(4, replication.replicate());
+  }
+
+  private void insert(int shard, UUID id, String userName, String role) {
+    new JdbcTemplate(shards.get(shard))
+        .update(
+            "insert into users (id, user_name, password, role) values (?, ?, 'x', ?)",
+            id,
+            userName,
+            role);
+  }
+}
@@ -0,0 +1,65 @@
+package com.tickets.configuration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.tickets.repository.UserRepository;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.tracing.handler.DefaultTracingObservationHandler;
+import io.micrometer.tracing.test.simple.SimpleSpan;
+import io.micrometer.tracing.test.simple.SimpleTracer;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+
+public class TracingConfigTest {
+  private final SimpleTracer tracer = new SimpleTracer();
+  private final ObservationRegistry registry = ObservationRegistry.create();
+  private final UserRepository target = mock(UserRepository.class);
+  private UserRepository userRepository;
+
+  @BeforeEach
+  void setUp() {
+    registry.observationConfig().observationHandler(new DefaultTracingObservationHandler(tracer));
+    ProxyFactory proxyFactory = new ProxyFactory(target);
+    proxyFactory.addInterface(UserRepository.class);
+    proxyFactory.addAdvice(
+        new TracingConfig.RepositoryObservationInterceptor(() -> registry, "UserRepository"));
+    userRepository = (UserRepository) proxyFactory.getProxy();
+  }
+
+  @Test
+  void testRepositorySpanIsChildOfCaller() {
+    Observation.createNotStarted("tickets.service", registry)
+        .contextualName("updateTicket")
+        .observe(() -> userRepository.findById(UUID.randomUUID()));
+
+    assertEquals(2, tracer.getSpans().size());
+    SimpleSpan parent = span("updateTicket");
+    SimpleSpan child = span("UserRepository.findById");
+    assertEquals(parent.context().traceId(), child.context().traceId());
+    assertEquals(parent.context().spanId(), child.context().parentId());
+    assertEquals("UserRepository", child.getTags().get("repository"));
+    assertEquals("findById", child.getTags().get("method"));
+  }
+
+  @Test
+  void testRepositoryErrorIsRecorded() {
+    when(target.findById(any())).thenThrow(new IllegalStateException("down"));
+
+    assertThrows(IllegalStateException.class, () -> userRepository.findById(UUID.randomUUID()));
+
+    SimpleSpan span = span("UserRepository.findById");
+    assertInstanceOf(IllegalStateException.class, span.getError());
+  }
+
+  private SimpleSpan span(String name) {
+    return tracer.getSpans().stream()
+        .filter(s -> name.equals(s.getName()))
+        .findFirst()
+        .orElseThrow(() -> new AssertionError("No span named " + name));
+  }
+}
@@ -1,15 +1,24 @@
 package com.tickets.controller;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
+import com.tickets.dto.ImportResultDto;
 import com.tickets.dto.TicketCreationDto;
 import com.tickets.dto.TicketDto;
 import com.tickets.dto.TicketHistoryDto;
 import com.tickets.dto.TicketUpdateDto;
 import com.tickets.model.ChangeType;
+import com.tickets.model.ImportRequest;
+import com.tickets.model.Status;
+import com.tickets.service.TicketFeedService;
+import com.tickets.service.TicketImportService;
 import com.tickets.service.TicketService;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.Collections;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
@@ -17,18 +26,23 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 public class TciketController {
   @Mock private TicketService ticketService;
+  @Mock private TicketFeedService ticketFeedService;
+  @Mock private TicketImportService ticketImportService;
   @InjectMocks private TicketController ticketController;
 
   @BeforeEach
   void setUp() {
     MockitoAnnotations.openMocks(this);
-    ticketController = new TicketController(ticketService);
+    ticketController = new TicketController(ticketService, ticketFeedService, ticketImportService);
   }
 
   @Test
@@ -57,37 +71,74 @@ public class TciketController {
     String id = "123";
     ChangeType type = ChangeType.STATUS;
     List<TicketHistoryDto> historyList = Collections.singletonList(mock(TicketHistoryDto.class));
-    when(ticketService.getTicketHistory(id, type)).thenReturn(historyList);
-    List<TicketHistoryDto> result = ticketController.getTicketHistory(id, type);
+    when(ticketService.getTicketHistory(id, type, false)).thenReturn(historyList);
+    List<TicketHistoryDto> result = ticketController.getTicketHistory(id, type, false);
     assertEquals(historyList, result);
-    verify(ticketService).getTicketHistory(id, type);
+    verify(ticketService).getTicketHistory(id, type, false);
   }
 
   @Test
   void testBulkImport() {
     MultipartFile file =
         new MockMultipartFile("file", "test.csv", MediaType.TEXT_PLAIN_VALUE, "data".getBytes());
-    doNothing().when(ticketService).importTickets(file);
-    ticketController.bulkImport(file);
-    verify(ticketService).importTickets(file);
+    ImportResultDto importResult = ImportResultDto.builder().imported(1).build();
+    when(ticketImportService.importTickets(file, "key", null, false)).thenReturn(importResult);
+    ResponseEntity<ImportResultDto> result = ticketController.bulkImport(file, "key", null, false);
+    assertEquals(HttpStatus.OK, result.getStatusCode());
+    assertEquals(importResult, result.getBody());
+    verify(ticketImportService).importTickets(file, "key", null, false);
+  }
+
+  @Test
+  void testBulkImportBody() {
+    InputStream body = new ByteArrayInputStream("a,b,NEW".getBytes());
+    ImportResultDto importResult = ImportResultDto.builder().imported(1).build();
+    when(ticketImportService.importTickets(
+            any(), eq("request body"), eq("gzip"), eq("key"), isNull(), eq(false)))
+        .thenReturn(importResult);
+    ResponseEntity<ImportResultDto> result =
+        ticketController.bulkImportBody(body, "gzip", "key", null, false);
+    assertEquals(HttpStatus.OK, result.getStatusCode());
+    assertEquals(importResult, result.getBody());
+  }
+
+  @Test
+  void testBulkImport_ErrorBudgetExceeded() {
+    MultipartFile file =
+        new MockMultipartFile("file", "test.csv", MediaType.TEXT_PLAIN_VALUE, "data".getBytes());
+    ImportResultDto importResult =
+        ImportResultDto.builder().state(ImportRequest.State.FAILED).rejected(3).build();
+    when(ticketImportService.importTickets(file, null, 2, false)).thenReturn(importResult);
+    ResponseEntity<ImportResultDto> result = ticketController.bulkImport(file, null, 2, false);
+    assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, result.getStatusCode());
   }
 
   @Test
   void testGetTickets_All() {
     List<TicketDto> tickets = List.of(mock(TicketDto.class), mock(TicketDto.class));
-    when(ticketService.getTikets(null)).thenReturn(tickets);
-    List<TicketDto> result = ticketController.getTickets(null);
+    when(ticketService.getTikets(null, false, 0, null)).thenReturn(tickets);
+    List<TicketDto> result = ticketController.getTickets(null, false, 0, null);
     assertEquals(tickets, result);
-    verify(ticketService).getTikets(null);
+    verify(ticketService).getTikets(null, false, 0, null);
   }
 
   @Test
   void testGetTickets_ById() {
     String id = "abc-123";
     List<TicketDto> tickets = List.of(mock(TicketDto.class));
-    when(ticketService.getTikets(id)).thenReturn(tickets);
-    List<TicketDto> result = ticketController.getTickets(id);
+    when(ticketService.getTikets(id, false, 0, null)).thenReturn(tickets);
+    List<TicketDto> result = ticketController.getTickets(id, false, 0, null);
     assertEquals(tickets, result);
-    verify(ticketService).getTikets(id);
+    verify(ticketService).getTikets(id, false, 0, null);
+  }
+
+  @Test
+  void testStreamTicketChanges() {
+    SseEmitter emitter = new SseEmitter();
+    String lastEventId = "1700000000000-42";
+    when(ticketFeedService.subscribe("user", Status.NEW, lastEventId)).thenReturn(emitter);
+    SseEmitter result = ticketController.streamTicketChanges("user", Status.NEW, lastEventId);
+    assertEquals(emitter, result);
+    verify(ticketFeedService).subscribe("user", Status.NEW, lastEventId);
   }
 }
@@ -0,0 +1,84 @@
+package com.tickets.filter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+public class BulkheadTest {
+
+  @Test
+  void testQueueAndShed() throws Exception {
+    Bulkhead bulkhead = new Bulkhead("test", 1, 1, 5000);
+    assertTrue(bulkhead.tryAcquire());
+
+    CompletableFuture<Boolean> waiting =
+        CompletableFuture.supplyAsync(
+            () -> {
+              try {
+                return bulkhead.tryAcquire();
+              } catch (InterruptedException e) {
+                return false;
+              }
+            });
+    while (bulkhead.getQueued() == 0) {
+      Thread.sleep(1);
+    }
+    assertFalse(bulkhead.tryAcquire());
+    assertEquals(1, bulkhead.getShedTotal());
+
+    bulkhead.release(TimeUnit.MILLISECONDS.toNanos(10));
+    assertTrue(waiting.get(5, TimeUnit.SECONDS));
+    assertEquals(1, bulkhead.getInFlight());
+    assertEquals(1, bulkhead.getQueuedTotal());
+  }
+
+  @Test
+  void testQueueTimeout() throws Exception {
+    Bulkhead bulkhead = new Bulkhead("test", 1, 1, 10);
+    assertTrue(bulkhead.tryAcquire());
+    assertFalse(bulkhead.tryAcquire());
+    assertEquals(1, bulkhead.getShedTotal());
+    assertEquals(0, bulkhead.getQueued());
+  }
+
+  @Test
+  void testLimitFollowsLatency() throws Exception {
+    Bulkhead bulkhead = new Bulkhead("test", 20, 0, 0);
+    for (int i = 0; i < 100; i++) {
+      assertTrue(bulkhead.tryAcquire());
+      bulkhead.release(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+    assertEquals(20, bulkhead.getLimit());
+
+    for (int i = 0; i < 30; i++) {
+      assertTrue(bulkhead.tryAcquire());
+      bulkhead.release(TimeUnit.MILLISECONDS.toNanos(200));
+    }
+    assertTrue(bulkhead.getLimit() < 10);
+
+    for (int i = 0; i < 200; i++) {
+      assertTrue(bulkhead.tryAcquire());
+      bulkhead.release(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+    assertEquals(20, bulkhead.getLimit());
+  }
+
+  @Test
+  void testGroups() {
+    assertEquals(BulkheadFilter.LIST, group("GET", "/api/tickets"));
+    assertEquals(BulkheadFilter.READ, group("GET", "/api/tickets/1/history"));
+    assertEquals(BulkheadFilter.IMPORT, group("POST", "/api/tickets/bulkimport"));
+    assertEquals(BulkheadFilter.EXPORT, group("GET", "/api/tickets/export"));
+    assertEquals(BulkheadFilter.EXPORT, group("GET", "/api/tickets/bulkimport/key/rejects"));
+    assertEquals(BulkheadFilter.WRITE, group("PUT", "/api/tickets/1"));
+    assertNull(group("GET", "/api/tickets/stream"));
+    assertNull(group("GET", "/actuator/prometheus"));
+  }
+
+  private static String group(String method, String uri) {
+    return BulkheadFilter.group(new MockHttpServletRequest(method, uri));
+  }
+}
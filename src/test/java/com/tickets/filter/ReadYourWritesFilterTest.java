@@ -0,0 +1,56 @@
+package com.tickets.filter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.tickets.configuration.ReplicaRoutingDataSource;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class ReadYourWritesFilterTest {
+  private final ReadYourWritesFilter filter = new ReadYourWritesFilter(5000);
+
+  @Test
+  void testWriteOpensWindow() throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    AtomicBoolean pinned = new AtomicBoolean();
+    filter.doFilter(new MockHttpServletRequest("PUT", "/api/tickets/1"), response, capture(pinned));
+
+    assertTrue(pinned.get());
+    Cookie cookie = response.getCookie(ReadYourWritesFilter.COOKIE_NAME);
+    assertNotNull(cookie);
+    assertTrue(Long.parseLong(cookie.getValue()) > System.currentTimeMillis());
+    assertFalse(ReplicaRoutingDataSource.isPrimaryOnly());
+  }
+
+  @Test
+  void testReadInsideWindowUsesPrimary() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tickets");
+    request.setCookies(
+        new Cookie(
+            ReadYourWritesFilter.COOKIE_NAME, Long.toString(System.currentTimeMillis() + 5000)));
+    AtomicBoolean pinned = new AtomicBoolean();
+    filter.doFilter(request, new MockHttpServletResponse(), capture(pinned));
+    assertTrue(pinned.get());
+  }
+
+  @Test
+  void testReadOutsideWindowUsesReplica() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tickets");
+    request.setCookies(
+        new Cookie(
+            ReadYourWritesFilter.COOKIE_NAME, Long.toString(System.currentTimeMillis() - 1)));
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    AtomicBoolean pinned = new AtomicBoolean(true);
+    filter.doFilter(request, response, capture(pinned));
+    assertFalse(pinned.get());
+    assertNull(response.getCookie(ReadYourWritesFilter.COOKIE_NAME));
+  }
+
+  private static FilterChain capture(AtomicBoolean pinned) {
+    return (request, response) -> pinned.set(ReplicaRoutingDataSource.isPrimaryOnly());
+  }
+}
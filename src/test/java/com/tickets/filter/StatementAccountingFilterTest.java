@@ -0,0 +1,82 @@
+package com.tickets.filter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+public class StatementAccountingFilterTest {
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Test
+  void testRecordsPerEndpoint() throws Exception {
+    StatementAccountingFilter filter = new StatementAccountingFilter(meterRegistry, 10, true);
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tickets/1");
+    request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/tickets/{id}");
+
+    filter.doFilter(request, new MockHttpServletResponse(), statements(3));
+
+    DistributionSummary statements =
+        meterRegistry
+            .get("tickets.request.statements")
+            .tag("method", "GET")
+            .tag("uri", "/api/tickets/{id}")
+            .summary();
+    assertEquals(1, statements.count());
+    assertEquals(3, statements.totalAmount());
+    assertEquals(2, meterRegistry.get("tickets.request.entities.loaded").summary().totalAmount());
+    assertEquals(
+        1, meterRegistry.get("tickets.request.collections.fetched").summary().totalAmount());
+    assertEquals(1, meterRegistry.get("tickets.request.flushes").summary().totalAmount());
+  }
+
+  @Test
+  void testFailsOverMax() {
+    StatementAccountingFilter filter = new StatementAccountingFilter(meterRegistry, 2, true);
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tickets");
+
+    IllegalStateException e =
+        assertThrows(
+            IllegalStateException.class,
+            () -> filter.doFilter(request, new MockHttpServletResponse(), statements(3)));
+    assertTrue(e.getMessage().contains("ran 3 SQL statements (max 2)"));
+    assertEquals(3, meterRegistry.get("tickets.request.statements").summary().totalAmount());
+  }
+
+  @Test
+  void testLogsOverMax() throws Exception {
+    StatementAccountingFilter filter = new StatementAccountingFilter(meterRegistry, 2, false);
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tickets");
+
+    filter.doFilter(request, new MockHttpServletResponse(), statements(3));
+
+    assertEquals(
+        "UNKNOWN", meterRegistry.get("tickets.request.statements").summary().getId().getTag("uri"));
+  }
+
+  @Test
+  void testNotCountedOutsideRequest() {
+    RequestStatistics.statementPrepared();
+    RequestStatistics statistics = RequestStatistics.begin();
+    RequestStatistics.end();
+    RequestStatistics.statementPrepared();
+    assertEquals(0, statistics.getStatements());
+  }
+
+  private static FilterChain statements(int count) {
+    return (request, response) -> {
+      for (int i = 0; i < count; i++) {
+        RequestStatistics.statementPrepared();
+      }
+      RequestStatistics.entityLoaded();
+      RequestStatistics.entityLoaded();
+      RequestStatistics.collectionFetched();
+      RequestStatistics.flushed();
+    };
+  }
+}
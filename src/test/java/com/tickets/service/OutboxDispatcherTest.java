@@ -0,0 +1,119 @@
+package com.tickets.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.tickets.model.OutboxCheckpoint;
+import com.tickets.model.OutboxEvent;
+import com.tickets.repository.OutboxCheckpointRepository;
+import com.tickets.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+public class OutboxDispatcherTest {
+  @Mock private OutboxEventRepository outboxEventRepository;
+  @Mock private OutboxCheckpointRepository outboxCheckpointRepository;
+  @Mock private OutboxSink sink;
+  private SimpleMeterRegistry meterRegistry;
+  private OutboxDispatcher outboxDispatcher;
+
+  @BeforeEach
+  void setUp() {
+    MockitoAnnotations.openMocks(this);
+    meterRegistry = new SimpleMeterRegistry();
+    when(sink.getName()).thenReturn("test");
+    when(outboxCheckpointRepository.findById("test"))
+        .thenReturn(Optional.of(OutboxCheckpoint.builder().sink("test").lastEventId(5L).build()));
+    when(outboxCheckpointRepository.save(any())).thenAnswer(i -> i.getArgument(0));
+    outboxDispatcher =
+        new OutboxDispatcher(
+            outboxEventRepository,
+            outboxCheckpointRepository,
+            List.of(sink),
+            new TicketShards(mock(PlatformTransactionManager.class), List.of()),
+            meterRegistry,
+            true,
+            10,
+            60000,
+            false);
+  }
+
+  @Test
+  void testDispatchAdvancesCheckpoint() throws Exception {
+    List<OutboxEvent> events =
+        List.of(OutboxEvent.builder().id(6L).build(), OutboxEvent.builder().id(7L).build());
+    when(outboxEventRepository.findMaxId()).thenReturn(9L);
+    when(outboxEventRepository.findByIdGreaterThanOrderByIdAsc(eq(5L), any()))
+        .thenReturn(events);
+    outboxDispatcher.dispatch();
+    verify(sink).deliver(events);
+    verify(outboxCheckpointRepository)
+        .save(argThat(c -> c.getLastEventId() == 7L && c.getSink().equals("test")));
+    assertEquals(2.0, meterRegistry.get("tickets.outbox.lag").gauge().value());
+  }
+
+  @Test
+  void testDispatchKeepsCheckpointOnFailure() throws Exception {
+    List<OutboxEvent> events = List.of(OutboxEvent.builder().id(6L).build());
+    when(outboxEventRepository.findMaxId()).thenReturn(6L);
+    when(outboxEventRepository.findByIdGreaterThanOrderByIdAsc(eq(5L), any()))
+        .thenReturn(events);
+    doThrow(new IllegalStateException("down")).when(sink).deliver(events);
+    outboxDispatcher.dispatch();
+    verify(outboxCheckpointRepository, never()).save(any());
+    assertEquals(1.0, meterRegistry.get("tickets.outbox.failures").counter().count());
+  }
+
+  @Test
+  void testDispatchWaitsForEventCommittedOutOfOrder() throws Exception {
+    OutboxEvent late = event(6L, 1000);
+    List<OutboxEvent> committed = List.of(event(7L, 500), event(8L, 0));
+    when(outboxEventRepository.findMaxId()).thenReturn(8L);
+    when(outboxEventRepository.findByIdGreaterThanOrderByIdAsc(eq(5L), any()))
+        .thenReturn(committed);
+    outboxDispatcher.dispatch();
+    verify(sink, never()).deliver(any());
+    verify(outboxCheckpointRepository, never()).save(any());
+
+    List<OutboxEvent> all = List.of(late, committed.get(0), committed.get(1));
+    when(outboxEventRepository.findByIdGreaterThanOrderByIdAsc(eq(5L), any())).thenReturn(all);
+    outboxDispatcher.dispatch();
+    verify(sink).deliver(all);
+    verify(outboxCheckpointRepository).save(argThat(c -> c.getLastEventId() == 8L));
+  }
+
+  @Test
+  void testDispatchDeliversUpToGap() throws Exception {
+    List<OutboxEvent> events = List.of(event(6L, 0), event(8L, 0));
+    when(outboxEventRepository.findMaxId()).thenReturn(8L);
+    when(outboxEventRepository.findByIdGreaterThanOrderByIdAsc(eq(5L), any())).thenReturn(events);
+    outboxDispatcher.dispatch();
+    verify(sink).deliver(List.of(events.get(0)));
+    verify(outboxCheckpointRepository).save(argThat(c -> c.getLastEventId() == 6L));
+  }
+
+  @Test
+  void testDispatchSkipsExpiredGap() throws Exception {
+    List<OutboxEvent> events = List.of(event(7L, 120000), event(8L, 0));
+    when(outboxEventRepository.findMaxId()).thenReturn(8L);
+    when(outboxEventRepository.findByIdGreaterThanOrderByIdAsc(eq(5L), any())).thenReturn(events);
+    outboxDispatcher.dispatch();
+    verify(sink).deliver(events);
+    verify(outboxCheckpointRepository).save(argThat(c -> c.getLastEventId() == 8L));
+  }
+
+  private static OutboxEvent event(long id, long age) {
+    return OutboxEvent.builder()
+        .id(id)
+        .createdAt(new Date(System.currentTimeMillis() - age))
+        .build();
+  }
+}
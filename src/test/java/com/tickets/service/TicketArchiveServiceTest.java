@@ -0,0 +1,140 @@
+package com.tickets.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.tickets.dto.TicketHistoryDto;
+import com.tickets.model.ArchivedTicket;
+import com.tickets.model.ArchivedTicketHistory;
+import com.tickets.model.ChangeType;
+import com.tickets.model.Status;
+import com.tickets.model.Ticket;
+import com.tickets.model.TicketHistory;
+import com.tickets.repository.ArchivedTicketHistoryRepository;
+import com.tickets.repository.ArchivedTicketRepository;
+import com.tickets.repository.TicketHistoryRepository;
+import com.tickets.repository.TicketRepository;
+import com.tickets.repository.TicketSnapshotRepository;
+import com.tickets.util.TicketMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+public class TicketArchiveServiceTest {
+  @Mock private TicketRepository ticketRepository;
+  @Mock private TicketHistoryRepository ticketHistoryRepository;
+  @Mock private TicketSnapshotRepository ticketSnapshotRepository;
+  @Mock private ArchivedTicketRepository archivedTicketRepository;
+  @Mock private ArchivedTicketHistoryRepository archivedTicketHistoryRepository;
+  @Mock private TicketMapper ticketMapper;
+  @Mock private TicketIndex ticketIndex;
+  @Mock private PlatformTransactionManager transactionManager;
+  private TicketArchiveService ticketArchiveService;
+
+  @BeforeEach
+  void setUp() {
+    MockitoAnnotations.openMocks(this);
+    ticketArchiveService =
+        new TicketArchiveService(
+            ticketRepository,
+            ticketHistoryRepository,
+            ticketSnapshotRepository,
+            archivedTicketRepository,
+            archivedTicketHistoryRepository,
+            ticketMapper,
+            ticketIndex,
+            new TicketShards(transactionManager, List.of()),
+            new TransactionTemplate(transactionManager),
+            true,
+            90,
+            2);
+  }
+
+  @Test
+  void testArchiveClosedTickets() {
+    TicketHistory history = TicketHistory.builder().type(ChangeType.STATUS).build();
+    Ticket ticket =
+        Ticket.builder()
+            .id(UUID.randomUUID())
+            .status(Status.CLOSED)
+            .ticketHistory(new ArrayList<>(List.of(history)))
+            .build();
+    List<UUID> ids = List.of(ticket.getId());
+    when(ticketRepository.findArchivableIds(
+            argThat(statuses -> statuses.containsAll(List.of("CLOSED", "DONE"))), any(), eq(2)))
+        .thenReturn(ids);
+    when(ticketRepository.findAllWithHistoryByIdIn(ids)).thenReturn(List.of(ticket));
+
+    assertEquals(1, ticketArchiveService.archiveClosedTickets());
+
+    verify(ticketMapper).archive(eq(ticket), any());
+    verify(ticketMapper).archive(ticket.getId(), history);
+    verify(archivedTicketRepository).saveAll(any());
+    verify(archivedTicketHistoryRepository).saveAll(any());
+    verify(ticketSnapshotRepository).deleteByTicketIdIn(ids);
+    verify(ticketRepository).deleteAll(List.of(ticket));
+    verify(ticketHistoryRepository).deleteAll(List.of(history));
+    verify(ticketIndex).remove(ticket.getId());
+  }
+
+  @Test
+  void testArchivedEntitiesAreInsertedWithoutMerge() {
+    assertTrue(ArchivedTicket.builder().id(UUID.randomUUID()).build().isNew());
+    assertTrue(ArchivedTicketHistory.builder().id(UUID.randomUUID()).build().isNew());
+  }
+
+  @Test
+  void testArchiveClosedTickets_Disabled() {
+    ticketArchiveService =
+        new TicketArchiveService(
+            ticketRepository,
+            ticketHistoryRepository,
+            ticketSnapshotRepository,
+            archivedTicketRepository,
+            archivedTicketHistoryRepository,
+            ticketMapper,
+            ticketIndex,
+            new TicketShards(transactionManager, List.of()),
+            new TransactionTemplate(transactionManager),
+            false,
+            90,
+            2);
+    assertEquals(0, ticketArchiveService.archiveClosedTickets());
+    verifyNoInteractions(ticketRepository);
+  }
+
+  @Test
+  void testGetArchivedTicketHistory_FilterByType() {
+    UUID id = UUID.randomUUID();
+    ArchivedTicket ticket = ArchivedTicket.builder().id(id).build();
+    List<ArchivedTicketHistory> history = List.of(ArchivedTicketHistory.builder().build());
+    TicketHistoryDto status = TicketHistoryDto.builder().type(ChangeType.STATUS).build();
+    TicketHistoryDto subject = TicketHistoryDto.builder().type(ChangeType.SUBJECT).build();
+    when(archivedTicketRepository.findById(id)).thenReturn(Optional.of(ticket));
+    when(archivedTicketHistoryRepository.findAllByTicketIdOrderByUpdateDate(id))
+        .thenReturn(history);
+    when(ticketMapper.map(ticket, history)).thenReturn(List.of(status, subject));
+
+    List<TicketHistoryDto> result =
+        ticketArchiveService.getArchivedTicketHistory(id.toString(), ChangeType.STATUS);
+
+    assertEquals(List.of(status), result);
+  }
+
+  @Test
+  void testGetArchivedTicket_NotFound() {
+    UUID id = UUID.randomUUID();
+    when(archivedTicketRepository.findById(id)).thenReturn(Optional.empty());
+    assertThrows(
+        ResponseStatusException.class, () -> ticketArchiveService.getArchivedTicket(id.toString()));
+  }
+}
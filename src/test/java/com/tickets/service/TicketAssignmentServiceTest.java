@@ -0,0 +1,177 @@
+package com.tickets.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.tickets.dto.TicketChangeDto;
+import com.tickets.dto.TicketDto;
+import com.tickets.model.Status;
+import com.tickets.model.Ticket;
+import com.tickets.model.User;
+import com.tickets.repository.TicketRepository;
+import com.tickets.repository.UserRepository;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class TicketAssignmentServiceTest {
+  @Mock private UserRepository userRepository;
+  @Mock private TicketRepository ticketRepository;
+  private TicketAssignmentService ticketAssignmentService;
+
+  // Ordered so that ties between equally loaded users are predictable
+  private final UUID user1 = new UUID(0, 1);
+  private final UUID user2 = new UUID(0, 2);
+
+  @BeforeEach
+  void setUp() {
+    MockitoAnnotations.openMocks(this);
+    ticketAssignmentService =
+        new TicketAssignmentService(
+            userRepository,
+            ticketRepository,
+            new TicketShards(mock(PlatformTransactionManager.class), List.of()));
+    when(userRepository.findAllByRole(User.Role.ROLE_SUPPORT))
+        .thenReturn(List.of(support(user1), support(user2)));
+    when(userRepository.getReferenceById(any()))
+        .thenAnswer(invocation -> support(invocation.getArgument(0)));
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  void testRebuildCountsOpenTickets() {
+    List<TicketRepository.IndexEntry> entries =
+        List.of(entry(UUID.randomUUID(), user1), entry(UUID.randomUUID(), user1));
+    when(ticketRepository.findAssignedIndexEntries(any(), eq(User.Role.ROLE_SUPPORT)))
+        .thenReturn(entries);
+    ticketAssignmentService.rebuild();
+
+    assertEquals(Map.of(user1, 2L, user2, 0L), ticketAssignmentService.getLoads());
+    assertEquals(user2, ticketAssignmentService.assign(new Ticket()).getId());
+  }
+
+  @Test
+  void testAssignmentsInTransactionAreSpread() {
+    ticketAssignmentService.rebuild();
+    TransactionSynchronizationManager.initSynchronization();
+    Ticket first = new Ticket();
+    Ticket second = new Ticket();
+
+    assertEquals(user1, ticketAssignmentService.assign(first).getId());
+    assertEquals(user2, ticketAssignmentService.assign(second).getId());
+
+    first.setId(UUID.randomUUID());
+    second.setId(UUID.randomUUID());
+    complete(TransactionSynchronization.STATUS_COMMITTED);
+    ticketAssignmentService.onTicketChange(change(first.getId(), Status.NEW, user1));
+    ticketAssignmentService.onTicketChange(change(second.getId(), Status.NEW, user2));
+    assertEquals(Map.of(user1, 1L, user2, 1L), ticketAssignmentService.getLoads());
+  }
+
+  @Test
+  void testRollbackReleasesAssignment() {
+    ticketAssignmentService.rebuild();
+    TransactionSynchronizationManager.initSynchronization();
+    ticketAssignmentService.assign(new Ticket());
+
+    complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+    assertEquals(Map.of(user1, 0L, user2, 0L), ticketAssignmentService.getLoads());
+  }
+
+  @Test
+  void testChangesMoveLoad() {
+    ticketAssignmentService.rebuild();
+    UUID ticket = UUID.randomUUID();
+    ticketAssignmentService.onTicketChange(change(ticket, Status.NEW, user1));
+    assertEquals(1L, ticketAssignmentService.getLoads().get(user1));
+
+    ticketAssignmentService.onTicketChange(change(ticket, Status.IN_PROGRESS, user2));
+    assertEquals(Map.of(user1, 0L, user2, 1L), ticketAssignmentService.getLoads());
+
+    ticketAssignmentService.onTicketChange(change(ticket, Status.DONE, user2));
+    assertEquals(Map.of(user1, 0L, user2, 0L), ticketAssignmentService.getLoads());
+  }
+
+  @Test
+  void testRebuildReplaysChangesCommittedDuringRead() {
+    UUID ticket = UUID.randomUUID();
+    when(ticketRepository.findAssignedIndexEntries(any(), eq(User.Role.ROLE_SUPPORT)))
+        .thenAnswer(
+            invocation -> {
+              // Committed after the shard was read, applied before the rebuilt loads
+              ticketAssignmentService.onTicketChange(change(ticket, Status.NEW, user2));
+              return List.of();
+            });
+    ticketAssignmentService.rebuild();
+
+    assertEquals(Map.of(user1, 0L, user2, 1L), ticketAssignmentService.getLoads());
+  }
+
+  @Test
+  void testRebuildKeepsAssignmentsOfRunningTransactions() {
+    ticketAssignmentService.rebuild();
+    TransactionSynchronizationManager.initSynchronization();
+    Ticket ticket = new Ticket();
+    assertEquals(user1, ticketAssignmentService.assign(ticket).getId());
+
+    ticketAssignmentService.rebuild();
+    assertEquals(Map.of(user1, 1L, user2, 0L), ticketAssignmentService.getLoads());
+
+    ticket.setId(UUID.randomUUID());
+    complete(TransactionSynchronization.STATUS_COMMITTED);
+    ticketAssignmentService.onTicketChange(change(ticket.getId(), Status.NEW, user1));
+    assertEquals(Map.of(user1, 1L, user2, 0L), ticketAssignmentService.getLoads());
+  }
+
+  @Test
+  void testNoSupportUser() {
+    when(userRepository.findAllByRole(User.Role.ROLE_SUPPORT)).thenReturn(List.of());
+    ticketAssignmentService.rebuild();
+    assertNull(ticketAssignmentService.assign(new Ticket()));
+  }
+
+  private static void complete(int status) {
+    List<TransactionSynchronization> synchronizations =
+        TransactionSynchronizationManager.getSynchronizations();
+    if (status == TransactionSynchronization.STATUS_COMMITTED) {
+      synchronizations.forEach(TransactionSynchronization::afterCommit);
+    }
+    synchronizations.forEach(s -> s.afterCompletion(status));
+    TransactionSynchronizationManager.clearSynchronization();
+  }
+
+  private static User support(UUID id) {
+    return User.builder().id(id).role(User.Role.ROLE_SUPPORT).build();
+  }
+
+  private static TicketRepository.IndexEntry entry(UUID id, UUID assignedTo) {
+    TicketRepository.IndexEntry entry = mock(TicketRepository.IndexEntry.class);
+    when(entry.getId()).thenReturn(id);
+    when(entry.getStatus()).thenReturn(Status.NEW);
+    when(entry.getAssignedToId()).thenReturn(assignedTo);
+    return entry;
+  }
+
+  private static TicketChangeDto change(UUID id, Status status, UUID assignedTo) {
+    return TicketChangeDto.builder()
+        .kind(TicketChangeDto.Kind.UPDATED)
+        .ticket(TicketDto.builder().id(id).status(status).assignedTo(assignedTo.toString()).build())
+        .history(List.of())
+        .build();
+  }
+}
@@ -0,0 +1,224 @@
+package com.tickets.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.tickets.dto.TicketChangeDto;
+import com.tickets.dto.TicketDto;
+import com.tickets.model.Status;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public class TicketFeedServiceTest {
+  private final List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+  private CountDownLatch release;
+  private TicketFeedService feedService;
+
+  @AfterEach
+  void tearDown() {
+    if (release != null) {
+      release.countDown();
+    }
+    feedService.shutdown();
+  }
+
+  @Test
+  void testReplaysMoreMissedEventsThanTheBuffer() {
+    feedService = feedService(4, 100);
+    publish(50, "user", Status.NEW);
+
+    feedService.subscribe(null, null, feedService.eventId(10));
+    RecordingEmitter emitter = emitters.get(0);
+    await(() -> emitter.events.size() == 40);
+    assertEquals(ids(11, 50), emitter.events);
+
+    publish(1, "user", Status.NEW);
+    await(() -> emitter.events.size() == 41);
+    assertEquals("UPDATED:" + feedService.eventId(51), emitter.events.get(40));
+    assertFalse(emitter.completed);
+  }
+
+  @Test
+  void testResetWhenResumingFromExpiredEvent() {
+    feedService = feedService(4, 10);
+    publish(30, "user", Status.NEW);
+
+    feedService.subscribe(null, null, feedService.eventId(5));
+    RecordingEmitter emitter = emitters.get(0);
+    await(() -> emitter.events.size() == 11);
+    assertEquals("reset", emitter.events.get(0));
+    assertEquals(ids(21, 30), emitter.events.subList(1, 11));
+  }
+
+  @Test
+  void testResetWhenResumingFromAnotherRun() {
+    feedService = feedService(4, 100);
+    publish(3, "user", Status.NEW);
+
+    // An ID of an earlier run or another instance, ahead of this one
+    feedService.subscribe(null, null, (System.currentTimeMillis() - 60000) + "-5000");
+    RecordingEmitter emitter = emitters.get(0);
+    await(() -> emitter.events.size() == 1);
+    assertEquals("reset", emitter.events.get(0));
+
+    publish(1, "user", Status.NEW);
+    await(() -> emitter.events.size() == 2);
+    assertEquals("UPDATED:" + feedService.eventId(4), emitter.events.get(1));
+  }
+
+  @Test
+  void testResetWhenResumingFromSequenceAheadOfServer() {
+    feedService = feedService(4, 100);
+    publish(3, "user", Status.NEW);
+
+    feedService.subscribe(null, null, feedService.eventId(5000));
+    RecordingEmitter emitter = emitters.get(0);
+    await(() -> emitter.events.size() == 1);
+    assertEquals("reset", emitter.events.get(0));
+
+    publish(1, "user", Status.NEW);
+    await(() -> emitter.events.size() == 2);
+    assertEquals("UPDATED:" + feedService.eventId(4), emitter.events.get(1));
+  }
+
+  @Test
+  void testResetWhenResumingFromMalformedId() {
+    feedService = feedService(4, 100);
+    publish(3, "user", Status.NEW);
+
+    feedService.subscribe(null, null, "2");
+    RecordingEmitter emitter = emitters.get(0);
+    await(() -> emitter.events.size() == 1);
+    assertEquals(List.of("reset"), emitter.events);
+  }
+
+  @Test
+  void testFiltersByAssigneeAndStatus() {
+    feedService = feedService(4, 100);
+    publish(1, "alice", Status.NEW);
+    publish(1, "bob", Status.NEW);
+    publish(1, "alice", Status.DONE);
+
+    feedService.subscribe("alice", Status.NEW, feedService.eventId(0));
+    RecordingEmitter emitter = emitters.get(0);
+    await(() -> emitter.events.size() == 1);
+    publish(1, "bob", Status.NEW);
+    publish(1, "alice", Status.NEW);
+    await(() -> emitter.events.size() == 2);
+    assertEquals(
+        List.of("UPDATED:" + feedService.eventId(1), "UPDATED:" + feedService.eventId(5)),
+        emitter.events);
+  }
+
+  @Test
+  void testDisconnectsSlowSubscriber() throws Exception {
+    feedService = feedService(2, 100);
+    release = new CountDownLatch(1);
+    feedService.subscribe(null, null, null);
+    RecordingEmitter emitter = emitters.get(0);
+    assertEquals(1, feedService.getSubscriberCount());
+
+    publish(1, "user", Status.NEW);
+    assertTrue(emitter.sending.await(5, TimeUnit.SECONDS));
+    publish(2, "user", Status.NEW);
+    assertFalse(emitter.completed);
+    publish(1, "user", Status.NEW);
+    assertTrue(emitter.completed);
+    assertEquals(0, feedService.getSubscriberCount());
+  }
+
+  private TicketFeedService feedService(int bufferSize, int replaySize) {
+    return new TicketFeedService(bufferSize, replaySize, 60000) {
+      @Override
+      SseEmitter createEmitter() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitters.add(emitter);
+        return emitter;
+      }
+    };
+  }
+
+  private void publish(int count, String assignedTo, Status status) {
+    for (int i = 0; i < count; i++) {
+      feedService.onTicketChange(
+          TicketChangeDto.builder()
+              .kind(TicketChangeDto.Kind.UPDATED)
+              .ticket(
+                  TicketDto.builder()
+                      .id(UUID.randomUUID())
+                      .assignedTo(assignedTo)
+                      .status(status)
+                      .build())
+              .build());
+    }
+  }
+
+  private List<String> ids(long from, long to) {
+    return LongStream.rangeClosed(from, to)
+        .mapToObj(id -> "UPDATED:" + feedService.eventId(id))
+        .collect(Collectors.toList());
+  }
+
+  private static void await(BooleanSupplier condition) {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for feed events");
+      try {
+        Thread.sleep(5);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  /** Emitter recording each sent event as its name and ID, blocking while the test holds it. */
+  private class RecordingEmitter extends SseEmitter {
+    private final List<String> events = new CopyOnWriteArrayList<>();
+    private final CountDownLatch sending = new CountDownLatch(1);
+    private volatile boolean completed;
+
+    @Override
+    public void send(SseEventBuilder builder) throws IOException {
+      sending.countDown();
+      if (release != null) {
+        try {
+          release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          throw new IOException(e);
+        }
+      }
+      String id = null;
+      String name = null;
+      List<String> lines = new ArrayList<>();
+      for (ResponseBodyEmitter.DataWithMediaType data : builder.build()) {
+        if (data.getData() instanceof String text) {
+          lines.addAll(List.of(text.split("\n")));
+        }
+      }
+      for (String line : lines) {
+        if (line.startsWith("id:")) {
+          id = line.substring(3);
+        } else if (line.startsWith("event:")) {
+          name = line.substring(6);
+        }
+      }
+      events.add(id == null ? name : name + ":" + id);
+    }
+
+    @Override
+    public synchronized void complete() {
+      completed = true;
+    }
+  }
+}
@@ -0,0 +1,433 @@
+package com.tickets.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.tickets.configuration.ShardRoutingDataSource;
+import com.tickets.dto.ImportResultDto;
+import com.tickets.model.ImportReject;
+import com.tickets.model.ImportRequest;
+import com.tickets.model.Status;
+import com.tickets.model.Ticket;
+import com.tickets.model.User;
+import com.tickets.repository.ImportRejectRepository;
+import com.tickets.repository.ImportRequestRepository;
+import com.tickets.repository.TicketRepository;
+import com.tickets.util.TicketMapper;
+import jakarta.persistence.EntityManager;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+public class TicketImportServiceTest {
+  @Mock private TicketRepository ticketRepository;
+  @Mock private ImportRequestRepository importRequestRepository;
+  @Mock private ImportRejectRepository importRejectRepository;
+  @Mock private TicketMapper ticketMapper;
+  @Mock private TicketAssignmentService ticketAssignmentService;
+  @Mock private EntityManager entityManager;
+  @Mock private ApplicationEventPublisher eventPublisher;
+  @Mock private PlatformTransactionManager transactionManager;
+  private TicketImportService ticketImportService;
+
+  @BeforeEach
+  void setUp() {
+    MockitoAnnotations.openMocks(this);
+    ticketImportService = importService(new TicketShards(transactionManager, List.of()));
+    when(ticketRepository.saveAllAndFlush(anyList()))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+    when(ticketRepository.streamImportHashes()).thenReturn(Stream.empty());
+    when(importRequestRepository.claim(any(), any())).thenReturn(1);
+  }
+
+  @Test
+  void testImportTickets() throws IOException {
+    String csv = "subject,description,NEW\nsubject2,description2,CLOSED";
+    ArgumentCaptor<List<Ticket>> captor = ArgumentCaptor.forClass(List.class);
+
+    ImportResultDto result = ticketImportService.importTickets(file(csv), null, null, false);
+
+    verify(ticketRepository).saveAllAndFlush(captor.capture());
+    List<Ticket> tickets = captor.getValue();
+    assertEquals(2, tickets.size());
+    assertEquals("subject", tickets.get(0).getSubject());
+    assertEquals("description2", tickets.get(1).getDescription());
+    assertEquals(Status.NEW, tickets.get(0).getStatus());
+    assertEquals(Status.CLOSED, tickets.get(1).getStatus());
+    assertNotNull(tickets.get(0).getImportHash());
+    assertEquals(2, result.getImported());
+    assertEquals(ImportRequest.State.COMPLETED, result.getState());
+  }
+
+  @Test
+  void testImportTickets_QuotedFieldsAndHeader() throws IOException {
+    String csv = "subject,description,status\r\n\"a, b\",\"line\nbreak \"\"x\"\"\",IN_PROGRESS\r\n";
+    ArgumentCaptor<List<Ticket>> captor = ArgumentCaptor.forClass(List.class);
+
+    ticketImportService.importTickets(file(csv), null, null, false);
+
+    verify(ticketRepository).saveAllAndFlush(captor.capture());
+    List<Ticket> tickets = captor.getValue();
+    assertEquals(1, tickets.size());
+    assertEquals("a, b", tickets.get(0).getSubject());
+    assertEquals("line\nbreak \"x\"", tickets.get(0).getDescription());
+    assertEquals(Status.IN_PROGRESS, tickets.get(0).getStatus());
+  }
+
+  @Test
+  void testImportTickets_SkipsDuplicates() throws IOException {
+    long existing = TicketImportService.contentHash("old", "text", Status.NEW);
+    when(ticketRepository.findImportHashesIn(anyCollection())).thenReturn(List.of(existing));
+    String csv = "new,text,NEW\nnew,text,NEW\nold,text,NEW\n";
+
+    ImportResultDto result = ticketImportService.importTickets(file(csv), null, null, false);
+
+    assertEquals(1, result.getImported());
+    assertEquals(2, result.getDuplicates());
+    verify(eventPublisher, times(1)).publishEvent(any(Object.class));
+  }
+
+  @Test
+  void testImportTickets_BloomFilterSkipsLookup() throws IOException {
+    ticketImportService.loadBloomFilter();
+
+    ImportResultDto result =
+        ticketImportService.importTickets(file("a,b,NEW\nc,d,DONE\n"), null, null, false);
+
+    assertEquals(2, result.getImported());
+    verify(ticketRepository, never()).findImportHashesIn(anyCollection());
+  }
+
+  @Test
+  void testImportTickets_BloomFilterMissesRowImportedElsewhere() throws IOException {
+    ticketImportService.loadBloomFilter();
+    long existing = TicketImportService.contentHash("old", "text", Status.NEW);
+    when(ticketRepository.saveAllAndFlush(anyList()))
+        .thenThrow(new DataIntegrityViolationException("ux_tickets_import_hash"))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+    when(ticketRepository.findImportHashesIn(anyCollection())).thenReturn(List.of(existing));
+
+    ImportResultDto result =
+        ticketImportService.importTickets(file("old,text,NEW\nnew,text,NEW\n"), null, null, false);
+
+    assertEquals(1, result.getImported());
+    assertEquals(1, result.getDuplicates());
+    assertEquals(ImportRequest.State.COMPLETED, result.getState());
+    verify(ticketRepository).findImportHashesIn(argThat(hashes -> hashes.size() == 2));
+  }
+
+  @Test
+  void testImportTickets_Sharded() throws IOException {
+    TicketShards ticketShards =
+        new TicketShards(transactionManager, List.of("shard0", "shard1", "shard2"));
+    Map<Integer, List<Ticket>> saved = new HashMap<>();
+    when(ticketRepository.saveAllAndFlush(anyList()))
+        .thenAnswer(
+            invocation -> {
+              List<Ticket> tickets = invocation.getArgument(0);
+              saved.computeIfAbsent(shard(), s -> new ArrayList<>()).addAll(tickets);
+              return tickets;
+            });
+    List<Integer> lookups = new ArrayList<>();
+    when(ticketRepository.findImportHashesIn(anyCollection()))
+        .thenAnswer(
+            invocation -> {
+              lookups.add(shard());
+              return List.of();
+            });
+    when(importRequestRepository.claim(eq("key"), any())).thenReturn(1);
+    ImportRequest request =
+        ImportRequest.builder()
+            .idempotencyKey("key")
+            .state(ImportRequest.State.IN_PROGRESS)
+            .build();
+    List<Integer> progress = new ArrayList<>();
+    when(importRequestRepository.findById("key"))
+        .thenAnswer(
+            invocation -> {
+              progress.add(shard());
+              return Optional.of(request);
+            });
+    StringBuilder csv = new StringBuilder("a,b,NEW\na,b,NEW\n");
+    for (int i = 0; i < 20; i++) {
+      csv.append("subject").append(i).append(",text,NEW\n");
+    }
+    ticketImportService = importService(ticketShards, 100);
+
+    ImportResultDto result =
+        ticketImportService.importTickets(file(csv.toString()), "key", null, false);
+
+    assertEquals(21, result.getImported());
+    assertEquals(1, result.getDuplicates());
+    assertEquals(21L, request.getImported());
+    assertTrue(saved.size() > 1);
+    saved.forEach(
+        (shard, tickets) -> {
+          for (Ticket ticket : tickets) {
+            // The shard follows from the row, so a duplicate is always looked up where it lives
+            assertEquals(shard, ticketShards.shardOf(ticket.getId()));
+            assertEquals(shard, (int) Math.floorMod(ticket.getImportHash(), 3L));
+          }
+        });
+    assertEquals(saved.keySet().stream().sorted().toList(), lookups);
+    assertTrue(progress.stream().allMatch(shard -> shard == 0));
+  }
+
+  @Test
+  void testImportTickets_CompletedKeyReturnsPreviousResult() throws IOException {
+    when(importRequestRepository.claim(eq("key"), any())).thenReturn(0);
+    when(importRequestRepository.reclaim(eq("key"), any(), any())).thenReturn(0);
+    ImportRequest request =
+        ImportRequest.builder()
+            .idempotencyKey("key")
+            .state(ImportRequest.State.COMPLETED)
+            .imported(5L)
+            .duplicates(1L)
+            .build();
+    when(importRequestRepository.findById("key")).thenReturn(Optional.of(request));
+    MultipartFile file = file("a,b,NEW\n");
+
+    ImportResultDto result = ticketImportService.importTickets(file, "key", null, false);
+
+    assertEquals(5, result.getImported());
+    assertEquals(1, result.getDuplicates());
+    verify(file, never()).getInputStream();
+    verify(ticketRepository, never()).saveAllAndFlush(anyList());
+  }
+
+  @Test
+  void testImportTickets_KeyInProgress() throws IOException {
+    when(importRequestRepository.claim(eq("key"), any())).thenReturn(0);
+    when(importRequestRepository.reclaim(eq("key"), any(), any())).thenReturn(0);
+    ImportRequest request =
+        ImportRequest.builder()
+            .idempotencyKey("key")
+            .state(ImportRequest.State.IN_PROGRESS)
+            .build();
+    when(importRequestRepository.findById("key")).thenReturn(Optional.of(request));
+
+    assertThrows(
+        ResponseStatusException.class,
+        () -> ticketImportService.importTickets(file("a,b,NEW\n"), "key", null, false));
+  }
+
+  @Test
+  void testImportTickets_Gzip() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write("a,b,NEW\nc,d,DONE\n".getBytes(StandardCharsets.UTF_8));
+    }
+    MultipartFile file = mock(MultipartFile.class);
+    when(file.getInputStream()).thenReturn(new ByteArrayInputStream(out.toByteArray()));
+
+    ImportResultDto result = ticketImportService.importTickets(file, null, null, false);
+
+    assertEquals(2, result.getImported());
+  }
+
+  @Test
+  void testImportTickets_AutoAssign() throws IOException {
+    User user = User.builder().id(UUID.randomUUID()).build();
+    when(ticketAssignmentService.assign(any())).thenReturn(user);
+    ArgumentCaptor<List<Ticket>> captor = ArgumentCaptor.forClass(List.class);
+
+    ticketImportService.importTickets(file("a,b,NEW\nc,d,DONE\n"), null, null, true);
+
+    verify(ticketRepository).saveAllAndFlush(captor.capture());
+    assertEquals(2, captor.getValue().size());
+    assertTrue(captor.getValue().stream().allMatch(t -> user.equals(t.getAssignedTo())));
+  }
+
+  @Test
+  void testImportTickets_UnsupportedEncoding() {
+    ResponseStatusException e =
+        assertThrows(
+            ResponseStatusException.class,
+            () ->
+                ticketImportService.importTickets(
+                    () -> new ByteArrayInputStream(new byte[0]),
+                    "body",
+                    "br",
+                    null,
+                    null,
+                    false));
+    assertEquals(HttpStatus.UNSUPPORTED_MEDIA_TYPE, e.getStatusCode());
+    verify(importRequestRepository, never()).claim(any(), any());
+  }
+
+  @Test
+  void testImportTickets_RecordsProgressPerChunk() throws IOException {
+    when(importRequestRepository.claim(eq("key"), any())).thenReturn(1);
+    ImportRequest request =
+        ImportRequest.builder()
+            .idempotencyKey("key")
+            .state(ImportRequest.State.IN_PROGRESS)
+            .build();
+    when(importRequestRepository.findById("key")).thenReturn(Optional.of(request));
+
+    ticketImportService.importTickets(file("a,b,NEW\nc,d,NEW\ne,f,NEW\n"), "key", null, false);
+
+    verify(ticketRepository, times(2)).saveAllAndFlush(anyList());
+    verify(entityManager, times(2)).clear();
+    assertEquals(ImportRequest.State.COMPLETED, request.getState());
+    assertEquals(3L, request.getImported());
+    assertEquals(0L, request.getDuplicates());
+  }
+
+  @Test
+  void testImportTickets_StreamCommitsChunksInOrder() {
+    String csv = "a,b,NEW\nc,d,NEW\ne,f,NEW\ng,h,NEW\ni,j,NEW\n";
+    ArgumentCaptor<List<Ticket>> captor = ArgumentCaptor.forClass(List.class);
+
+    ImportResultDto result =
+        ticketImportService.importTickets(
+            () -> new ByteArrayInputStream(csv.getBytes()), "body", null, null, null, false);
+
+    assertEquals(5, result.getImported());
+    verify(ticketRepository, times(3)).saveAllAndFlush(captor.capture());
+    assertEquals(
+        List.of("a", "c", "e", "g", "i"),
+        captor.getAllValues().stream().flatMap(List::stream).map(Ticket::getSubject).toList());
+  }
+
+  @Test
+  void testImportTickets_RejectsInvalidRows() throws IOException {
+    String csv = "short,row\na,b,NEW\n,empty subject,NEW\n";
+    ArgumentCaptor<List<ImportReject>> captor = ArgumentCaptor.forClass(List.class);
+
+    ImportResultDto result = ticketImportService.importTickets(file(csv), null, 5, false);
+
+    assertEquals(ImportRequest.State.COMPLETED, result.getState());
+    assertEquals(1, result.getImported());
+    assertEquals(2, result.getRejected());
+    assertEquals(List.of(1L, 3L), result.getErrors().stream().map(e -> e.getLine()).toList());
+    verify(importRejectRepository, times(2)).saveAll(captor.capture());
+    ImportReject reject = captor.getAllValues().get(0).get(0);
+    assertEquals("short,row", reject.getRecord());
+    assertEquals("Expected 3 columns but found 2", reject.getError());
+  }
+
+  @Test
+  void testImportTickets_ErrorBudgetExceeded() throws IOException {
+    String csv = "a,b,NEW\nc,d,UNKNOWN\ne,f,NEW\ng,h,WRONG\ni,j,NEW\n";
+
+    ImportResultDto result = ticketImportService.importTickets(file(csv), null, null, false);
+
+    assertEquals(ImportRequest.State.FAILED, result.getState());
+    assertEquals(2, result.getImported());
+    assertEquals(2, result.getRejected());
+    assertEquals("Unknown status: UNKNOWN", result.getErrors().get(0).getMessage());
+    assertNotNull(result.getError());
+  }
+
+  @Test
+  void testImportTickets_NegativeMaxErrors() {
+    ResponseStatusException exception =
+        assertThrows(
+            ResponseStatusException.class,
+            () -> ticketImportService.importTickets(file("a,b,NEW\n"), null, -1, false));
+    assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    verify(importRequestRepository, never()).claim(any(), any());
+  }
+
+  @Test
+  void testPurgeExpiredImports() {
+    when(importRejectRepository.deleteByImportUpdatedBefore(any())).thenReturn(5);
+    when(importRequestRepository.deleteUpdatedBefore(any())).thenReturn(2);
+
+    assertEquals(2, ticketImportService.purgeExpiredImports());
+
+    ArgumentCaptor<Date> cutoff = ArgumentCaptor.forClass(Date.class);
+    verify(importRejectRepository).deleteByImportUpdatedBefore(cutoff.capture());
+    verify(importRequestRepository).deleteUpdatedBefore(cutoff.getValue());
+    long age = System.currentTimeMillis() - cutoff.getValue().getTime();
+    assertTrue(Math.abs(age - Duration.ofDays(30).toMillis()) < 60000);
+  }
+
+  @Test
+  void testExportRejects() throws IOException {
+    when(importRequestRepository.existsById("key")).thenReturn(true);
+    ImportReject reject =
+        ImportReject.builder()
+            .importId("key")
+            .line(4L)
+            .record("\"a, b\",text")
+            .error("Expected 3 columns but found 2")
+            .build();
+    when(importRejectRepository.findAllByImportIdOrderByLine("key")).thenReturn(Stream.of(reject));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    ticketImportService.exportRejects("key", out);
+
+    assertEquals(
+        "subject,description,status,line,error\r\n"
+            + "\"a, b\",text,,4,Expected 3 columns but found 2\r\n",
+        out.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void testExportRejects_UnknownImport() {
+    assertThrows(
+        ResponseStatusException.class,
+        () -> ticketImportService.exportRejects("key", new ByteArrayOutputStream()));
+  }
+
+  private TicketImportService importService(TicketShards ticketShards) {
+    return importService(ticketShards, 2);
+  }
+
+  private TicketImportService importService(TicketShards ticketShards, int chunkSize) {
+    return new TicketImportService(
+        ticketRepository,
+        importRequestRepository,
+        importRejectRepository,
+        ticketMapper,
+        ticketAssignmentService,
+        ticketShards,
+        entityManager,
+        new TransactionTemplate(transactionManager),
+        eventPublisher,
+        chunkSize,
+        1,
+        1000,
+        0.01,
+        3600000,
+        30);
+  }
+
+  /** Returns the shard the current thread is routed to, 0 if none is set. */
+  private static int shard() {
+    Integer shard = ShardRoutingDataSource.getShard();
+    return shard == null ? 0 : shard;
+  }
+
+  private static MultipartFile file(String csv) throws IOException {
+    MultipartFile file = mock(MultipartFile.class);
+    when(file.getInputStream()).thenReturn(new ByteArrayInputStream(csv.getBytes()));
+    return file;
+  }
+}
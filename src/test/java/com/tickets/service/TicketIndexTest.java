@@ -0,0 +1,118 @@
+package com.tickets.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.tickets.dto.TicketChangeDto;
+import com.tickets.dto.TicketDto;
+import com.tickets.model.Status;
+import com.tickets.repository.TicketRepository;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+public class TicketIndexTest {
+  @Mock private TicketRepository ticketRepository;
+  private TicketIndex ticketIndex;
+
+  @BeforeEach
+  void setUp() {
+    MockitoAnnotations.openMocks(this);
+    ticketIndex =
+        new TicketIndex(
+            ticketRepository,
+            new TicketShards(mock(PlatformTransactionManager.class), List.of()),
+            true);
+  }
+
+  @Test
+  void testSelectByStatusAndAssignee() {
+    UUID user1 = UUID.randomUUID();
+    UUID user2 = UUID.randomUUID();
+    UUID t1 = UUID.randomUUID();
+    UUID t2 = UUID.randomUUID();
+    UUID t3 = UUID.randomUUID();
+    ticketIndex.put(t1, Status.NEW, user1);
+    ticketIndex.put(t2, Status.NEW, user2);
+    ticketIndex.put(t3, Status.CLOSED, user1);
+
+    assertEquals(
+        List.of(t1), ticketIndex.page(ticketIndex.select(Status.NEW, List.of(user1)), 0, 10));
+    assertEquals(
+        List.of(t1, t2),
+        ticketIndex.page(ticketIndex.select(Status.NEW, List.of(user1, user2)), 0, 10));
+    assertEquals(List.of(t2, t3), ticketIndex.page(ticketIndex.select(null, List.of()), 1, 10));
+  }
+
+  @Test
+  void testUpdateMovesTicketBetweenBitmaps() {
+    UUID user = UUID.randomUUID();
+    UUID ticket = UUID.randomUUID();
+    ticketIndex.put(ticket, Status.NEW, null);
+    ticketIndex.onTicketChange(
+        TicketChangeDto.builder()
+            .kind(TicketChangeDto.Kind.UPDATED)
+            .ticket(
+                TicketDto.builder()
+                    .id(ticket)
+                    .status(Status.IN_PROGRESS)
+                    .assignedTo(user.toString())
+                    .build())
+            .build());
+
+    Map<Status, Long> counts = ticketIndex.countByStatus(List.of(user));
+    assertEquals(0L, counts.get(Status.NEW));
+    assertEquals(1L, counts.get(Status.IN_PROGRESS));
+  }
+
+  @Test
+  void testRemoveAndRebuild() {
+    UUID ticket = UUID.randomUUID();
+    ticketIndex.put(ticket, Status.NEW, null);
+    ticketIndex.remove(ticket);
+    assertTrue(ticketIndex.select(Status.NEW, null).isEmpty());
+
+    TicketRepository.IndexEntry entry = mock(TicketRepository.IndexEntry.class);
+    when(entry.getId()).thenReturn(ticket);
+    when(entry.getStatus()).thenReturn(Status.DONE);
+    when(ticketRepository.findAllIndexEntries()).thenReturn(List.of(entry));
+    ticketIndex.rebuild();
+    assertEquals(1L, ticketIndex.countByStatus(null).get(Status.DONE));
+  }
+
+  @Test
+  void testRebuildReplaysChangesCommittedDuringRead() {
+    UUID user = UUID.randomUUID();
+    UUID ticket = UUID.randomUUID();
+    TicketRepository.IndexEntry entry = mock(TicketRepository.IndexEntry.class);
+    when(entry.getId()).thenReturn(ticket);
+    when(entry.getStatus()).thenReturn(Status.NEW);
+    when(ticketRepository.findAllIndexEntries())
+        .thenAnswer(
+            invocation -> {
+              // Committed after the shard was read, applied before the rebuilt content
+              ticketIndex.onTicketChange(
+                  TicketChangeDto.builder()
+                      .kind(TicketChangeDto.Kind.UPDATED)
+                      .ticket(
+                          TicketDto.builder()
+                              .id(ticket)
+                              .status(Status.IN_PROGRESS)
+                              .assignedTo(user.toString())
+                              .build())
+                      .build());
+              return List.of(entry);
+            });
+
+    ticketIndex.rebuild();
+
+    Map<Status, Long> counts = ticketIndex.countByStatus(List.of(user));
+    assertEquals(0L, counts.get(Status.NEW));
+    assertEquals(1L, counts.get(Status.IN_PROGRESS));
+  }
+}
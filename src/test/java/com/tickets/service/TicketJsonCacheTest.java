@@ -0,0 +1,70 @@
+package com.tickets.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tickets.dto.TicketChangeDto;
+import com.tickets.dto.TicketDto;
+import com.tickets.model.Ticket;
+import com.tickets.util.TicketMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class TicketJsonCacheTest {
+  @Mock private TicketMapper ticketMapper;
+  private TicketJsonCache ticketJsonCache;
+
+  @BeforeEach
+  void setUp() {
+    MockitoAnnotations.openMocks(this);
+    when(ticketMapper.map(any(Ticket.class)))
+        .thenAnswer(
+            i -> {
+              Ticket ticket = i.getArgument(0);
+              return TicketDto.builder().id(ticket.getId()).subject(ticket.getSubject()).build();
+            });
+    ticketJsonCache =
+        new TicketJsonCache(ticketMapper, new ObjectMapper(), new SimpleMeterRegistry(), 100);
+  }
+
+  @Test
+  void testEncodesOncePerRevision() {
+    Ticket ticket = Ticket.builder().id(UUID.randomUUID()).subject("a").revision(1L).build();
+    byte[] first = ticketJsonCache.get(ticket);
+    assertSame(first, ticketJsonCache.get(ticket));
+    verify(ticketMapper, times(1)).map(ticket);
+
+    ticket.setSubject("b");
+    ticket.setRevision(2L);
+    byte[] second = ticketJsonCache.get(ticket);
+    assertNotSame(first, second);
+    assertTrue(new String(second, StandardCharsets.UTF_8).contains("\"subject\":\"b\""));
+  }
+
+  @Test
+  void testChangeEvictsEntry() {
+    Ticket ticket = Ticket.builder().id(UUID.randomUUID()).subject("a").revision(1L).build();
+    byte[] first = ticketJsonCache.get(ticket);
+    ticketJsonCache.onTicketChange(
+        TicketChangeDto.builder().ticket(TicketDto.builder().id(ticket.getId()).build()).build());
+    assertNotSame(first, ticketJsonCache.get(ticket));
+  }
+
+  @Test
+  void testGetAllBuildsJsonArray() throws Exception {
+    Ticket a = Ticket.builder().id(UUID.randomUUID()).subject("a").build();
+    Ticket b = Ticket.builder().id(UUID.randomUUID()).subject("b").build();
+    TicketDto[] result =
+        new ObjectMapper().readValue(ticketJsonCache.getAll(List.of(a, b)), TicketDto[].class);
+    assertEquals(2, result.length);
+    assertEquals("b", result[1].getSubject());
+    assertEquals("[]", new String(ticketJsonCache.getAll(List.of()), StandardCharsets.UTF_8));
+  }
+}
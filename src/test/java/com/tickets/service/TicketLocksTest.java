@@ -0,0 +1,142 @@
+package com.tickets.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+public class TicketLocksTest {
+  private SimpleMeterRegistry meterRegistry;
+  private TicketLocks ticketLocks;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    ticketLocks = new TicketLocks(meterRegistry, 1, 50);
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  void testLockReleasedAfterAction() {
+    UUID id = UUID.randomUUID();
+    assertEquals("done", ticketLocks.withLock(id, () -> "done"));
+    assertFalse(ticketLocks.isLocked(id));
+    assertEquals(1.0, meterRegistry.get("tickets.locks.acquired").functionCounter().count());
+    assertEquals(0.0, meterRegistry.get("tickets.locks.contended").counter().count());
+  }
+
+  @Test
+  void testLockReleasedWhenActionFails() {
+    UUID id = UUID.randomUUID();
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            ticketLocks.withLock(
+                id,
+                () -> {
+                  throw new IllegalStateException("failed");
+                }));
+    assertFalse(ticketLocks.isLocked(id));
+  }
+
+  @Test
+  void testLockHeldUntilTransactionCompletes() {
+    UUID id = UUID.randomUUID();
+    TransactionSynchronizationManager.initSynchronization();
+    ticketLocks.withLock(id, () -> null);
+    assertTrue(ticketLocks.isLocked(id));
+
+    for (TransactionSynchronization synchronization :
+        TransactionSynchronizationManager.getSynchronizations()) {
+      synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+    }
+    assertFalse(ticketLocks.isLocked(id));
+  }
+
+  @Test
+  void testLockIsReentrant() {
+    UUID id = UUID.randomUUID();
+    assertEquals("inner", ticketLocks.withLock(id, () -> ticketLocks.withLock(id, () -> "inner")));
+    assertFalse(ticketLocks.isLocked(id));
+  }
+
+  @Test
+  void testWaitTimesOut() throws Exception {
+    UUID id = UUID.randomUUID();
+    CountDownLatch locked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<Object> holder =
+        CompletableFuture.supplyAsync(
+            () ->
+                ticketLocks.withLock(
+                    id,
+                    () -> {
+                      locked.countDown();
+                      try {
+                        return release.await(5, TimeUnit.SECONDS);
+                      } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                      }
+                    }));
+    assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+    ResponseStatusException exception =
+        assertThrows(ResponseStatusException.class, () -> ticketLocks.withLock(id, () -> null));
+    assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+    release.countDown();
+    holder.get(5, TimeUnit.SECONDS);
+
+    assertEquals(1.0, meterRegistry.get("tickets.locks.contended").counter().count());
+    assertEquals(1.0, meterRegistry.get("tickets.locks.timeouts").counter().count());
+    assertEquals(1L, meterRegistry.get("tickets.locks.wait").timer().count());
+  }
+
+  @Test
+  void testWaiterGetsLockWhenReleased() throws Exception {
+    meterRegistry = new SimpleMeterRegistry();
+    ticketLocks = new TicketLocks(meterRegistry, 1, 5000);
+    UUID id = UUID.randomUUID();
+    CountDownLatch locked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<Object> holder =
+        CompletableFuture.supplyAsync(
+            () ->
+                ticketLocks.withLock(
+                    id,
+                    () -> {
+                      locked.countDown();
+                      try {
+                        return release.await(5, TimeUnit.SECONDS);
+                      } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                      }
+                    }));
+    assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+    CompletableFuture<String> waiter =
+        CompletableFuture.supplyAsync(() -> ticketLocks.withLock(id, () -> "second"));
+    while (meterRegistry.get("tickets.locks.waiting").gauge().value() < 1) {
+      Thread.sleep(5);
+    }
+    release.countDown();
+    holder.get(5, TimeUnit.SECONDS);
+    assertEquals("second", waiter.get(5, TimeUnit.SECONDS));
+    assertEquals(0.0, meterRegistry.get("tickets.locks.timeouts").counter().count());
+  }
+}
@@ -12,31 +12,65 @@ import com.tickets.model.ChangeType;
 import com.tickets.model.Status;
 import com.tickets.model.Ticket;
 import com.tickets.model.TicketHistory;
+import com.tickets.model.User;
 import com.tickets.repository.TicketHistoryRepository;
 import com.tickets.repository.TicketRepository;
 import com.tickets.util.TicketMapper;
-import java.io.ByteArrayInputStream;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.Tuple;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 public class TicketServiceTest {
   @Mock private TicketRepository ticketRepository;
   @Mock private TicketHistoryRepository ticketHistoryRepository;
   @Mock private TicketMapper ticketMapper;
+  @Mock private TicketIndex ticketIndex;
+  @Mock private TicketJsonCache ticketJsonCache;
+  @Mock private TicketAssignmentService ticketAssignmentService;
+  @Mock private TicketSnapshotService ticketSnapshotService;
+  @Mock private TicketArchiveService ticketArchiveService;
+  @Mock private ApplicationEventPublisher eventPublisher;
+  @Mock private PlatformTransactionManager transactionManager;
   @InjectMocks private TicketService ticketService;
+  private TicketLocks ticketLocks;
 
   @BeforeEach
   void setUp() {
     MockitoAnnotations.openMocks(this);
-    ticketService = new TicketService(ticketRepository, ticketHistoryRepository, ticketMapper);
+    ticketLocks = new TicketLocks(new SimpleMeterRegistry(), 16, 100);
+    ticketService =
+        new TicketService(
+            ticketRepository,
+            ticketHistoryRepository,
+            ticketMapper,
+            ticketIndex,
+            ticketJsonCache,
+            ticketAssignmentService,
+            ticketSnapshotService,
+            ticketArchiveService,
+            new TicketShards(transactionManager, List.of()),
+            ticketLocks,
+            new TransactionTemplate(transactionManager),
+            eventPublisher);
   }
 
   @Test
@@ -47,7 +81,7 @@ public class TicketServiceTest {
     TicketDto ticketDto = new TicketDto();
 
     when(ticketMapper.map(creationDto)).thenReturn(ticket);
-    when(ticketRepository.saveAndFlush(ticket)).thenReturn(savedTicket);
+    when(ticketRepository.save(ticket)).thenReturn(savedTicket);
     when(ticketMapper.map(savedTicket)).thenReturn(ticketDto);
 
     TicketDto result = ticketService.createTicket(creationDto);
@@ -76,6 +110,91 @@ public class TicketServiceTest {
     verify(ticketRepository).saveAndFlush(ticket);
   }
 
+  @Test
+  void testUpdateTicket_HoldsTicketLock() {
+    UUID id = UUID.randomUUID();
+    Ticket ticket = Ticket.builder().ticketHistory(new ArrayList<>()).build();
+
+    when(ticketRepository.findById(id)).thenReturn(Optional.of(ticket));
+    when(ticketMapper.update(eq(ticket), any())).thenReturn(List.of());
+    when(ticketHistoryRepository.saveAllAndFlush(List.of())).thenReturn(List.of());
+    when(ticketRepository.saveAndFlush(ticket))
+        .thenAnswer(
+            invocation -> {
+              assertTrue(ticketLocks.isLocked(id));
+              return ticket;
+            });
+    when(ticketMapper.map(ticket)).thenReturn(new TicketDto());
+
+    ticketService.updateTicket(id.toString(), new TicketUpdateDto());
+    assertFalse(ticketLocks.isLocked(id));
+  }
+
+  @Test
+  void testUpdateTicket_WaiterHoldsNoConnection() throws Exception {
+    UUID id = UUID.randomUUID();
+    CountDownLatch locked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<Object> holder =
+        CompletableFuture.supplyAsync(
+            () ->
+                ticketLocks.withLock(
+                    id,
+                    () -> {
+                      locked.countDown();
+                      try {
+                        return release.await(5, TimeUnit.SECONDS);
+                      } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                      }
+                    }));
+    assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+    ResponseStatusException exception =
+        assertThrows(
+            ResponseStatusException.class,
+            () -> ticketService.updateTicket(id.toString(), new TicketUpdateDto()));
+    assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+    // No transaction was started, so no connection was taken from the pool while waiting
+    verify(transactionManager, never()).getTransaction(any());
+    verify(ticketRepository, never()).findById(any());
+    release.countDown();
+    holder.get(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void testCreateTicket_AutoAssign() {
+    TicketCreationDto creationDto = TicketCreationDto.builder().autoAssign(true).build();
+    Ticket ticket = Ticket.builder().build();
+    User user = User.builder().id(UUID.randomUUID()).build();
+
+    when(ticketMapper.map(creationDto)).thenReturn(ticket);
+    when(ticketAssignmentService.assign(ticket)).thenReturn(user);
+    when(ticketRepository.save(ticket)).thenReturn(ticket);
+    when(ticketMapper.map(ticket)).thenReturn(new TicketDto());
+
+    ticketService.createTicket(creationDto);
+    assertEquals(user, ticket.getAssignedTo());
+  }
+
+  @Test
+  void testUpdateTicket_AutoAssign() {
+    String id = UUID.randomUUID().toString();
+    TicketUpdateDto updateDto = TicketUpdateDto.builder().autoAssign(true).build();
+    Ticket ticket = Ticket.builder().ticketHistory(new ArrayList<>()).build();
+    User user = User.builder().id(UUID.randomUUID()).build();
+
+    when(ticketRepository.findById(UUID.fromString(id))).thenReturn(Optional.of(ticket));
+    when(ticketAssignmentService.assign(ticket)).thenReturn(user);
+    when(ticketMapper.update(ticket, updateDto)).thenReturn(List.of());
+    when(ticketHistoryRepository.saveAllAndFlush(List.of())).thenReturn(List.of());
+    when(ticketRepository.saveAndFlush(ticket)).thenReturn(ticket);
+    when(ticketMapper.map(ticket)).thenReturn(new TicketDto());
+
+    ticketService.updateTicket(id, updateDto);
+    assertEquals(user.getId().toString(), updateDto.getAssignedTo());
+  }
+
   @Test
   void testUpdateTicket_NotFound() {
     String id = UUID.randomUUID().toString();
@@ -91,8 +210,8 @@ public class TicketServiceTest {
     TicketHistory history = new TicketHistory();
     ticket.getTicketHistory().add(history);
     when(ticketRepository.findById(UUID.fromString(id))).thenReturn(Optional.of(ticket));
-    when(ticketMapper.map(history)).thenReturn(new TicketHistoryDto());
-    List<TicketHistoryDto> result = ticketService.getTicketHistory(id, null);
+    when(ticketMapper.map(ticket, List.of(history))).thenReturn(List.of(new TicketHistoryDto()));
+    List<TicketHistoryDto> result = ticketService.getTicketHistory(id, null, false);
     assertEquals(1, result.size());
   }
 
@@ -104,9 +223,12 @@ public class TicketServiceTest {
     history.setType(type);
     Ticket ticket = Ticket.builder().ticketHistory(new ArrayList<>()).build();
     ticket.getTicketHistory().add(history);
+    TicketHistory other = new TicketHistory();
+    other.setType(ChangeType.COMMENT);
+    ticket.getTicketHistory().add(other);
     when(ticketRepository.findById(UUID.fromString(id))).thenReturn(Optional.of(ticket));
-    when(ticketMapper.map(history)).thenReturn(new TicketHistoryDto());
-    List<TicketHistoryDto> result = ticketService.getTicketHistory(id, type);
+    when(ticketMapper.map(ticket, List.of(history))).thenReturn(List.of(new TicketHistoryDto()));
+    List<TicketHistoryDto> result = ticketService.getTicketHistory(id, type, false);
     assertEquals(1, result.size());
   }
 
@@ -114,24 +236,8 @@ public class TicketServiceTest {
   void testGetTicketHistory_NotFound() {
     String id = UUID.randomUUID().toString();
     when(ticketRepository.findById(UUID.fromString(id))).thenReturn(Optional.empty());
-    assertThrows(ResponseStatusException.class, () -> ticketService.getTicketHistory(id, null));
-  }
-
-  @Test
-  void testImportTickets() throws IOException {
-    String csv = "subject,description,NEW\nsubject2,description2,CLOSED";
-    MultipartFile file = mock(MultipartFile.class);
-    when(file.getInputStream()).thenReturn(new ByteArrayInputStream(csv.getBytes()));
-    ArgumentCaptor<List<Ticket>> captor = ArgumentCaptor.forClass(List.class);
-    when(ticketRepository.saveAllAndFlush(anyList())).thenReturn(Collections.emptyList());
-    ticketService.importTickets(file);
-    verify(ticketRepository).saveAllAndFlush(captor.capture());
-    List<Ticket> tickets = captor.getValue();
-    assertEquals(2, tickets.size());
-    assertEquals("subject", tickets.get(0).getSubject());
-    assertEquals("description2", tickets.get(1).getDescription());
-    assertEquals(Status.NEW, tickets.get(0).getStatus());
-    assertEquals(Status.CLOSED, tickets.get(1).getStatus());
+    assertThrows(
+        ResponseStatusException.class, () -> ticketService.getTicketHistory(id, null, false));
   }
 
   @Test
@@ -147,7 +253,7 @@ public class TicketServiceTest {
               dto.setSubject(t.getSubject());
               return dto;
             });
-    List<TicketDto> result = ticketService.getTikets("");
+    List<TicketDto> result = ticketService.getTikets("", false, 0, null);
     assertEquals(2, result.size());
     assertEquals("A", result.get(0).getSubject());
     assertEquals("B", result.get(1).getSubject());
@@ -167,9 +273,131 @@ public class TicketServiceTest {
               dto.setSubject(t.getSubject());
               return dto;
             });
-    List<TicketDto> result = ticketService.getTikets(userId);
+    List<TicketDto> result = ticketService.getTikets(userId, false, 0, null);
     assertEquals(1, result.size());
     assertEquals("Assigned", result.get(0).getSubject());
     verify(ticketRepository).findAllByAssignedTo_Id(UUID.fromString(userId));
   }
+
+  @Test
+  void testGetTikets_Paged() {
+    Ticket ticket = Ticket.builder().subject("Paged").build();
+    when(ticketRepository.findAllBy(PageRequest.of(1, 2, Sort.by("id"))))
+        .thenReturn(List.of(ticket));
+    when(ticketMapper.map(ticket)).thenReturn(TicketDto.builder().subject("Paged").build());
+
+    List<TicketDto> result = ticketService.getTikets(null, false, 1, 2);
+    assertEquals(1, result.size());
+    assertEquals("Paged", result.get(0).getSubject());
+  }
+
+  @Test
+  void testGetTikets_InvalidPage() {
+    assertThrows(ResponseStatusException.class, () -> ticketService.getTikets(null, false, -1, 2));
+    assertThrows(ResponseStatusException.class, () -> ticketService.getTikets(null, false, 0, 0));
+  }
+
+  @Test
+  void testGetTriageTickets_InvalidPage() {
+    when(ticketIndex.isEnabled()).thenReturn(true);
+    ResponseStatusException exception =
+        assertThrows(
+            ResponseStatusException.class,
+            () -> ticketService.getTriageTickets(null, List.of(), -1, 20));
+    assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    assertThrows(
+        ResponseStatusException.class,
+        () -> ticketService.getTriageTickets(null, List.of(), 0, 0));
+    verify(ticketIndex, never()).page(any(), anyLong(), anyInt());
+  }
+
+  @Test
+  void testGetTriageCounts_IndexDisabled() {
+    when(ticketIndex.isEnabled()).thenReturn(false);
+    assertThrows(ResponseStatusException.class, () -> ticketService.getTriageCounts(null));
+  }
+
+  @Test
+  void testGetTicket_AsOf() {
+    String id = UUID.randomUUID().toString();
+    Date asOf = new Date();
+    Ticket ticket = Ticket.builder().build();
+    TicketDto past = new TicketDto();
+    when(ticketRepository.findById(UUID.fromString(id))).thenReturn(Optional.of(ticket));
+    when(ticketSnapshotService.reconstruct(ticket, asOf)).thenReturn(Optional.of(past));
+    assertEquals(past, ticketService.getTicket(id, asOf, false));
+  }
+
+  @Test
+  void testGetTicket_AsOfBeforeCreation() {
+    String id = UUID.randomUUID().toString();
+    Date asOf = new Date();
+    Ticket ticket = Ticket.builder().build();
+    when(ticketRepository.findById(UUID.fromString(id))).thenReturn(Optional.of(ticket));
+    when(ticketSnapshotService.reconstruct(ticket, asOf)).thenReturn(Optional.empty());
+    assertThrows(ResponseStatusException.class, () -> ticketService.getTicket(id, asOf, false));
+  }
+
+  @Test
+  void testGetTicket_Archived() {
+    String id = UUID.randomUUID().toString();
+    TicketDto archived = new TicketDto();
+    when(ticketArchiveService.getArchivedTicket(id)).thenReturn(archived);
+    assertEquals(archived, ticketService.getTicket(id, null, true));
+    verify(ticketRepository, never()).findById(any());
+  }
+
+  @Test
+  void testGetTicket_ArchivedAsOf() {
+    String id = UUID.randomUUID().toString();
+    assertThrows(
+        ResponseStatusException.class, () -> ticketService.getTicket(id, new Date(), true));
+  }
+
+  @Test
+  void testGetTicketFields() {
+    Tuple tuple = mock(Tuple.class);
+    Map<String, Object> fields = Map.of("id", UUID.randomUUID(), "status", Status.IN_PROGRESS);
+    when(ticketRepository.findFields(List.of("id", "status"), null)).thenReturn(List.of(tuple));
+    when(ticketMapper.map(tuple)).thenReturn(fields);
+
+    List<Map<String, Object>> result =
+        ticketService.getTicketFields(null, List.of("status", "id"), false);
+
+    assertEquals(List.of(fields), result);
+  }
+
+  @Test
+  void testGetTicketFields_UnknownField() {
+    assertThrows(
+        ResponseStatusException.class,
+        () -> ticketService.getTicketFields(null, List.of("password"), false));
+    verify(ticketRepository, never()).findFields(any(), any());
+  }
+
+  @Test
+  void testGetTicketJson() {
+    String id = UUID.randomUUID().toString();
+    Ticket ticket = Ticket.builder().build();
+    byte[] json = "{}".getBytes();
+    when(ticketRepository.findById(UUID.fromString(id))).thenReturn(Optional.of(ticket));
+    when(ticketJsonCache.get(ticket)).thenReturn(json);
+    assertSame(json, ticketService.getTicketJson(id));
+  }
+
+  @Test
+  void testExportTickets() throws IOException {
+    TicketRepository.CsvRow row = mock(TicketRepository.CsvRow.class);
+    when(row.getSubject()).thenReturn("a, b");
+    when(row.getDescription()).thenReturn("text");
+    when(row.getStatus()).thenReturn(Status.NEW);
+    when(ticketRepository.streamCsvRows(Status.NEW, null)).thenReturn(Stream.of(row));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    ticketService.exportTickets(Status.NEW, null, out);
+
+    assertEquals(
+        "subject,description,status\r\n\"a, b\",text,NEW\r\n",
+        out.toString(StandardCharsets.UTF_8));
+  }
 }
@@ -0,0 +1,172 @@
+package com.tickets.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.tickets.configuration.ShardRoutingDataSource;
+import com.tickets.configuration.ShardUserReplication;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** Runs against three embedded databases, one per shard. */
+public class TicketShardsTest {
+  private final List<DataSource> databases = new ArrayList<>();
+  private JdbcTemplate jdbcTemplate;
+  private TransactionTemplate transactionTemplate;
+  private TicketShards ticketShards;
+
+  @BeforeEach
+  void setUp() {
+    for (int shard = 0; shard < 3; shard++) {
+      databases.add(database("shard" + shard));
+    }
+    DataSource dataSource =
+        new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(databases));
+    DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    ticketShards = new TicketShards(transactionManager, List.of("shard0", "shard1", "shard2"));
+  }
+
+  @AfterEach
+  void tearDown() {
+    ticketShards.shutdown();
+    ShardRoutingDataSource.setShard(null);
+  }
+
+  @Test
+  void testRouteWritesToOwningShard() {
+    List<UUID> ids = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      UUID id = UUID.randomUUID();
+      ids.add(id);
+      transactionTemplate.executeWithoutResult(
+          status -> {
+            ticketShards.route(id);
+            jdbcTemplate.update("INSERT INTO ticket (id) VALUES (?)", id);
+          });
+    }
+    assertNull(ShardRoutingDataSource.getShard());
+    for (UUID id : ids) {
+      for (int shard = 0; shard < databases.size(); shard++) {
+        Integer count =
+            new JdbcTemplate(databases.get(shard))
+                .queryForObject("SELECT COUNT(*) FROM ticket WHERE id = ?", Integer.class, id);
+        assertEquals(shard == ticketShards.shardOf(id) ? 1 : 0, count);
+      }
+    }
+  }
+
+  @Test
+  void testAssignTicketOnShardOneToReplicatedUser() {
+    UUID userId = UUID.randomUUID();
+    new JdbcTemplate(databases.get(0))
+        .update(
+            "INSERT INTO users (id, user_name, password, role) VALUES (?, 'support', 'x', ?)",
+            userId,
+            "ROLE_SUPPORT");
+    UUID id = ticketShards.newId(1);
+    assertEquals(1, ticketShards.shardOf(id));
+    Runnable assign =
+        () ->
+            transactionTemplate.executeWithoutResult(
+                status -> {
+                  ticketShards.route(id);
+                  jdbcTemplate.update(
+                      "INSERT INTO ticket (id, assigned_to_id) VALUES (?, ?)", id, userId);
+                });
+    assertThrows(DataIntegrityViolationException.class, assign::run);
+
+    ShardUserReplication replication =
+        new ShardUserReplication(new ShardRoutingDataSource(databases));
+    replication.replicateAndCheck();
+    assign.run();
+
+    assertEquals(
+        userId,
+        new JdbcTemplate(databases.get(1))
+            .queryForObject("SELECT assigned_to_id FROM ticket WHERE id = ?", UUID.class, id));
+    assertEquals(0, replication.replicate());
+  }
+
+  @Test
+  void testRouteOutsideTransactionFails() {
+    assertThrows(IllegalStateException.class, () -> ticketShards.route(UUID.randomUUID()));
+  }
+
+  @Test
+  void testGatherQueriesEveryShard() {
+    List<String> names =
+        ticketShards.gather(() -> jdbcTemplate.queryForList("SELECT name FROM node", String.class));
+    assertEquals(List.of("shard0", "shard1", "shard2"), names);
+  }
+
+  @Test
+  void testForEachShardRunsOnEveryShard() {
+    List<String> names = Collections.synchronizedList(new ArrayList<>());
+    ticketShards.forEachShard(
+        () -> names.add(jdbcTemplate.queryForObject("SELECT name FROM node", String.class)));
+    assertEquals(List.of("shard0", "shard1", "shard2"), names);
+  }
+
+  @Test
+  void testGatherPageMergesShards() {
+    List<UUID> ids = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      UUID id = new UUID(i, i);
+      ids.add(id);
+      new JdbcTemplate(databases.get(ticketShards.shardOf(id)))
+          .update("INSERT INTO ticket (id) VALUES (?)", id);
+    }
+    List<UUID> page =
+        ticketShards.gatherPage(
+            pageable ->
+                jdbcTemplate.queryForList(
+                    "SELECT id FROM ticket ORDER BY id LIMIT ? OFFSET ?",
+                    UUID.class,
+                    pageable.getPageSize(),
+                    pageable.getOffset()),
+            TicketShards.BY_ID,
+            TicketShards.ID_ORDER,
+            2,
+            7);
+    assertEquals(ids.subList(14, 21), page);
+  }
+
+  @Test
+  void testSingleShardRunsQueryOnce() {
+    TicketShards single = new TicketShards(null, List.of());
+    assertFalse(single.isSharded());
+    assertEquals(List.of("shard0"), single.gather(() -> List.of("shard0")));
+    single.shutdown();
+  }
+
+  private static DataSource database(String name) {
+    DriverManagerDataSource dataSource =
+        new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(16))");
+    jdbcTemplate.execute(
+        "CREATE TABLE IF NOT EXISTS users (id UUID PRIMARY KEY, user_name VARCHAR(255),"
+            + " password VARCHAR(255), role VARCHAR(255))");
+    jdbcTemplate.execute(
+        "CREATE TABLE IF NOT EXISTS ticket (id UUID PRIMARY KEY,"
+            + " assigned_to_id UUID REFERENCES users (id))");
+    jdbcTemplate.update("DELETE FROM node");
+    jdbcTemplate.update("DELETE FROM ticket");
+    jdbcTemplate.update("DELETE FROM users");
+    jdbcTemplate.update("INSERT INTO node VALUES (?)", name);
+    return dataSource;
+  }
+}
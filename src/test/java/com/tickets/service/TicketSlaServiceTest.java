@@ -0,0 +1,273 @@
+package com.tickets.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.tickets.dto.TicketChangeDto;
+import com.tickets.dto.TicketDto;
+import com.tickets.dto.TicketHistoryDto;
+import com.tickets.model.ChangeType;
+import com.tickets.model.Status;
+import com.tickets.model.Ticket;
+import com.tickets.model.TicketHistory;
+import com.tickets.repository.TicketHistoryRepository;
+import com.tickets.repository.TicketRepository;
+import com.tickets.util.TicketMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+public class TicketSlaServiceTest {
+  @Mock private TicketRepository ticketRepository;
+  @Mock private TicketHistoryRepository ticketHistoryRepository;
+  @Mock private TicketMapper ticketMapper;
+  @Mock private TicketSnapshotService ticketSnapshotService;
+  @Mock private PlatformTransactionManager transactionManager;
+  @Mock private ApplicationEventPublisher eventPublisher;
+  private TicketLocks ticketLocks;
+  private TicketSlaService ticketSlaService;
+
+  @BeforeEach
+  void setUp() {
+    MockitoAnnotations.openMocks(this);
+    ticketLocks = new TicketLocks(new SimpleMeterRegistry(), 16, 100);
+    ticketSlaService =
+        new TicketSlaService(
+            ticketRepository,
+            ticketHistoryRepository,
+            ticketMapper,
+            ticketSnapshotService,
+            new TicketShards(transactionManager, List.of()),
+            ticketLocks,
+            new TransactionTemplate(transactionManager),
+            eventPublisher,
+            true,
+            1000,
+            5000,
+            100);
+    when(ticketHistoryRepository.saveAndFlush(any())).thenAnswer(i -> i.getArgument(0));
+    when(ticketRepository.saveAndFlush(any())).thenAnswer(i -> i.getArgument(0));
+    when(ticketMapper.map(any(Ticket.class))).thenReturn(new TicketDto());
+  }
+
+  @Test
+  void testLoadSkipsTicketsEscalatedSinceLastStatusChange() {
+    long now = System.currentTimeMillis();
+    UUID waiting = UUID.randomUUID();
+    UUID escalated = UUID.randomUUID();
+    List<TicketRepository.SlaEntry> entries =
+        List.of(
+            entry(waiting, Status.IN_PROGRESS, new Date(now), null),
+            entry(escalated, Status.NEW, new Date(now - 2000), new Date(now - 1000)));
+    when(ticketRepository.findSlaEntries(any(), eq(ChangeType.STATUS), eq(ChangeType.ESCALATION)))
+        .thenReturn(entries);
+    ticketSlaService.load();
+
+    assertEquals(now + 5000, ticketSlaService.getDeadline(waiting));
+    assertNull(ticketSlaService.getDeadline(escalated));
+  }
+
+  @Test
+  void testLoadReplaysChangesCommittedDuringRead() {
+    long now = System.currentTimeMillis();
+    UUID id = UUID.randomUUID();
+    when(ticketRepository.findSlaEntries(any(), eq(ChangeType.STATUS), eq(ChangeType.ESCALATION)))
+        .thenAnswer(
+            invocation -> {
+              // Committed after the shard was read, applied before the loaded deadlines
+              ticketSlaService.onTicketChange(
+                  change(TicketChangeDto.Kind.CREATED, id, Status.NEW, now));
+              return List.of();
+            });
+    ticketSlaService.load();
+
+    assertEquals(now + 1000, ticketSlaService.getDeadline(id));
+  }
+
+  @Test
+  void testStatusChangeMovesDeadline() {
+    long now = System.currentTimeMillis();
+    UUID id = UUID.randomUUID();
+    ticketSlaService.onTicketChange(change(TicketChangeDto.Kind.CREATED, id, Status.NEW, now));
+    assertEquals(now + 1000, ticketSlaService.getDeadline(id));
+
+    ticketSlaService.onTicketChange(
+        change(TicketChangeDto.Kind.UPDATED, id, Status.IN_PROGRESS, now + 500));
+    assertEquals(now + 5500, ticketSlaService.getDeadline(id));
+
+    ticketSlaService.onTicketChange(
+        change(TicketChangeDto.Kind.UPDATED, id, Status.IN_REVIEW, now + 600));
+    assertNull(ticketSlaService.getDeadline(id));
+  }
+
+  @Test
+  void testEscalateExpiredTicket() {
+    long now = System.currentTimeMillis();
+    Ticket ticket = ticket(Status.NEW);
+    ticketSlaService.onTicketChange(
+        change(TicketChangeDto.Kind.CREATED, ticket.getId(), Status.NEW, now));
+
+    assertEquals(0, ticketSlaService.escalateExpired(now + 500));
+    assertEquals(1, ticketSlaService.escalateExpired(now + 1200));
+    assertEquals(0, ticketSlaService.escalateExpired(now + 5000));
+
+    ArgumentCaptor<TicketHistory> history = ArgumentCaptor.forClass(TicketHistory.class);
+    verify(ticketHistoryRepository).saveAndFlush(history.capture());
+    assertEquals(ChangeType.ESCALATION, history.getValue().getType());
+    assertEquals(List.of(history.getValue()), ticket.getTicketHistory());
+    assertEquals(4L, ticket.getRevision());
+    verify(ticketSnapshotService).recordUpdate(ticket, 3L);
+    ArgumentCaptor<TicketChangeDto> event = ArgumentCaptor.forClass(TicketChangeDto.class);
+    verify(eventPublisher).publishEvent(event.capture());
+    assertEquals(TicketChangeDto.Kind.ESCALATED, event.getValue().getKind());
+  }
+
+  @Test
+  void testEscalateSkipsTicketWhoseStatusChanged() {
+    long now = System.currentTimeMillis();
+    Ticket ticket = ticket(Status.DONE);
+    ticketSlaService.onTicketChange(
+        change(TicketChangeDto.Kind.CREATED, ticket.getId(), Status.NEW, now));
+
+    assertEquals(0, ticketSlaService.escalateExpired(now + 1200));
+    verify(ticketHistoryRepository, never()).saveAndFlush(any());
+    verify(eventPublisher, never()).publishEvent(any());
+  }
+
+  @Test
+  void testEscalateTwiceEscalatesOnce() {
+    Ticket ticket = ticket(Status.NEW);
+    Date statusChange = new Date(System.currentTimeMillis() - 2000);
+    when(ticketHistoryRepository.findLastUpdateDateByType(ticket.getId(), ChangeType.STATUS))
+        .thenReturn(statusChange);
+    when(ticketHistoryRepository.findLastUpdateDateByType(ticket.getId(), ChangeType.ESCALATION))
+        .thenReturn(null, new Date());
+
+    assertTrue(ticketSlaService.escalate(ticket.getId(), Status.NEW));
+    assertFalse(ticketSlaService.escalate(ticket.getId(), Status.NEW));
+    verify(ticketHistoryRepository, times(1)).saveAndFlush(any());
+    verify(eventPublisher, times(1)).publishEvent(any());
+    assertEquals(4L, ticket.getRevision());
+  }
+
+  @Test
+  void testEscalateAgainAfterNewStatusPeriod() {
+    long now = System.currentTimeMillis();
+    Ticket ticket = ticket(Status.IN_PROGRESS);
+    when(ticketHistoryRepository.findLastUpdateDateByType(ticket.getId(), ChangeType.STATUS))
+        .thenReturn(new Date(now - 1000));
+    when(ticketHistoryRepository.findLastUpdateDateByType(ticket.getId(), ChangeType.ESCALATION))
+        .thenReturn(new Date(now - 2000));
+
+    assertTrue(ticketSlaService.escalate(ticket.getId(), Status.IN_PROGRESS));
+    verify(ticketRepository, never()).findById(any());
+  }
+
+  @Test
+  void testEscalateHoldsTicketLock() {
+    Ticket ticket = ticket(Status.NEW);
+    when(ticketRepository.findByIdForUpdate(ticket.getId()))
+        .thenAnswer(
+            i -> {
+              assertTrue(ticketLocks.isLocked(ticket.getId()));
+              return Optional.of(ticket);
+            });
+
+    assertTrue(ticketSlaService.escalate(ticket.getId(), Status.NEW));
+    assertFalse(ticketLocks.isLocked(ticket.getId()));
+  }
+
+  @Test
+  void testEscalationRetriedWhileTicketIsUpdated() throws Exception {
+    long now = System.currentTimeMillis();
+    Ticket ticket = ticket(Status.NEW);
+    ticketSlaService.onTicketChange(
+        change(TicketChangeDto.Kind.CREATED, ticket.getId(), Status.NEW, now));
+    CountDownLatch locked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<Object> update =
+        CompletableFuture.supplyAsync(
+            () ->
+                ticketLocks.withLock(
+                    ticket.getId(),
+                    () -> {
+                      locked.countDown();
+                      try {
+                        return release.await(5, TimeUnit.SECONDS);
+                      } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                      }
+                    }));
+    assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+    assertEquals(0, ticketSlaService.escalateExpired(now + 1200));
+    assertEquals(now + 1300, ticketSlaService.getDeadline(ticket.getId()));
+    verify(ticketRepository, never()).findByIdForUpdate(any());
+    verify(transactionManager, never()).getTransaction(any());
+
+    release.countDown();
+    update.get(5, TimeUnit.SECONDS);
+    assertEquals(1, ticketSlaService.escalateExpired(now + 2000));
+    assertNull(ticketSlaService.getDeadline(ticket.getId()));
+  }
+
+  @Test
+  void testEscalationEventDoesNotReschedule() {
+    long now = System.currentTimeMillis();
+    UUID id = UUID.randomUUID();
+    ticketSlaService.onTicketChange(change(TicketChangeDto.Kind.ESCALATED, id, Status.NEW, now));
+
+    assertNull(ticketSlaService.getDeadline(id));
+  }
+
+  private Ticket ticket(Status status) {
+    Ticket ticket = new Ticket();
+    ticket.setId(UUID.randomUUID());
+    ticket.setStatus(status);
+    ticket.setRevision(3L);
+    ticket.setTicketHistory(new ArrayList<>());
+    when(ticketRepository.findByIdForUpdate(ticket.getId())).thenReturn(Optional.of(ticket));
+    return ticket;
+  }
+
+  private static TicketChangeDto change(
+      TicketChangeDto.Kind kind, UUID id, Status status, long time) {
+    TicketDto ticket = TicketDto.builder().id(id).status(status).createdAt(new Date(time)).build();
+    TicketHistoryDto statusChange =
+        TicketHistoryDto.builder()
+            .type(ChangeType.STATUS)
+            .newValue(status.name())
+            .updateDate(new Date(time))
+            .build();
+    return TicketChangeDto.builder()
+        .kind(kind)
+        .ticket(ticket)
+        .history(List.of(statusChange))
+        .build();
+  }
+
+  private static TicketRepository.SlaEntry entry(
+      UUID id, Status status, Date since, Date escalatedAt) {
+    TicketRepository.SlaEntry entry = mock(TicketRepository.SlaEntry.class);
+    when(entry.getId()).thenReturn(id);
+    when(entry.getStatus()).thenReturn(status);
+    when(entry.getSince()).thenReturn(since);
+    when(entry.getEscalatedAt()).thenReturn(escalatedAt);
+    return entry;
+  }
+}
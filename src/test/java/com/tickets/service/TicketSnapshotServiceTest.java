@@ -0,0 +1,123 @@
+package com.tickets.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.tickets.dto.TicketDto;
+import com.tickets.model.ChangeType;
+import com.tickets.model.Status;
+import com.tickets.model.Ticket;
+import com.tickets.model.TicketHistory;
+import com.tickets.model.TicketSnapshot;
+import com.tickets.repository.TicketHistoryRepository;
+import com.tickets.repository.TicketSnapshotRepository;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class TicketSnapshotServiceTest {
+  @Mock private TicketSnapshotRepository ticketSnapshotRepository;
+  @Mock private TicketHistoryRepository ticketHistoryRepository;
+  private TicketSnapshotService ticketSnapshotService;
+
+  private final UUID id = UUID.randomUUID();
+  private final Date created = new Date(1_000);
+  private final Date asOf = new Date(5_000);
+
+  @BeforeEach
+  void setUp() {
+    MockitoAnnotations.openMocks(this);
+    ticketSnapshotService =
+        new TicketSnapshotService(ticketSnapshotRepository, ticketHistoryRepository, 2);
+  }
+
+  @Test
+  void testRecordUpdateOnlyWhenCrossingInterval() {
+    Ticket ticket = Ticket.builder().id(id).revision(3L).build();
+    ticketSnapshotService.recordUpdate(ticket, 2);
+    verify(ticketSnapshotRepository, never()).save(any());
+    ticket.setRevision(4L);
+    ticketSnapshotService.recordUpdate(ticket, 3);
+    verify(ticketSnapshotRepository).save(argThat(s -> s.getRevision() == 4L));
+  }
+
+  @Test
+  void testReconstructReplaysForwardFromSnapshot() {
+    Ticket ticket = Ticket.builder().id(id).createdAt(created).subject("current").build();
+    TicketSnapshot snapshot =
+        TicketSnapshot.builder()
+            .ticketId(id)
+            .takenAt(new Date(2_000))
+            .subject("snap")
+            .status(Status.NEW)
+            .build();
+    when(ticketSnapshotRepository.findFirstByTicketIdAndTakenAtLessThanEqualOrderByTakenAtDesc(
+            id, asOf))
+        .thenReturn(Optional.of(snapshot));
+    when(ticketHistoryRepository.findByTicketIdAndUpdateDateBetween(id, new Date(2_000), asOf))
+        .thenReturn(
+            List.of(
+                TicketHistory.builder()
+                    .type(ChangeType.STATUS)
+                    .oldValue("NEW")
+                    .newValue("IN_PROGRESS")
+                    .build(),
+                TicketHistory.builder().type(ChangeType.SUBJECT).text("snap -> legacy").build()));
+
+    TicketDto dto = ticketSnapshotService.reconstruct(ticket, asOf).orElseThrow();
+    assertEquals(Status.IN_PROGRESS, dto.getStatus());
+    assertEquals("legacy", dto.getSubject());
+  }
+
+  @Test
+  void testReconstructRollsBackFromCurrentState() {
+    Ticket ticket =
+        Ticket.builder()
+            .id(id)
+            .createdAt(created)
+            .modifiedAt(new Date(9_000))
+            .subject("new")
+            .status(Status.CLOSED)
+            .build();
+    when(ticketSnapshotRepository.findFirstByTicketIdAndTakenAtLessThanEqualOrderByTakenAtDesc(
+            id, asOf))
+        .thenReturn(Optional.empty());
+    when(ticketSnapshotRepository.findFirstByTicketIdAndTakenAtGreaterThanOrderByTakenAtAsc(
+            id, asOf))
+        .thenReturn(Optional.empty());
+    when(ticketHistoryRepository.findByTicketIdAndUpdateDateBetween(id, asOf, new Date(9_000)))
+        .thenReturn(
+            List.of(
+                TicketHistory.builder()
+                    .type(ChangeType.SUBJECT)
+                    .oldValue("old")
+                    .newValue("mid")
+                    .build(),
+                TicketHistory.builder()
+                    .type(ChangeType.SUBJECT)
+                    .oldValue("mid")
+                    .newValue("new")
+                    .build(),
+                TicketHistory.builder()
+                    .type(ChangeType.STATUS)
+                    .oldValue("IN_REVIEW")
+                    .newValue("CLOSED")
+                    .build()));
+
+    TicketDto dto = ticketSnapshotService.reconstruct(ticket, asOf).orElseThrow();
+    assertEquals("old", dto.getSubject());
+    assertEquals(Status.IN_REVIEW, dto.getStatus());
+  }
+
+  @Test
+  void testReconstructBeforeCreation() {
+    Ticket ticket = Ticket.builder().id(id).createdAt(created).build();
+    assertTrue(ticketSnapshotService.reconstruct(ticket, new Date(500)).isEmpty());
+  }
+}
@@ -0,0 +1,45 @@
+package com.tickets.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+public class BloomFilterTest {
+
+  @Test
+  void testNoFalseNegatives() {
+    BloomFilter filter = new BloomFilter(10000, 0.01);
+    SplittableRandom random = new SplittableRandom(42);
+    long[] hashes = new long[10000];
+    for (int i = 0; i < hashes.length; i++) {
+      hashes[i] = random.nextLong();
+      filter.put(hashes[i]);
+    }
+    for (long hash : hashes) {
+      assertTrue(filter.mightContain(hash));
+    }
+  }
+
+  @Test
+  void testFalsePositiveRate() {
+    BloomFilter filter = new BloomFilter(10000, 0.01);
+    SplittableRandom random = new SplittableRandom(42);
+    for (int i = 0; i < 10000; i++) {
+      filter.put(random.nextLong());
+    }
+    int falsePositives = 0;
+    for (int i = 0; i < 100000; i++) {
+      if (filter.mightContain(random.nextLong())) {
+        falsePositives++;
+      }
+    }
+    assertTrue(falsePositives < 2000, "False positives: " + falsePositives);
+  }
+
+  @Test
+  void testInvalidSize() {
+    assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+    assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1));
+  }
+}
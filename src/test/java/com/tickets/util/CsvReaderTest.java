@@ -0,0 +1,53 @@
+package com.tickets.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class CsvReaderTest {
+
+  @Test
+  void testRoundTripWithWriter() throws IOException {
+    StringWriter out = new StringWriter();
+    CsvWriter writer = new CsvWriter(out);
+    writer.writeRecord("plain", "with, comma", "with \"quotes\"");
+    writer.writeRecord("multi\r\nline", null, "");
+
+    CsvReader reader = new CsvReader(new StringReader(out.toString()));
+    assertEquals(List.of("plain", "with, comma", "with \"quotes\""), reader.readRecord());
+    assertEquals(List.of("multi\r\nline", "", ""), reader.readRecord());
+    assertNull(reader.readRecord());
+  }
+
+  @Test
+  void testLineEndings() throws IOException {
+    CsvReader reader = new CsvReader(new StringReader("a,b\nc,d\r\ne,f"));
+    assertEquals(List.of("a", "b"), reader.readRecord());
+    assertEquals(List.of("c", "d"), reader.readRecord());
+    assertEquals(List.of("e", "f"), reader.readRecord());
+    assertNull(reader.readRecord());
+  }
+
+  @Test
+  void testLineNumbers() throws IOException {
+    CsvReader reader = new CsvReader(new StringReader("a\r\n\"multi\nline\"\n\nb"));
+    reader.readRecord();
+    assertEquals(1, reader.getLineNumber());
+    reader.readRecord();
+    assertEquals(2, reader.getLineNumber());
+    reader.readRecord();
+    assertEquals(4, reader.getLineNumber());
+    assertEquals(List.of("b"), reader.readRecord());
+    assertEquals(5, reader.getLineNumber());
+  }
+
+  @Test
+  void testUnterminatedQuote() {
+    CsvReader reader = new CsvReader(new StringReader("\"open,field"));
+    assertThrows(IOException.class, reader::readRecord);
+  }
+}
@@ -0,0 +1,86 @@
+package com.tickets.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.airlift.compress.zstd.ZstdCompressor;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Test;
+
+public class DecompressionTest {
+
+  private static final String CSV = "subject,description,NEW\nsubject2,description2,DONE\n";
+
+  @Test
+  void testPlain() throws IOException {
+    assertEquals(CSV, read(Decompression.open(input(CSV.getBytes()), null)));
+    assertEquals(CSV, read(Decompression.open(input(CSV.getBytes()), "identity")));
+  }
+
+  @Test
+  void testGzipFromContentEncoding() throws IOException {
+    assertEquals(CSV, read(Decompression.open(input(gzip(CSV)), "gzip")));
+  }
+
+  @Test
+  void testGzipFromMagicBytes() throws IOException {
+    assertEquals(CSV, read(Decompression.open(input(gzip(CSV)), null)));
+  }
+
+  @Test
+  void testZstdFromMagicBytes() throws IOException {
+    assertEquals(CSV, read(Decompression.open(input(zstd(CSV)), null)));
+    assertEquals(CSV, read(Decompression.open(input(zstd(CSV)), "zstd")));
+  }
+
+  @Test
+  void testShortInput() throws IOException {
+    assertEquals("a", read(Decompression.open(input("a".getBytes()), null)));
+    assertEquals("", read(Decompression.open(input(new byte[0]), null)));
+  }
+
+  @Test
+  void testCorruptInput() throws IOException {
+    byte[] gzip = gzip(CSV);
+    InputStream in = Decompression.open(input(Arrays.copyOf(gzip, gzip.length / 2)), null);
+    assertThrows(IOException.class, () -> read(in));
+  }
+
+  @Test
+  void testUnsupportedEncoding() {
+    assertFalse(Decompression.isSupported("br"));
+    assertTrue(Decompression.isSupported("GZIP"));
+    assertTrue(Decompression.isSupported(null));
+    assertThrows(
+        IllegalArgumentException.class, () -> Decompression.open(input(CSV.getBytes()), "br"));
+  }
+
+  private static InputStream input(byte[] data) {
+    return new ByteArrayInputStream(data);
+  }
+
+  private static String read(InputStream in) throws IOException {
+    return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+  }
+
+  private static byte[] gzip(String text) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] zstd(String text) {
+    byte[] data = text.getBytes(StandardCharsets.UTF_8);
+    ZstdCompressor compressor = new ZstdCompressor();
+    byte[] out = new byte[compressor.maxCompressedLength(data.length)];
+    int length = compressor.compress(data, 0, data.length, out, 0, out.length);
+    return Arrays.copyOf(out, length);
+  }
+}
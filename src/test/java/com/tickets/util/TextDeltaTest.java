@@ -0,0 +1,34 @@
+package com.tickets.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class TextDeltaTest {
+
+  @Test
+  void testRoundTripBothDirections() {
+    String oldText = "The printer on floor 2 is jammed. ".repeat(50) + "Please fix.";
+    String newText = "The printer on floor 2 is jammed. ".repeat(50) + "Fixed on Monday, closing.";
+    byte[] delta = TextDelta.encode(oldText, newText);
+    assertEquals(newText, TextDelta.applyForward(oldText, delta));
+    assertEquals(oldText, TextDelta.applyReverse(newText, delta));
+    assertTrue(delta.length < newText.length() / 10);
+  }
+
+  @Test
+  void testRepeatedCharactersAndEmptyText() {
+    byte[] delta = TextDelta.encode("aaaa", "aa");
+    assertEquals("aa", TextDelta.applyForward("aaaa", delta));
+    assertEquals("aaaa", TextDelta.applyReverse("aa", delta));
+
+    delta = TextDelta.encode("", "new");
+    assertEquals("new", TextDelta.applyForward("", delta));
+    assertEquals("", TextDelta.applyReverse("new", delta));
+  }
+
+  @Test
+  void testInvalidDelta() {
+    assertThrows(IllegalArgumentException.class, () -> TextDelta.applyForward("a", new byte[] {1}));
+  }
+}
@@ -76,8 +76,12 @@ public class TicketMapperTest {
     assertEquals(2, history.size());
     assertEquals(ChangeType.SUBJECT, history.get(0).getType());
     assertEquals(ChangeType.DESCRIPTION, history.get(1).getType());
-    assertEquals("old -> new", history.get(0).getText());
-    assertEquals("oldDesc -> newDesc", history.get(1).getText());
+    assertEquals("old", history.get(0).getOldValue());
+    assertEquals("new", history.get(0).getNewValue());
+    assertEquals("oldDesc", history.get(1).getOldValue());
+    assertEquals("newDesc", history.get(1).getNewValue());
+    assertEquals("old -> new", ticketMapper.map(history.get(0)).getText());
+    assertEquals("oldDesc -> newDesc", ticketMapper.map(history.get(1)).getText());
   }
 
   @Test
@@ -95,7 +99,9 @@ public class TicketMapperTest {
     List<TicketHistory> history = ticketMapper.update(ticket, updateDto);
     assertEquals(1, history.size());
     assertEquals(ChangeType.ASSIGNED_TO, history.get(0).getType());
-    assertEquals("null -> " + userId, history.get(0).getText());
+    assertNull(history.get(0).getOldValue());
+    assertEquals(userId, history.get(0).getNewValue());
+    assertEquals("null -> " + userId, ticketMapper.map(history.get(0)).getText());
     assertEquals(user, ticket.getAssignedTo());
   }
 
@@ -126,7 +132,9 @@ public class TicketMapperTest {
     assertEquals(2, history.size());
     assertEquals(ChangeType.STATUS, history.get(0).getType());
     assertEquals(ChangeType.COMMENT, history.get(1).getType());
-    assertEquals(Status.NEW + " -> " + Status.CLOSED, history.get(0).getText());
+    assertEquals(Status.NEW.name(), history.get(0).getOldValue());
+    assertEquals(Status.CLOSED.name(), history.get(0).getNewValue());
+    assertEquals(Status.NEW + " -> " + Status.CLOSED, ticketMapper.map(history.get(0)).getText());
     assertEquals("A comment", history.get(1).getText());
     assertEquals(Status.CLOSED, ticket.getStatus());
   }
@@ -144,4 +152,54 @@ public class TicketMapperTest {
     assertEquals(history.getType(), dto.getType());
     assertEquals(history.getText(), dto.getText());
   }
+
+  @Test
+  void testUpdateLargeDescriptionStoresDelta() {
+    String first = "Line of a long description. ".repeat(20);
+    String second = first + "Second version.";
+    String third = second.replace("Second", "Third");
+    Ticket ticket = Ticket.builder().description(first).ticketHistory(new ArrayList<>()).build();
+
+    TicketUpdateDto updateDto = TicketUpdateDto.builder().description(second).build();
+    List<TicketHistory> history = ticketMapper.update(ticket, updateDto);
+    history.get(0).setUpdateDate(Date.from(Instant.now().minusSeconds(60)));
+    ticket.getTicketHistory().addAll(history);
+    updateDto = TicketUpdateDto.builder().description(third).build();
+    ticket.getTicketHistory().addAll(ticketMapper.update(ticket, updateDto));
+
+    assertNotNull(ticket.getTicketHistory().get(0).getDelta());
+    assertNull(ticket.getTicketHistory().get(0).getOldValue());
+    assertNull(ticket.getTicketHistory().get(0).getNewValue());
+
+    List<TicketHistoryDto> dtos = ticketMapper.map(ticket, ticket.getTicketHistory());
+    assertEquals(first, dtos.get(0).getOldValue());
+    assertEquals(second, dtos.get(0).getNewValue());
+    assertEquals(second, dtos.get(1).getOldValue());
+    assertEquals(third, dtos.get(1).getNewValue());
+  }
+
+  @Test
+  void testMapDeltasWithEqualUpdateDates() {
+    String first = "Line of a long description. ".repeat(20);
+    String second = first + "Second version.";
+    String third = second.replace("Second", "Third");
+    Ticket ticket = Ticket.builder().description(first).ticketHistory(new ArrayList<>()).build();
+    Date now = new Date();
+
+    List<TicketHistory> history =
+        ticketMapper.update(ticket, TicketUpdateDto.builder().description(second).build());
+    history.get(0).setId(UuidV7.generate());
+    history.get(0).setUpdateDate(now);
+    ticket.getTicketHistory().addAll(history);
+    history = ticketMapper.update(ticket, TicketUpdateDto.builder().description(third).build());
+    history.get(0).setId(UuidV7.generate());
+    history.get(0).setUpdateDate(now);
+    ticket.getTicketHistory().addAll(history);
+
+    List<TicketHistoryDto> dtos = ticketMapper.map(ticket, ticket.getTicketHistory());
+    assertEquals(first, dtos.get(0).getOldValue());
+    assertEquals(second, dtos.get(0).getNewValue());
+    assertEquals(second, dtos.get(1).getOldValue());
+    assertEquals(third, dtos.get(1).getNewValue());
+  }
 }
@@ -0,0 +1,81 @@
+package com.tickets.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+public class TimingWheelTest {
+
+  @Test
+  void testExpiresAfterDeadline() {
+    TimingWheel<String> wheel = new TimingWheel<>(10, 8, 3, 0);
+    wheel.schedule("a", 25);
+    wheel.schedule("b", 500);
+
+    assertEquals(List.of(), wheel.advance(20));
+    assertEquals(List.of("a"), wheel.advance(30));
+    assertEquals(List.of(), wheel.advance(499));
+    assertEquals(List.of("b"), wheel.advance(510));
+    assertEquals(0, wheel.size());
+  }
+
+  @Test
+  void testCancelAndReschedule() {
+    TimingWheel<String> wheel = new TimingWheel<>(10, 8, 3, 0);
+    wheel.schedule("a", 100);
+    wheel.schedule("b", 100);
+    assertTrue(wheel.cancel("a"));
+    assertFalse(wheel.cancel("a"));
+    wheel.schedule("b", 300);
+
+    assertEquals(List.of(), wheel.advance(200));
+    assertEquals(300L, wheel.getDeadline("b"));
+    assertEquals(List.of("b"), wheel.advance(310));
+    assertNull(wheel.getDeadline("b"));
+  }
+
+  @Test
+  void testPastDeadlineExpiresOnNextTick() {
+    TimingWheel<String> wheel = new TimingWheel<>(10, 8, 3, 1000);
+    wheel.schedule("a", 0);
+
+    assertEquals(List.of("a"), wheel.advance(1010));
+  }
+
+  @Test
+  void testDeadlineBeyondTopLevel() {
+    TimingWheel<String> wheel = new TimingWheel<>(10, 4, 2, 0);
+    wheel.schedule("a", 1000);
+
+    assertEquals(List.of(), wheel.advance(990));
+    assertEquals(List.of("a"), wheel.advance(1010));
+  }
+
+  @Test
+  void testRandomDeadlinesNeverExpireEarlyOrLate() {
+    TimingWheel<Integer> wheel = new TimingWheel<>(10, 16, 3, 0);
+    SplittableRandom random = new SplittableRandom(42);
+    Map<Integer, Long> deadlines = new HashMap<>();
+    for (int key = 0; key < 5000; key++) {
+      long deadline = random.nextLong(100000);
+      wheel.schedule(key, deadline);
+      deadlines.put(key, deadline);
+    }
+    List<Integer> fired = new ArrayList<>();
+    for (long now = 0; now <= 100010; now += random.nextInt(1, 50)) {
+      for (Integer key : wheel.advance(now)) {
+        long deadline = deadlines.get(key);
+        assertTrue(deadline < now, "Key " + key + " expired early");
+        assertTrue(now - deadline <= 60, "Key " + key + " expired late");
+        fired.add(key);
+      }
+    }
+    assertEquals(5000, fired.size());
+    assertEquals(0, wheel.size());
+  }
+}
@@ -0,0 +1,43 @@
+package com.tickets.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+public class UuidV7Test {
+
+  @Test
+  void testVersionVariantAndTimestamp() {
+    long before = System.currentTimeMillis();
+    UUID uuid = UuidV7.generate();
+    long after = System.currentTimeMillis();
+
+    assertEquals(7, uuid.version());
+    assertEquals(2, uuid.variant());
+    Instant timestamp = UuidV7.getTimestamp(uuid);
+    assertTrue(timestamp.toEpochMilli() >= before);
+    assertTrue(timestamp.toEpochMilli() <= after + 1);
+    assertEquals(uuid, UUID.fromString(uuid.toString()));
+  }
+
+  @Test
+  void testStrictlyIncreasing() {
+    List<UUID> ids = new ArrayList<>();
+    for (int i = 0; i < 100_000; i++) {
+      ids.add(UuidV7.generate());
+    }
+    for (int i = 1; i < ids.size(); i++) {
+      // Compare as unsigned text, which is how Postgres orders uuid values
+      assertTrue(ids.get(i - 1).toString().compareTo(ids.get(i).toString()) < 0);
+    }
+  }
+
+  @Test
+  void testRandomUuidIsRejected() {
+    assertThrows(IllegalArgumentException.class, () -> UuidV7.getTimestamp(UUID.randomUUID()));
+  }
+}